@@ -26,7 +26,9 @@ import java.io.IOException;
 import java.util.*;
 
 import math.field.MyDouble;
+import math.linalg.MyDenseMatrix;
 import math.linalg.MyMatrix;
+import math.linalg.MyMatrixBuilder;
 import math.set.MySet;
 import singular.*;
 
@@ -59,30 +61,22 @@ public class ChemicalReactionNetwork extends ReactionNetwork{
 	}
 	
 	/**
-	 * Creates Ik matrix.
+	 * Creates Ik matrix, row j has the rate constant of the j-th reaction in
+	 * the column of its substrate.
 	 */
 	public void makeIkMatrix(){
-		this.Ik = new MyMatrix<Reaction,Complex>();
+		MySet<Reaction> reaction_set = this.getReactions().clone();
+		MySet<Complex> complex_set = this.getComplexes().clone();
+		MyMatrixBuilder<Double,Reaction,Complex> builder = new MyMatrixBuilder<Double,Reaction,Complex>(reaction_set, complex_set, new MyDouble<Reaction,Complex>(0.0, null, null));
 		
-		ArrayList<Reaction> reaction_array = this.getReactions().toArrayList();
-		ArrayList<Complex> complex_array = this.getComplexes().toArrayList();
-		for (int j = 0; j < reaction_array.size(); j++){
-			Reaction reaction = reaction_array.get(j);
-			RateConstant rate_constant = this.K.get(reaction);
-			
-			Complex substrate = reaction.getSubstrate();
-			for (int i = 0; i < complex_array.size(); i++){
-				Complex complex = complex_array.get(i);
-				
-				MyDouble<Reaction,Complex> entry;
-				if (complex.equals(substrate))
-					entry = new MyDouble<Reaction,Complex>(new Double(rate_constant.getRateConstant()),reaction,complex);
-				else
-					entry = new MyDouble<Reaction,Complex>(new Double(0),reaction,complex);
-				
-				this.Ik.add(entry);
-			}
+		int i = 0;
+		Iterator<Reaction> reaction_iterator = reaction_set.iterator();
+		while (reaction_iterator.hasNext()){
+			Reaction reaction = reaction_iterator.next();
+			builder.set(i++, complex_set.getIndex(reaction.getSubstrate()), this.K.get(reaction).getRateConstant());
 		}
+		
+		this.Ik = builder.build();
 	}
 	
 	public void exportToOctave(String filepath, String fileName) throws Exception{
@@ -168,17 +162,13 @@ public class ChemicalReactionNetwork extends ReactionNetwork{
 		
 		MySet<Species> species = this.getSpecies();
 		ArrayList<Species> species_array = species.toArrayList();
-		MyMatrix<Species,Reaction> N = this.getNMatrix();
+		MyDenseMatrix<Species,Reaction> N = this.getNMatrix();
 		Ideal ret = new Ideal("I");
 		for (int i = 0; i < N.getHeight(); i++){
 			Polynomial polynomial = new Polynomial(species_array.get(i).getName());
 			for (int j = 0; j < N.getWidth(); j++){
-				if (!N.getEntry(i, j).isZero()){
-					int coeff = -1;
-					if (N.getEntry(i, j).getEntry() instanceof Integer)
-						coeff = ((Integer)N.getEntry(i, j).getEntry()).intValue();
-					if (N.getEntry(i, j).getEntry() instanceof Double)
-						coeff = ((Double)N.getEntry(i, j).getEntry()).intValue();
+				if (N.getSimpleEntry(i, j) != 0){
+					int coeff = (int)N.getSimpleEntry(i, j);
 					
 					Monomial monomial = fluxes.get(j).clone();
 					monomial.setCoefficient(coeff);
@@ -222,20 +212,14 @@ public class ChemicalReactionNetwork extends ReactionNetwork{
 		
 		Random rand = new Random();
 		
-		MyMatrix<Reaction,Complex> ret = new MyMatrix<Reaction,Complex>();
-		for (int i = 0; i < this.Ik.getHeight(); i++){
-			for (int j = 0; j < this.Ik.getWidth(); j++){
-				MyDouble<Reaction,Complex> entry;
-				
+		MyMatrixBuilder<Double,Reaction,Complex> builder = new MyMatrixBuilder<Double,Reaction,Complex>(this.Ik.getFirstDimensionSet().clone(), this.Ik.getSecondDimensionSet().clone(), new MyDouble<Reaction,Complex>(0.0, null, null));
+		for (int i = 0; i < builder.getHeight(); i++){
+			for (int j = 0; j < builder.getWidth(); j++){
 				if (!this.Ik.getEntry(i, j).isZero())
-					entry = new MyDouble<Reaction,Complex>(1000*rand.nextDouble(),this.Ik.getEntry(i, j).getFirstDimension(),this.Ik.getEntry(i, j).getSecondDimension());
-				else
-					entry = new MyDouble<Reaction,Complex>(new Double(0),this.Ik.getEntry(i, j).getFirstDimension(),this.Ik.getEntry(i, j).getSecondDimension());
-
-				ret.add(entry);
+					builder.set(i, j, 1000*rand.nextDouble());
 			}
 		}
 		
-		return ret;
+		return builder.build();
 	}
 }
\ No newline at end of file
@@ -25,10 +25,16 @@ import java.util.*;
 import math.graph.MyNode;
 import math.set.MyMultiset;
 import math.set.MySet;
+import math.set.MySymbol;
+import math.set.MySymbolTable;
 import singular.*;
 import miscellaneous.*;
 
-public class Complex extends MyNode<MyMultiset<Species>>{
+public class Complex extends MyNode<MyMultiset<Species>> implements MySymbol{
+	private MySymbolTable symbol_table;	// symbol table of the network the complex was interned by last, null if not interned yet
+	private int symbol_id = -1;			// id of this complex in the symbol table, -1 if not interned yet
+	private String symbol_key;			// string representation the symbol id belongs to
+	
 	public Complex(){
 		super(new MyMultiset<Species>());
 	}
@@ -125,14 +131,65 @@ public class Complex extends MyNode<MyMultiset<Species>>{
 		return ret;
 	}
 
+	/**
+	 * Interns this complex and its species into the symbol table of a reaction
+	 * network.
+	 * 
+	 * @param symbol_table The symbol table.
+	 */
+	public void intern(MySymbolTable symbol_table){
+		if (this.symbol_table != null && this.symbol_table != symbol_table)
+			throw new IllegalStateException("Complex " + this + " is already interned by another symbol table.");
+		
+		this.getObject().intern(symbol_table);
+		String key = this.toString();
+		this.symbol_id = symbol_table.intern(key);
+		this.symbol_table = symbol_table;
+		this.symbol_key = key;
+	}
+	
+	/**
+	 * Gets the id of this complex in the symbol table it was interned by last.
+	 * Complexes consisting of the same species with the same stoichiometric
+	 * coefficients share the same symbol id. The id is only looked up again if
+	 * the underlying multiset has changed, i.e., if it built a new key.
+	 * 
+	 * @return The symbol id or -1 if the complex was not interned yet.
+	 */
+	public int getSymbolId(){
+		if (this.symbol_table != null && this.toString() != this.symbol_key)
+			this.intern(this.symbol_table);
+		
+		return this.symbol_id;
+	}
+	
+	public MySymbolTable getSymbolTable(){
+		return this.symbol_table;
+	}
+	
+	/**
+	 * Complexes interned by the same symbol table are ordered by their symbol
+	 * ids, see MySymbolTable.compare. Use a MyStringComparator for the
+	 * alphabetical ordering.
+	 */
 	public int compareTo(MyNode<MyMultiset<Species>> complex){
-		return this.toString().compareTo(complex.toString());
+		if (!(complex instanceof Complex))
+			return this.toString().compareTo(complex.toString());
+		
+		return MySymbolTable.compare(this, (Complex)complex);
 	}	
 	
 	public boolean equals(Object o){
-		return this.toString().equals(((Complex)o).toString());
+		if (!(o instanceof Complex))
+			return false;
+		
+		return MySymbolTable.equals(this, (Complex)o);
 	}
 	
+	/**
+	 * The hash code is derived from the string representation, so that it
+	 * agrees with equals for complexes which were not interned.
+	 */
 	public int hashCode(){
 		return this.toString().hashCode();
 	}
@@ -25,13 +25,22 @@ import java.util.*;
 import math.graph.MyEdge;
 import math.set.MyMultiset;
 import math.set.MySet;
+import math.set.MySymbol;
+import math.set.MySymbolTable;
 import miscellaneous.*;
 
-public class Reaction extends MyEdge<MyMultiset<Species>>{
+public class Reaction extends MyEdge<MyMultiset<Species>> implements MySymbol{
 	private String id;
 	private String name;
 	private Reaction inverse;
 	private String notes;
+	private MySymbolTable symbol_table;		// symbol table of the network the reaction was interned by last, null if not interned yet
+	private int symbol_id = -1;				// id of this reaction in the symbol table, -1 if not interned yet
+	private String symbol_key;				// string representation the symbol id belongs to
+	
+	private String key;						// memoized result of toString, null if invalid
+	private String substrate_key;			// string representation of the substrate the key was built from
+	private String product_key;				// string representation of the product the key was built from
 	
 	public Reaction(String id, Complex substrate, Complex product) throws Exception{
 		super(substrate, product);
@@ -89,6 +98,7 @@ public class Reaction extends MyEdge<MyMultiset<Species>>{
 
 	public void setId(String id) throws Exception{
 		this.id = id;
+		this.key = null;	// the identifier changed, so the key has to be rebuilt and the reaction interned again
 		
 		this.checkId();
 	}
@@ -150,22 +160,85 @@ public class Reaction extends MyEdge<MyMultiset<Species>>{
 		return this.name;
 	}
 	
+	/**
+	 * Transforms the reaction to a readable string. The string is memoized
+	 * until the identifier is changed or one of the complexes builds a new
+	 * string representation.
+	 * 
+	 * @return The String object representing the reaction in readable form.
+	 */
 	public String toString(){
-		return this.id + " := " + ((Complex)this.getSource()).toString() + " -> " + ((Complex)this.getSink()).toString();
+		String substrate_key = ((Complex)this.getSource()).toString();
+		String product_key = ((Complex)this.getSink()).toString();
+		if (this.key == null || substrate_key != this.substrate_key || product_key != this.product_key){
+			this.key = this.id + " := " + substrate_key + " -> " + product_key;
+			this.substrate_key = substrate_key;
+			this.product_key = product_key;
+		}
+		
+		return this.key;
 	}
 	
 	public String toLaTeXString() throws Exception{
 		return "R_{" + this.id + "}" + " := " + ((Complex)this.getSource()).getObject().toLaTeXString() + " \\rightarrow " + ((Complex)this.getSink()).getObject().toLaTeXString();
 	}
 	
-	public int compareTo(Reaction reaction){
-		return this.toString().compareTo(((Reaction)reaction).toString());
+	/**
+	 * Interns this reaction into the symbol table of a reaction network.
+	 * 
+	 * @param symbol_table The symbol table.
+	 */
+	public void intern(MySymbolTable symbol_table){
+		if (this.symbol_table != null && this.symbol_table != symbol_table)
+			throw new IllegalStateException("Reaction " + this.id + " is already interned by another symbol table.");
+		
+		String key = this.toString();
+		this.symbol_id = symbol_table.intern(key);
+		this.symbol_table = symbol_table;
+		this.symbol_key = key;
+	}
+	
+	/**
+	 * Gets the id of this reaction in the symbol table it was interned by last.
+	 * Reactions with the same identifier, substrate and product share the same
+	 * symbol id. The id is only looked up again if the reaction built a new key.
+	 * 
+	 * @return The symbol id or -1 if the reaction was not interned yet.
+	 */
+	public int getSymbolId(){
+		if (this.symbol_table != null && this.toString() != this.symbol_key)
+			this.intern(this.symbol_table);
+		
+		return this.symbol_id;
 	}
 	
-	public boolean equals(Reaction o){
-		return this.toString().equals(((Reaction)o).toString());
+	public MySymbolTable getSymbolTable(){
+		return this.symbol_table;
+	}
+	
+	/**
+	 * Reactions interned by the same symbol table are ordered by their symbol
+	 * ids, see MySymbolTable.compare. Use a MyStringComparator for the
+	 * alphabetical ordering.
+	 */
+	public int compareTo(MyEdge<MyMultiset<Species>> reaction){
+		if (!(reaction instanceof Reaction))
+			return this.toString().compareTo(reaction.toString());
+		
+		return MySymbolTable.compare(this, (Reaction)reaction);
+	}
+	
+	public boolean equals(Object o){
+		if (!(o instanceof Reaction))
+			return false;
+		
+		return MySymbolTable.equals(this, (Reaction)o);
 	}
 	
+	/**
+	 * The hash code is derived from the string representation, so that it
+	 * agrees with equals for reactions which were not interned.
+	 */
 	public int hashCode(){
 		return this.toString().hashCode();
 	}
@@ -32,12 +32,21 @@ import math.graph.MyEdge;
 import math.graph.MyGraph;
 import math.graph.MyNode;
 import math.graph.MyStronglyConnectedComponents;
+import math.linalg.MyDenseMatrix;
+import math.linalg.MyMath;
 import math.linalg.MyMatrix;
+import math.linalg.MyMatrixBuilder;
+import math.linalg.MyRankTracker;
 import math.linalg.MySimpleMatrix;
+import math.linalg.MySparseMatrix;
 import math.set.MyEquivalenceClass;
 import math.set.MyMultiset;
 import math.set.MyPartition;
 import math.set.MySet;
+import math.set.MyStringComparator;
+import math.set.MySymbolTable;
+import math.set.MyUnionFind;
+import math.set.MyUniverse;
 import system.parsers.simple.SimpleParser;
 
 /**
@@ -51,14 +60,24 @@ public class ReactionNetwork extends MyGraph<MyMultiset<Species>>{
 	private String name;
 	private MySet<Species> S;							// the set of species
 	private MyPartition<Complex> linkage_classes;			// the set of linkage classes
+	private int[] linkage_class_ids;						// number of the linkage class of each complex, null if it has to be rebuilt
 	private MyPartition<Complex> strong_linkage_classes;	// the set of strong linkage classes
+	private MyStronglyConnectedComponents<MyMultiset<Species>> strong_components;	// components and condensation behind the strong linkage classes, follows changes of the network
 	private MyMatrix<Species, Complex> Y;
 	private MyMatrix<Complex, Reaction> Ia;
-	private MyMatrix<Species, Reaction> N;
+	private MyDenseMatrix<Species, Reaction> N;
 	private MyMatrix<Complex, Complex> A;
 	private MyMatrix<Complex, MyEquivalenceClass<Complex>> L;
 	private MySet<String> compartments;
 	private MySimpleMatrix<Species, Reaction> simple_N;
+	private MySparseMatrix<Species, Reaction> sparse_N;
+	private MySparseMatrix<Species, Complex> sparse_Y;
+	private MySparseMatrix<Complex, Reaction> sparse_Ia;
+	private MySparseMatrix<Complex, MyEquivalenceClass<Complex>> sparse_L;
+	private MySparseMatrix<Reaction, Integer> right_kernel;			// basis of the steady-state flux space
+	private MySparseMatrix<Species, Integer> left_kernel;			// basis of the conservation laws
+	private MyRankTracker<Species, Reaction> rank_tracker;			// rank of N, updated when reactions are added or removed
+	private MySymbolTable symbol_table;								// symbol ids of the species, complexes and reactions of this network
 	
 	// each species can occur in many complexes as well as in many reactions, therefore, multiset counts how often a complex
 	// is used as substrate or product so that removal of a reaction decreases multiplicities of corresponding substrate and
@@ -113,8 +132,10 @@ public class ReactionNetwork extends MyGraph<MyMultiset<Species>>{
 		super();
 		
 		this.S = new MySet<Species>();
+		this.symbol_table = new MySymbolTable();
 		this.linkage_classes = new MyPartition(new MyConnectedComponents(this));
-		this.strong_linkage_classes = new MyPartition(new MyStronglyConnectedComponents(this));
+		this.strong_components = new MyStronglyConnectedComponents<MyMultiset<Species>>(this);
+		this.strong_linkage_classes = new MyPartition(this.strong_components);
 		this.compartments = new MySet<String>();
 		
 		this.species_complex_map = new HashMap<String, MyMultiset<Complex>>();
@@ -182,11 +203,50 @@ public class ReactionNetwork extends MyGraph<MyMultiset<Species>>{
 			this.species_complex_map.put(species.toString(), complexes);
 		}
 		
+		this.invalidate();
+		try {
+			// a new reaction can only unify linkage classes
+			if (this.linkage_classes.size() > 0)
+				this.linkage_classes.union(substrate, product);
+			if (this.rank_tracker != null)
+				this.addToRankTracker(reaction);
+		} catch (Exception e){
+			throw new IllegalStateException("Linkage classes or rank could not be updated for reaction " + reaction.getId() + ".", e);
+		}
+		
 		return true;
 	}
 	
+	/**
+	 * Copies a reaction and interns the copy before it is inserted into the
+	 * sets of reactions and complexes, which are ordered by symbol ids.
+	 */
+	protected MyEdge<MyMultiset<Species>> copy(MyEdge<MyMultiset<Species>> edge){
+		Reaction reaction = (Reaction)edge.clone();
+		this.intern(reaction);
+		
+		return reaction;
+	}
+	
+	/**
+	 * Interns the species, complexes and the reaction itself into the symbol
+	 * table of this network, i.e., assigns their symbol ids in the order the
+	 * reactions are added to the network. From then on comparisons of these
+	 * objects within this network are decided on integers. The complexes
+	 * intern their species.
+	 * 
+	 * @param reaction The reaction to intern.
+	 */
+	private void intern(Reaction reaction){
+		reaction.getSubstrate().intern(this.symbol_table);
+		reaction.getProduct().intern(this.symbol_table);
+		reaction.intern(this.symbol_table);
+	}
+	
 	/**
 	 * Removes reaction from reaction network. (Not heavily tested yet)
+	 * Linkage classes computed before are computed once again, so that
+	 * further reactions can be unified with them.
 	 * 
 	 * @param reaction The reaction to remove.
 	 */
@@ -199,6 +259,39 @@ public class ReactionNetwork extends MyGraph<MyMultiset<Species>>{
 		// remove species complex references
 		this.removeSpeciesComplexReferences(substrate);
 		this.removeSpeciesComplexReferences(product);
+		
+		// a removed reaction can split a linkage class
+		this.invalidate();
+		try {
+			if (this.linkage_classes.size() > 0)
+				this.makeLinkageClasses();
+			if (this.rank_tracker != null)
+				this.rank_tracker.removeColumn(reaction);
+		} catch (Exception e){
+			throw new IllegalStateException("Linkage classes or rank could not be updated for reaction " + reaction.getId() + ".", e);
+		}
+	}
+	
+	/**
+	 * Discards the matrices and the strong linkage classes computed for the
+	 * former set of reactions.
+	 */
+	private void invalidate(){
+		this.Y = null;
+		this.Ia = null;
+		this.N = null;
+		this.A = null;
+		this.L = null;
+		this.simple_N = null;
+		this.sparse_N = null;
+		this.sparse_Y = null;
+		this.sparse_Ia = null;
+		this.sparse_L = null;
+		this.linkage_class_ids = null;
+		this.right_kernel = null;
+		this.left_kernel = null;
+		if (this.strong_linkage_classes.size() > 0)
+			this.strong_linkage_classes = new MyPartition(this.strong_components);
 	}
 	
 	/**
@@ -372,7 +465,11 @@ public class ReactionNetwork extends MyGraph<MyMultiset<Species>>{
 	public String toString(){
 		String ret = "";
 		
-		Iterator<Reaction> iterator = this.getReactions().iterator();
+		// reactions are ordered by their symbol ids, list them alphabetically
+		MySet<Reaction> reactions = new MySet<Reaction>(new MyStringComparator<Reaction>());
+		reactions.addAll(this.getReactions());
+		
+		Iterator<Reaction> iterator = reactions.iterator();
 		while (iterator.hasNext()){
 			Reaction reaction = iterator.next();
 			ret = ret + reaction.toString() + "\n";
@@ -381,88 +478,107 @@ public class ReactionNetwork extends MyGraph<MyMultiset<Species>>{
 		return ret;
 	}
 	
+	/**
+	 * Calculates the strong linkage classes in one pass of Tarjan's algorithm.
+	 */
 	public void makeStrongLinkageClasses() throws Exception{
-		MyPartition<MyNode<MyMultiset<Species>>> partition_of_nodes = new MyPartition(new MyStronglyConnectedComponents(this));
-		Iterator<MyNode<MyMultiset<Species>>> iterator = (Iterator<MyNode<MyMultiset<Species>>>)this.getNodes().iterator();
-		while (iterator.hasNext())
-			partition_of_nodes.addElementToEquivalenceClasses(iterator.next());
-		
-		this.strong_linkage_classes = (MyPartition)partition_of_nodes;
+		this.strong_linkage_classes = (MyPartition)this.strong_components.getPartition();
 	}
 	
 	/**
-	 * Calculates the linkage classes recursively using method depthFirstSearch.
+	 * Calculates the linkage classes by unifying substrate and product
+	 * complex of each reaction in a disjoint-set forest, in one sweep over
+	 * the reactions. The complexes are numbered by their linkage classes on
+	 * the way, see getLinkageClassIds.
 	 */
 	public void makeLinkageClasses() throws Exception{
-		MyPartition<MyNode<MyMultiset<Species>>> partition_of_nodes = new MyPartition(new MyConnectedComponents(this));
-		Iterator<MyNode<MyMultiset<Species>>> iterator = (Iterator<MyNode<MyMultiset<Species>>>)this.getNodes().iterator();
+		MySet<Complex> complex_set = this.getComplexes();
+		MyUnionFind<Complex> union_find = new MyUnionFind<Complex>(complex_set);
+		MyUniverse<Complex> universe = union_find.getUniverse();
+		Iterator<Reaction> iterator = this.getReactions().iterator();
+		while (iterator.hasNext()){
+			Reaction reaction = iterator.next();
+			union_find.union(universe.getIndex(reaction.getSubstrate()), universe.getIndex(reaction.getProduct()));
+		}
+		
+		this.linkage_class_ids = union_find.getSetIds();
+		this.linkage_classes = new MyPartition<Complex>(union_find);
+	}
+	
+	/**
+	 * Gets the number of the linkage class of each complex. The i-th entry
+	 * belongs to the i-th complex of getComplexes(), the linkage classes are
+	 * numbered from 0 in the order of their first complexes. The array must
+	 * not be changed.
+	 * 
+	 * @return The linkage class numbers.
+	 */
+	public int[] getLinkageClassIds() throws Exception{
+		if (this.linkage_class_ids == null)
+			this.makeLinkageClasses();
+		
+		return this.linkage_class_ids;
+	}
+	
+	/**
+	 * Maps the linkage class numbers to the positions of the linkage classes in
+	 * the given set, e.g., the columns of L.
+	 * 
+	 * @param class_set The set of linkage classes.
+	 * @return The position of each linkage class number.
+	 */
+	private int[] getLinkageClassPositions(MySet<MyEquivalenceClass<Complex>> class_set) throws Exception{
+		int[] ids = this.getLinkageClassIds();
+		int[] ret = new int[class_set.size()];
+		
+		int j = 0;
+		Iterator<MyEquivalenceClass<Complex>> iterator = class_set.iterator();
 		while (iterator.hasNext())
-			partition_of_nodes.addElementToEquivalenceClasses(iterator.next());
+			ret[ids[this.getComplexes().getIndex(iterator.next().head())]] = j++;
 		
-		this.linkage_classes = (MyPartition)partition_of_nodes;
+		return ret;
 	}
 	
 	/**
-	 * Creates Y matrix.
+	 * Creates Y matrix, only the non-zero entries are set.
 	 */
 	public void makeYMatrix(){
-		this.Y = new MyMatrix<Species,Complex>();
+		MySet<Species> species_set = this.getSpecies().clone();
+		MySet<Complex> complex_set = this.getComplexes().clone();
+		HashMap<Species,Integer> species_indices = ReactionNetwork.makeIndexMap(species_set);
+		MyMatrixBuilder<Double,Species,Complex> builder = new MyMatrixBuilder<Double,Species,Complex>(species_set, complex_set, new MyDouble<Species,Complex>(new Double(0), null, null));
 		
-//		int c = 0;
-		Iterator<Complex> complex_iterator = this.getComplexes().iterator();
+		int j = 0;
+		Iterator<Complex> complex_iterator = complex_set.iterator();
 		while (complex_iterator.hasNext()){
-			Complex complex = complex_iterator.next();
-			
-//			System.out.println(c + " of " + this.getComplexes().size() + ": " + complex.toString());
-//			c++;
-			
-			Iterator<Species> species_iterator = this.getSpecies().iterator();
-			while (species_iterator.hasNext()){
-				Species species = species_iterator.next();
-				
-				MyEntry<Double,Species,Complex> entry;
-				if (complex.getObject().contains(species))
-					entry = new MyDouble<Species,Complex>(complex.getObject().getNumberOfOccurences(species), species, complex);
-				else
-					entry = new MyDouble<Species,Complex>(new Double(0), species, complex);
-				
-				this.Y.add(entry);
-			}
+			MyMultiset<Species> multiset = complex_iterator.next().getObject();
+			for (int k = 0; k < multiset.numberOfDistinctElements(); k++)
+				builder.set(species_indices.get(multiset.getElement(k)), j, new Double(multiset.getOccurences(k)));
+			j++;
 		}
+		
+		this.Y = builder.build();
 	}
 	
 	/**
-	 * Creates Ia matrix.
+	 * Creates Ia matrix, each column has a -1 for the substrate and a 1 for the product.
 	 */
 	public void makeIaMatrix(){
-		this.Ia = new MyMatrix<Complex,Reaction>();
+		MySet<Complex> complex_set = this.getComplexes().clone();
+		MySet<Reaction> reaction_set = this.getReactions().clone();
+		HashMap<Complex,Integer> complex_indices = ReactionNetwork.makeIndexMap(complex_set);
+		MyMatrixBuilder<Integer,Complex,Reaction> builder = new MyMatrixBuilder<Integer,Complex,Reaction>(complex_set, reaction_set, new MyInteger<Complex,Reaction>(new Integer(0), null, null));
 		
-//		int c = 0;
-		Iterator<Reaction> reaction_iterator = this.getReactions().iterator();
+		int j = 0;
+		Iterator<Reaction> reaction_iterator = reaction_set.iterator();
 		while (reaction_iterator.hasNext()){
 			Reaction reaction = reaction_iterator.next();
-			
-//			System.out.println(c + " of " + this.getReactions().size() + ": " + reaction.toString());
-//			c++;
-			
-			Complex substrate = reaction.getSubstrate();
-			Complex product = reaction.getProduct();
-			
-			Iterator<Complex> complex_iterator = this.getComplexes().iterator();
-			while (complex_iterator.hasNext()){
-				Complex complex = complex_iterator.next();
-				
-				MyInteger<Complex,Reaction> entry;
-				if (complex.equals(substrate))
-					entry = new MyInteger<Complex,Reaction>(new Integer(-1), complex, reaction);
-				else if (complex.equals(product))
-					entry = new MyInteger<Complex,Reaction>(new Integer(1), complex, reaction);
-				else
-					entry = new MyInteger<Complex,Reaction>(new Integer(0), complex, reaction);
-				
-				this.Ia.add(entry);
-			}
+			builder.set(complex_indices.get(reaction.getProduct()), j, new Integer(1));
+			builder.set(complex_indices.get(reaction.getSubstrate()), j, new Integer(-1));
+			j++;
 		}
+		
+		this.Ia = builder.build();
 	}
 
 	/**
@@ -471,7 +587,7 @@ public class ReactionNetwork extends MyGraph<MyMultiset<Species>>{
 	public void makeSimpleNMatrix(){
 		this.simple_N = new MySimpleMatrix<Species,Reaction>(this.getSpecies(),this.getReactions());
 		
-		ArrayList<Species> species_array = this.getSpecies().toArrayList();
+		MySet<Species> species_set = this.getSpecies();
 		ArrayList<Reaction> reaction_array = this.getReactions().toArrayList();
 		for (int j = 0; j < reaction_array.size(); j++){
 			Reaction reaction = reaction_array.get(j);
@@ -481,110 +597,198 @@ public class ReactionNetwork extends MyGraph<MyMultiset<Species>>{
 			
 //			System.out.println(j + " of " + this.getReactions().size() + ": " + reaction.toString());
 
-			for (int i = 0; i < species_array.size(); i++){
-				Species species = species_array.get(i);
-				
-				Double entry;
-				if (difference.contains(species))
-					entry = difference.getNumberOfOccurences(species);
-				else
-					entry = new Double(0);
+			// only the non-zero entries, the matrix is initialized with zeros
+			for (int k = 0; k < difference.numberOfDistinctElements(); k++){
+				int i = species_set.getIndex(difference.getElement(k));
 				
-				this.simple_N.setSimpleEntry(i, j, entry);
+				this.simple_N.setSimpleEntry(i, j, difference.getOccurences(k));
 			}
 		}
 	}
 	
 	/**
-	 * Creates N matrix. Fast version.
+	 * Creates N matrix. Fast version, the values are stored in one contiguous
+	 * array and only the non-zero entries are written.
 	 */
 	public void makeNMatrix(){
-		this.N = new MyMatrix<Species,Reaction>();
+		MySet<Species> species_set = this.getSpecies().clone();
+		MySet<Reaction> reaction_set = this.getReactions().clone();
+		this.N = new MyDenseMatrix<Species,Reaction>(species_set, reaction_set);
 		
-//		int c = 0;
-		Iterator<Reaction> reaction_iterator = this.getReactions().iterator();
+		int j = 0;
+		Iterator<Reaction> reaction_iterator = reaction_set.iterator();
 		while (reaction_iterator.hasNext()){
 			Reaction reaction = reaction_iterator.next();
 			Complex substrate = reaction.getSubstrate();
 			Complex product = reaction.getProduct();
 			MyMultiset<Species> difference = product.getObject().sub(substrate.getObject());
 			
-//			System.out.println(c + " of " + this.getReactions().size() + ": " + reaction.toString());
-//			c++;
-			
-			Iterator<Species> species_iterator = this.getSpecies().iterator();
-			while (species_iterator.hasNext()){
-				Species species = species_iterator.next();
+			// only the non-zero entries, the matrix is initialized with zeros
+			for (int k = 0; k < difference.numberOfDistinctElements(); k++){
+				int i = species_set.getIndex(difference.getElement(k));
 				
-				MyDouble<Species,Reaction> entry;
-				if (difference.contains(species))
-					this.N.add(new MyDouble(difference.getNumberOfOccurences(species), species, reaction));
-				else
-					this.N.add(new MyDouble(new Double(0), species, reaction));
+				this.N.setSimpleEntry(i, j, difference.getOccurences(k));
 			}
+			j++;
 		}
 	}
 	
-	public void makeLMatrix() throws Exception{
-		if (this.linkage_classes.size() == 0)
-			this.makeLinkageClasses();
-		
-		this.L = new MyMatrix<Complex, MyEquivalenceClass<Complex>>();
+	/**
+	 * Creates the sparse N matrix column by column from the substrate and
+	 * product multisets of the reactions, in O(number of non-zeros).
+	 */
+	public void makeSparseNMatrix() throws Exception{
+		MySet<Species> species_set = this.getSpecies().clone();
+		MySet<Reaction> reaction_set = this.getReactions().clone();
+		HashMap<Species,Integer> species_indices = ReactionNetwork.makeIndexMap(species_set);
+		this.sparse_N = new MySparseMatrix<Species,Reaction>(species_set, reaction_set, 4*reaction_set.size());
 		
-		Iterator<MyEquivalenceClass<Complex>> ec_iterator = this.linkage_classes.iterator();
-		while (ec_iterator.hasNext()){
-			MyEquivalenceClass<Complex> ec = ec_iterator.next();
+		Iterator<Reaction> reaction_iterator = reaction_set.iterator();
+		while (reaction_iterator.hasNext()){
+			Reaction reaction = reaction_iterator.next();
+			MyMultiset<Species> difference = reaction.getProduct().getObject().sub(reaction.getSubstrate().getObject());
 			
-			ArrayList<Complex> complex_array = this.getComplexes().toArrayList();
-			for (int i = 0; i < complex_array.size(); i++){
-				Complex complex = complex_array.get(i);
-				
-				MyInteger<Complex,MyEquivalenceClass<Complex>> entry;
-				if (ec.contains(complex))
-					entry = new MyInteger<Complex,MyEquivalenceClass<Complex>>(new Integer(1), complex, (MyEquivalenceClass<Complex>)ec);
-				else
-					entry = new MyInteger<Complex,MyEquivalenceClass<Complex>>(new Integer(0), complex, (MyEquivalenceClass<Complex>)ec);
-
-				this.L.add(entry);
+			int[] indices = new int[difference.numberOfDistinctElements()];
+			double[] values = new double[difference.numberOfDistinctElements()];
+			for (int k = 0; k < difference.numberOfDistinctElements(); k++){
+				indices[k] = species_indices.get(difference.getElement(k));
+				values[k] = difference.getOccurences(k);
 			}
+			this.sparse_N.appendColumn(indices, values, indices.length);
 		}
 	}
-
-	public void makeAMatrix() throws Exception{
-		this.A = new MyMatrix<Complex,Complex>();
-	
-		MyMatrix<Complex,Reaction> Ia = this.getIaMatrix();
-		for (int j = 0; j < Ia.getWidth(); j++){
-			for (int i = 0; i < Ia.getHeight(); i++){
-				for (int k = i + 1; k < Ia.getHeight(); k++){
-					Complex complex1 = Ia.getEntry(i, j).getFirstDimension();
-					Complex complex2 = Ia.getEntry(k, j).getFirstDimension();
-					
-					MyInteger<Complex,Complex> entry;
-					if (Ia.getEntry(i, j).isLess(0) &&	Ia.getEntry(k, j).isGreater(0)){
-						entry = new MyInteger<Complex,Complex>(new Integer(1), complex1, complex2);
-						this.A.add(entry);
-					}
-					else if (Ia.getEntry(i, j).isGreater(0) &&	Ia.getEntry(k, j).isLess(0)){
-						entry = new MyInteger<Complex,Complex>(new Integer(1), complex2, complex1);	
-						this.A.add(entry);
-					}
-				}
+	
+	/**
+	 * Creates the sparse Y matrix column by column from the multisets of the complexes.
+	 */
+	public void makeSparseYMatrix() throws Exception{
+		MySet<Species> species_set = this.getSpecies().clone();
+		MySet<Complex> complex_set = this.getComplexes().clone();
+		HashMap<Species,Integer> species_indices = ReactionNetwork.makeIndexMap(species_set);
+		this.sparse_Y = new MySparseMatrix<Species,Complex>(species_set, complex_set, 2*complex_set.size());
+		
+		Iterator<Complex> complex_iterator = complex_set.iterator();
+		while (complex_iterator.hasNext()){
+			MyMultiset<Species> multiset = complex_iterator.next().getObject();
+			
+			int[] indices = new int[multiset.numberOfDistinctElements()];
+			double[] values = new double[multiset.numberOfDistinctElements()];
+			for (int k = 0; k < multiset.numberOfDistinctElements(); k++){
+				indices[k] = species_indices.get(multiset.getElement(k));
+				values[k] = multiset.getOccurences(k);
 			}
+			this.sparse_Y.appendColumn(indices, values, indices.length);
+		}
+	}
+	
+	/**
+	 * Creates the sparse Ia matrix, each column has a -1 for the substrate and a 1 for the product.
+	 */
+	public void makeSparseIaMatrix() throws Exception{
+		MySet<Complex> complex_set = this.getComplexes().clone();
+		MySet<Reaction> reaction_set = this.getReactions().clone();
+		HashMap<Complex,Integer> complex_indices = ReactionNetwork.makeIndexMap(complex_set);
+		this.sparse_Ia = new MySparseMatrix<Complex,Reaction>(complex_set, reaction_set, 2*reaction_set.size());
+		
+		int[] indices = new int[2];
+		double[] values = new double[]{-1, 1};
+		Iterator<Reaction> reaction_iterator = reaction_set.iterator();
+		while (reaction_iterator.hasNext()){
+			Reaction reaction = reaction_iterator.next();
+			indices[0] = complex_indices.get(reaction.getSubstrate());
+			indices[1] = complex_indices.get(reaction.getProduct());
+			this.sparse_Ia.appendColumn(indices, values, 2);
 		}
+	}
+	
+	/**
+	 * Creates the sparse L matrix, column k has a 1 for each complex of the k-th linkage class.
+	 */
+	public void makeSparseLMatrix() throws Exception{
+		int[] ids = this.getLinkageClassIds();
+		
+		MySet<Complex> complex_set = this.getComplexes().clone();
+		MySet<MyEquivalenceClass<Complex>> class_set = new MySet<MyEquivalenceClass<Complex>>();
+		class_set.addAll(this.linkage_classes);
+		int[] positions = this.getLinkageClassPositions(class_set);
+		this.sparse_L = new MySparseMatrix<Complex,MyEquivalenceClass<Complex>>(complex_set, class_set, complex_set.size());
+		
+		// sort the complexes by the columns of their linkage classes
+		int[] column_pointers = new int[class_set.size() + 1];
+		for (int i = 0; i < ids.length; i++)
+			column_pointers[positions[ids[i]] + 1]++;
+		for (int j = 0; j < class_set.size(); j++)
+			column_pointers[j + 1] += column_pointers[j];
+		
+		int[] indices = new int[ids.length];
+		int[] next = column_pointers.clone();
+		for (int i = 0; i < ids.length; i++)
+			indices[next[positions[ids[i]]]++] = i;
+		
+		double[] values = new double[ids.length];
+		for (int i = 0; i < ids.length; i++)
+			values[i] = 1;
+		
+		int[] column = new int[ids.length];
+		for (int j = 0; j < class_set.size(); j++){
+			int length = column_pointers[j + 1] - column_pointers[j];
+			System.arraycopy(indices, column_pointers[j], column, 0, length);
+			this.sparse_L.appendColumn(column, values, length);
+		}
+	}
+	
+	/**
+	 * Maps each element of a set to its index in the set.
+	 * 
+	 * @param set The set.
+	 * 
+	 * @return The lookup table.
+	 */
+	private static <E> HashMap<E,Integer> makeIndexMap(MySet<E> set){
+		HashMap<E,Integer> ret = new HashMap<E,Integer>();
+		int i = 0;
+		Iterator<E> iterator = set.iterator();
+		while (iterator.hasNext())
+			ret.put(iterator.next(), i++);
+		
+		return ret;
+	}
+	
+	/**
+	 * Creates L matrix, column k has a 1 for each complex of the k-th linkage class.
+	 */
+	public void makeLMatrix() throws Exception{
+		int[] ids = this.getLinkageClassIds();
+		
+		MySet<Complex> complex_set = this.getComplexes().clone();
+		MySet<MyEquivalenceClass<Complex>> class_set = new MySet<MyEquivalenceClass<Complex>>();
+		class_set.addAll(this.linkage_classes);
+		int[] positions = this.getLinkageClassPositions(class_set);
+		MyMatrixBuilder<Integer,Complex,MyEquivalenceClass<Complex>> builder = new MyMatrixBuilder<Integer,Complex,MyEquivalenceClass<Complex>>(complex_set, class_set, new MyInteger<Complex,MyEquivalenceClass<Complex>>(new Integer(0), null, null));
 		
+		for (int i = 0; i < ids.length; i++)
+			builder.set(i, positions[ids[i]], new Integer(1));
+		
+		this.L = builder.build();
+	}
 
-		for (int i = 0; i < Ia.getHeight(); i++){
-			for (int j = 0; j < Ia.getHeight(); j++){
-				Complex complex1 = Ia.getFirstDimension(i);
-				Complex complex2 = Ia.getFirstDimension(j);
-					
-				MyInteger<Complex,Complex> entry = new MyInteger<Complex,Complex>(new Integer(0), complex1, complex2);
-					
-				if (!this.A.contains(entry))
-					this.A.add(entry);
-			}
+	/**
+	 * Creates A matrix, entry (i, j) is 1 if there is a reaction from the i-th
+	 * to the j-th complex.
+	 */
+	public void makeAMatrix() throws Exception{
+		MySet<Complex> complex_set = this.getComplexes().clone();
+		HashMap<Complex,Integer> complex_indices = ReactionNetwork.makeIndexMap(complex_set);
+		MyMatrixBuilder<Integer,Complex,Complex> builder = new MyMatrixBuilder<Integer,Complex,Complex>(complex_set, complex_set, new MyInteger<Complex,Complex>(new Integer(0), null, null));
+		
+		Iterator<Reaction> reaction_iterator = this.getReactions().iterator();
+		while (reaction_iterator.hasNext()){
+			Reaction reaction = reaction_iterator.next();
+			if (!reaction.getSubstrate().equals(reaction.getProduct()))
+				builder.set(complex_indices.get(reaction.getSubstrate()), complex_indices.get(reaction.getProduct()), new Integer(1));
 		}
+		
+		this.A = builder.build();
 	}
 
 	/**
@@ -613,7 +817,7 @@ public class ReactionNetwork extends MyGraph<MyMultiset<Species>>{
 	 * 
 	 * @return The stoichiometric matrix.
 	 */
-	public MyMatrix<Species,Reaction> getNMatrix() throws Exception{
+	public MyDenseMatrix<Species,Reaction> getNMatrix() throws Exception{
 		// faster computation of stoichiometric matrix
 		if (this.N == null)
 			this.makeNMatrix();
@@ -658,6 +862,63 @@ public class ReactionNetwork extends MyGraph<MyMultiset<Species>>{
 		return this.L;
 	}
 	
+	public MySparseMatrix<Species,Reaction> getSparseNMatrix() throws Exception{
+		if (this.sparse_N == null)
+			this.makeSparseNMatrix();
+		
+		return this.sparse_N;
+	}
+	
+	public MySparseMatrix<Species,Complex> getSparseYMatrix() throws Exception{
+		if (this.sparse_Y == null)
+			this.makeSparseYMatrix();
+		
+		return this.sparse_Y;
+	}
+	
+	public MySparseMatrix<Complex,Reaction> getSparseIaMatrix() throws Exception{
+		if (this.sparse_Ia == null)
+			this.makeSparseIaMatrix();
+		
+		return this.sparse_Ia;
+	}
+	
+	public MySparseMatrix<Complex,MyEquivalenceClass<Complex>> getSparseLMatrix() throws Exception{
+		if (this.sparse_L == null)
+			this.makeSparseLMatrix();
+		
+		return this.sparse_L;
+	}
+	
+	/**
+	 * Computes an integer basis of the right kernel of the stoichiometric matrix, i.e., of the
+	 * flux vectors v with N*v = 0 (steady-state flux space). The computation is exact and
+	 * does not need external programs.
+	 * 
+	 * @return The basis vectors as columns.
+	 */
+	public MySparseMatrix<Reaction,Integer> getRightKernel() throws Exception{
+		if (this.right_kernel == null)
+			this.right_kernel = (new MyMath(MyMath.MODULAR)).kernel(this.getSparseNMatrix());
+		
+		return this.right_kernel;
+	}
+	
+	/**
+	 * Computes an integer basis of the left kernel of the stoichiometric matrix, i.e., of the
+	 * vectors w with w*N = 0. Each basis vector is a conservation law, the sums w*x are constant
+	 * on the stoichiometric compatibility classes. The computation is exact and does not need
+	 * external programs.
+	 * 
+	 * @return The basis vectors as columns.
+	 */
+	public MySparseMatrix<Species,Integer> getLeftKernel() throws Exception{
+		if (this.left_kernel == null)
+			this.left_kernel = (new MyMath(MyMath.MODULAR)).kernel(this.getSparseNMatrix().transpose());
+		
+		return this.left_kernel;
+	}
+	
 	public String getOctavePsi(){
 		String ret = "psi = [";
 		
@@ -674,7 +935,44 @@ public class ReactionNetwork extends MyGraph<MyMultiset<Species>>{
 	
 	
 	/**
-	 * Computes the deficiency.
+	 * Computes the rank of the stoichiometric matrix exactly, without external programs.
+	 * The rank is tracked when reactions are added or removed, so it is only computed
+	 * once and then returned in constant time.
+	 * 
+	 * @return The rank of the stoichiometric matrix.
+	 */
+	public int getRank() throws Exception{
+		if (this.rank_tracker == null){
+			this.rank_tracker = new MyRankTracker<Species,Reaction>();
+			Iterator<Reaction> iterator = this.getReactions().iterator();
+			while (iterator.hasNext())
+				this.addToRankTracker(iterator.next());
+		}
+		
+		return this.rank_tracker.getRank();
+	}
+	
+	/**
+	 * Adds the column of a reaction in N to the rank tracker.
+	 * 
+	 * @param reaction The reaction.
+	 */
+	private void addToRankTracker(Reaction reaction) throws Exception{
+		MyMultiset<Species> difference = reaction.getProduct().getObject().sub(reaction.getSubstrate().getObject());
+		
+		ArrayList<Species> rows = new ArrayList<Species>();
+		double[] values = new double[difference.numberOfDistinctElements()];
+		for (int k = 0; k < difference.numberOfDistinctElements(); k++){
+			rows.add(difference.getElement(k));
+			values[k] = difference.getOccurences(k);
+		}
+		this.rank_tracker.addColumn(reaction, rows, values);
+	}
+	
+	/**
+	 * Computes the deficiency. The linkage classes and the rank are maintained
+	 * when reactions are added, after a removal the linkage classes are computed
+	 * once again.
 	 * 
 	 * @return An integer representing the deficiency of the reaction network.
 	 */
@@ -682,7 +980,22 @@ public class ReactionNetwork extends MyGraph<MyMultiset<Species>>{
 		if (this.linkage_classes.size() == 0)
 			this.makeLinkageClasses();
 		
-		return this.getComplexes().size() - this.linkage_classes.size() - this.getNMatrix().getRankUsingOctave("/tmp/");
+		return this.getComplexes().size() - this.linkage_classes.size() - this.getRank();
+	}
+	
+	/**
+	 * Computes the deficiency using octave for the rank of the stoichiometric
+	 * matrix. Octave must be installed for this method to work.
+	 * 
+	 * @param path Path to the directory for writing files, e.g., /tmp/.
+	 * 
+	 * @return An integer representing the deficiency of the reaction network.
+	 */
+	public int getDeficiencyUsingOctave(String path) throws Exception{
+		if (this.linkage_classes.size() == 0)
+			this.makeLinkageClasses();
+		
+		return this.getComplexes().size() - this.linkage_classes.size() - this.getNMatrix().getRankUsingOctave(path);
 	}
 	
 	public boolean hasACR() throws Exception{
@@ -706,6 +1019,10 @@ public class ReactionNetwork extends MyGraph<MyMultiset<Species>>{
 	}
 	
 	public boolean isTerminal(Complex complex) throws Exception{
+		int component = this.strong_components.getComponent(complex);
+		if (component != -1)
+			return this.strong_components.isTerminal(component);
+		
 		return this.isTerminal(this.getStrongLinkageClasses().getEquivalenceClassByElement(complex));	//get strong linkage class to which complex belongs
 	}
 		
@@ -957,11 +1274,16 @@ public class ReactionNetwork extends MyGraph<MyMultiset<Species>>{
 	}
 	
 	/**
-	 * Computes whether this strong linkage class is terminal.
+	 * Computes whether this strong linkage class is terminal. For the strong
+	 * linkage classes of this network the condensation is looked up, other sets
+	 * of complexes are checked edge by edge.
 	 * 
 	 * @return True if this strong linkage class is terminal, otherwise false.
 	 */
 	public boolean isTerminal(MyEquivalenceClass<Complex> strong_linkage_class){
+		if (this.isStrongLinkageClass(strong_linkage_class))
+			return this.strong_components.isTerminal(this.strong_components.getComponent(strong_linkage_class.head()));
+		
 		Iterator<Complex> iterator = strong_linkage_class.iterator();		// get the iterator of all complexes of this strong linkage class
 		while (iterator.hasNext()){											// loop over all complexes of this strong linkage class
 			Complex complex = iterator.next();
@@ -978,6 +1300,28 @@ public class ReactionNetwork extends MyGraph<MyMultiset<Species>>{
 		return true; // if all complexes which can be reached from inside this strong linkage class are elements of this strong linkage class, then this strong linkage class must be terminal
 	}
 	
+	/**
+	 * Checks whether a set of complexes is a strong linkage class of this network.
+	 * 
+	 * @param complexes The set of complexes.
+	 * @return True if the complexes form one component of the condensation, false otherwise.
+	 */
+	private boolean isStrongLinkageClass(MySet<Complex> complexes){
+		if (complexes.isEmpty())
+			return false;
+		
+		int component = this.strong_components.getComponent(complexes.head());
+		if (component == -1 || this.strong_components.getComponentSize(component) != complexes.size())
+			return false;
+		
+		Iterator<Complex> iterator = complexes.iterator();
+		while (iterator.hasNext())
+			if (this.strong_components.getComponent(iterator.next()) != component)
+				return false;
+		
+		return true;
+	}
+	
 	public ReactionNetwork getShortestPathBetweenComplexSets(MySet<Complex> subset1, MySet<Complex> subset2, MySet<Complex> superset, boolean directed) throws Exception{
 		if (!superset.containsAll(subset1) || !superset.containsAll(subset2))
 			return null;
@@ -20,15 +20,22 @@
 
 package crnt;
 
-public class Species implements Comparable<Object>{
+import math.set.MySymbol;
+import math.set.MySymbolTable;
+
+public class Species implements Comparable<Object>, MySymbol{
 	private String id;
 	private String name;
 	private String compartment;
+	private MySymbolTable symbol_table;	// symbol table of the network the species was interned by last, null if not interned yet
+	private int symbol_id;				// id of this species in the symbol table, -1 if not interned yet
 	
 	public Species(String id) throws Exception{
 		this.id = id;
 		this.name = "";
 		this.compartment = "default";
+		this.symbol_table = null;
+		this.symbol_id = -1;
 		
 		this.checkId();
 	}
@@ -37,6 +44,8 @@ public class Species implements Comparable<Object>{
 		this.id = id;
 		this.name = name;
 		this.compartment = "default";
+		this.symbol_table = null;
+		this.symbol_id = -1;
 		
 		this.checkId();
 	}
@@ -45,12 +54,16 @@ public class Species implements Comparable<Object>{
 		this.id = id;
 		this.name = name;
 		this.compartment = compartment;
+		this.symbol_table = null;
+		this.symbol_id = -1;
 		
 		this.checkId();
 	}
 	
 	public void setId(String id) throws Exception{
 		this.id = id;
+		this.symbol_table = null;	// the identifier changed, so the species has to be interned again
+		this.symbol_id = -1;
 		
 		this.checkId();
 	}
@@ -90,16 +103,55 @@ public class Species implements Comparable<Object>{
 		return "\\text{" + this.toString() + "}";
 	}
 	
+	/**
+	 * Interns this species into the symbol table of a reaction network.
+	 * 
+	 * @param symbol_table The symbol table.
+	 */
+	public void intern(MySymbolTable symbol_table){
+		if (this.symbol_table != null && this.symbol_table != symbol_table)
+			throw new IllegalStateException("Species " + this.id + " is already interned by another symbol table.");
+		
+		this.symbol_id = symbol_table.intern(this.id);
+		this.symbol_table = symbol_table;
+	}
+	
+	/**
+	 * Gets the id of this species in the symbol table it was interned by last.
+	 * Species with the same identifier share the same symbol id.
+	 * 
+	 * @return The symbol id or -1 if the species was not interned yet.
+	 */
+	public int getSymbolId(){
+		return this.symbol_id;
+	}
+	
+	public MySymbolTable getSymbolTable(){
+		return this.symbol_table;
+	}
+	
+	/**
+	 * Species interned by the same symbol table are ordered by their symbol
+	 * ids, see MySymbolTable.compare. Use a MyStringComparator for the
+	 * alphabetical ordering.
+	 */
 	public int compareTo(Object o){
-		return this.toString().compareTo(((Species)o).getId());
+		return MySymbolTable.compare(this, (Species)o);
 	}
-		
+	
+	/**
+	 * The hash code is derived from the identifier, so that it agrees with
+	 * equals for species which were not interned.
+	 */
 	public int hashCode(){
-		return this.toString().hashCode();
+		return this.id.hashCode();
 	}
 	
 	public boolean equals(Object o){
-		return this.toString().equals(((Species)o).getId());
+		if (!(o instanceof Species))
+			return false;
+		
+		return MySymbolTable.equals(this, (Species)o);
 	}
 	
 	public Species clone(){
@@ -98,7 +98,38 @@ public class MyEntry<Entry,FirstD,SecondD> implements Comparable<MyEntry<Entry,F
 	}
 	
 	public int compareTo(MyEntry<Entry,FirstD,SecondD> entry){
-		return this.toString().compareTo(entry.toString());
+		if (this.isComparatorToFirstDimension())
+			return MyEntry.compareDimensions(this.first_dimension, entry.getFirstDimension());
+		if (this.isComparatorToSecondDimension())
+			return MyEntry.compareDimensions(this.second_dimension, entry.getSecondDimension());
+		
+		int c = MyEntry.compareDimensions(this.first_dimension, entry.getFirstDimension());
+		if (c != 0)
+			return c;
+		return MyEntry.compareDimensions(this.second_dimension, entry.getSecondDimension());
+	}
+	
+	/**
+	 * Compares two dimension objects. The natural ordering of the objects is used
+	 * if available, so that entries are ordered in the same way as the dimension
+	 * sets of a matrix. Otherwise the string representations are compared.
+	 * 
+	 * @param d1 The first dimension object.
+	 * @param d2 The second dimension object.
+	 * @return -1, 0 or 1.
+	 */
+	public static int compareDimensions(Object d1, Object d2){
+		if (d1 instanceof Comparable && d1.getClass().equals(d2.getClass())){
+			try {
+				// d2 is of the same class as d1, so compareTo accepts it
+				@SuppressWarnings("unchecked")
+				Comparable<Object> comparable = (Comparable<Object>)d1;
+				return comparable.compareTo(d2);
+			} catch (ClassCastException cce){
+			}
+		}
+		
+		return d1.toString().compareTo(d2.toString());
 	}
 	
 	public String toString(){
@@ -27,11 +27,20 @@ import java.util.ArrayList;
  * @author jostie
  * 
  * Class which implements the mathematical object rational number.
+ * 
+ * Numerator and denominator are stored as longs as long as their absolute values
+ * are below 2^62, which holds for nearly all entries of stoichiometric matrices.
+ * Overflows of the long arithmetic are detected and the rational number is then
+ * promoted to BigInteger numerator and denominator.
  *
  */
 public class MyRationalNumber {
-	private BigInteger numerator;	// the numerator of the rational number
-	private BigInteger denominator;	// the denominator of the rational number
+	private static final long LIMIT = 1L << 62;		// absolute values of the long representation are below this limit
+	
+	private long small_numerator;	// the numerator of the rational number if numerator is null
+	private long small_denominator;	// the denominator of the rational number if numerator is null
+	private BigInteger numerator;	// the numerator of the rational number, null if the long representation is used
+	private BigInteger denominator;	// the denominator of the rational number, null if the long representation is used
 	
 	/**
 	 * Main class for testing purposes.
@@ -78,12 +87,18 @@ public class MyRationalNumber {
 	 * @param value The double which is to be formated to a rational number.
 	 */
 	public MyRationalNumber(double value) throws Exception{
+		// integers, e.g., stoichiometric coefficients, need no chain representation
+		if (value == Math.rint(value) && Math.abs(value) < MyRationalNumber.LIMIT){
+			this.set((long)value, 1);
+			return;
+		}
+		
 		BigInteger[] cf = (new MyRationalNumber()).chain(Math.abs(value), -3);
 		
-		this.numerator = (new MyRationalNumber()).numer(cf, cf.length - 1);
+		BigInteger numerator = (new MyRationalNumber()).numer(cf, cf.length - 1);
 		if (value < 0)
-			this.numerator = this.numerator.negate();
-		this.denominator = (new MyRationalNumber()).denom(cf, cf.length - 1);
+			numerator = numerator.negate();
+		this.set(numerator, (new MyRationalNumber()).denom(cf, cf.length - 1));
 	}
 	
 	/**
@@ -92,19 +107,16 @@ public class MyRationalNumber {
 	 * @param value The longeger.
 	 */
 	public MyRationalNumber(BigInteger value){
-		this.numerator = value;
-		this.denominator = BigInteger.ONE;
+		this.set(value, BigInteger.ONE);
 	}
 	
 	public MyRationalNumber(long value){
-		this.numerator = new BigInteger(value + "");
-		this.denominator = BigInteger.ONE;
+		this.set(value, 1);
 	}
 	
 	public MyRationalNumber(String string){
 		String[] cells = string.split("/");
-		this.numerator = new BigInteger(cells[0].replaceAll(" ", ""));
-		this.denominator = new BigInteger(cells[1].replaceAll(" ", ""));
+		this.set(new BigInteger(cells[0].replaceAll(" ", "")), new BigInteger(cells[1].replaceAll(" ", "")));
 	}
 	
 	/**
@@ -114,13 +126,58 @@ public class MyRationalNumber {
 	 * @param denominator The denominator of the rational number.
 	 */
 	public MyRationalNumber(BigInteger numerator, BigInteger denominator){
-		this.numerator = numerator;
-		this.denominator = denominator;
+		this.set(numerator, denominator);
 	}
 	
 	public MyRationalNumber(long numerator, long denominator){
-		this.numerator = new BigInteger(numerator + "");
-		this.denominator = new BigInteger(denominator + "");
+		this.set(numerator, denominator);
+	}
+	
+	/**
+	 * Gets a rational number representing an integer, a new instance which may
+	 * be changed by the caller.
+	 * 
+	 * @param value The integer.
+	 * @return The rational number.
+	 */
+	public static MyRationalNumber valueOf(long value){
+		return new MyRationalNumber(value);
+	}
+	
+	/**
+	 * Sets numerator and denominator, the long representation is used if possible.
+	 */
+	private void set(long numerator, long denominator){
+		if (numerator > -MyRationalNumber.LIMIT && numerator < MyRationalNumber.LIMIT && denominator > -MyRationalNumber.LIMIT && denominator < MyRationalNumber.LIMIT){
+			this.small_numerator = numerator;
+			this.small_denominator = denominator;
+			this.numerator = null;
+			this.denominator = null;
+		} else {
+			this.numerator = BigInteger.valueOf(numerator);
+			this.denominator = BigInteger.valueOf(denominator);
+		}
+	}
+	
+	/**
+	 * Sets numerator and denominator, the long representation is used if possible.
+	 */
+	private void set(BigInteger numerator, BigInteger denominator){
+		if (numerator.bitLength() < 63 && denominator.bitLength() < 63)
+			this.set(numerator.longValue(), denominator.longValue());
+		else {
+			this.numerator = numerator;
+			this.denominator = denominator;
+		}
+	}
+	
+	/**
+	 * Checks if numerator and denominator are stored as longs.
+	 * 
+	 * @return True if the long representation is used.
+	 */
+	private boolean isSmall(){
+		return this.numerator == null;
 	}
 	
 	/**
@@ -133,7 +190,10 @@ public class MyRationalNumber {
 		this.cancel();
 		ratio.cancel();
 		
-		if (this.numerator.equals(ratio.getNumerator()) && this.denominator.equals(ratio.getDenominator()))
+		if (this.isSmall() && ratio.isSmall())
+			return this.small_numerator == ratio.small_numerator && this.small_denominator == ratio.small_denominator;
+		
+		if (this.getNumerator().equals(ratio.getNumerator()) && this.getDenominator().equals(ratio.getDenominator()))
 			return true;
 		
 		return false;
@@ -145,6 +205,9 @@ public class MyRationalNumber {
 	 * @return The numerator of the rational number.
 	 */
 	public BigInteger getNumerator(){
+		if (this.isSmall())
+			return BigInteger.valueOf(this.small_numerator);
+		
 		return this.numerator;
 	}
 	
@@ -154,6 +217,9 @@ public class MyRationalNumber {
 	 * @return The denominator of the rational number.
 	 */
 	public BigInteger getDenominator(){
+		if (this.isSmall())
+			return BigInteger.valueOf(this.small_denominator);
+		
 		return this.denominator;
 	}
 	
@@ -163,18 +229,49 @@ public class MyRationalNumber {
 	 * @return The copy of the rational number.
 	 */
 	public MyRationalNumber clone(){
-		return new MyRationalNumber(new BigInteger(this.getNumerator().toString()), new BigInteger(this.getDenominator().toString()));
+		if (this.isSmall())
+			return new MyRationalNumber(this.small_numerator, this.small_denominator);
+		
+		return new MyRationalNumber(this.numerator, this.denominator);
 	}
 	
 	
+	/**
+	 * Checks if this is zero, exactly and without conversion to double.
+	 * 
+	 * @return True if the numerator is zero.
+	 */
 	public boolean isZero(){
+		if (this.isSmall())
+			return this.small_numerator == 0;
+		
 		return this.numerator.equals(BigInteger.ZERO);
 	}
 	
-	public boolean isOne(){		
+	/**
+	 * Checks if this is one, exactly and without conversion to double.
+	 * 
+	 * @return True if numerator and denominator are equal.
+	 */
+	public boolean isOne(){
+		if (this.isSmall())
+			return this.small_numerator == this.small_denominator;
+		
 		return this.numerator.equals(this.denominator);
 	}
 	
+	/**
+	 * Gets the sign of this, exactly and without conversion to double.
+	 * 
+	 * @return -1, 0 or 1 if this is negative, zero or positive.
+	 */
+	public int signum(){
+		if (this.isSmall())
+			return Long.signum(this.small_numerator)*Long.signum(this.small_denominator);
+		
+		return this.numerator.signum()*this.denominator.signum();
+	}
+	
 	/**
 	 * Adds another rational number to this.
 	 * 
@@ -182,8 +279,30 @@ public class MyRationalNumber {
 	 * @return The sum.
 	 */
 	public MyRationalNumber add(MyRationalNumber summand){
+		if (this.isSmall() && summand.isSmall()){
+			try {
+				// expansion
+				long gcd = MyRationalNumber.gcd_(this.small_denominator, summand.small_denominator);
+				long mul1 = this.small_denominator/gcd;
+				long mul2 = summand.small_denominator/gcd;
+				
+				long numerator = Math.addExact(Math.multiplyExact(this.small_numerator, mul2), Math.multiplyExact(summand.small_numerator, mul1));
+				this.set(numerator, Math.multiplyExact(this.small_denominator, mul2));
+				
+				// canceling
+				this.cancel();
+				
+				return this;
+			} catch (ArithmeticException ae){
+				// overflow, compute with BigIntegers
+			}
+		}
+		
+		BigInteger numerator = this.getNumerator();
+		BigInteger denominator = this.getDenominator();
+		
 		// expansion
-		BigInteger gcd = this.gcd(this.denominator, summand.getDenominator());
+		BigInteger gcd = this.gcd(denominator, summand.getDenominator());
 		
 		//System.out.prlongln(this.toString());
 		//System.out.prlongln(this.denominator);
@@ -191,11 +310,10 @@ public class MyRationalNumber {
 		//System.out.prlongln(gcd);
 		//System.out.prlongln();
 		
-		BigInteger mul1 = this.denominator.divide(gcd);
+		BigInteger mul1 = denominator.divide(gcd);
 		BigInteger mul2 = summand.getDenominator().divide(gcd);
 		
-		this.numerator = this.numerator.multiply(mul2).add(summand.getNumerator().multiply(mul1));
-		this.denominator = this.denominator.multiply(mul2);
+		this.set(numerator.multiply(mul2).add(summand.getNumerator().multiply(mul1)), denominator.multiply(mul2));
 
 		// canceling
 		this.cancel();
@@ -209,7 +327,10 @@ public class MyRationalNumber {
 	 * @return The negation.
 	 */
 	public MyRationalNumber neg(){
-		this.numerator = this.numerator.negate();
+		if (this.isSmall())
+			this.small_numerator = -this.small_numerator;
+		else
+			this.numerator = this.numerator.negate();
 		
 		return this;
 	}
@@ -224,8 +345,18 @@ public class MyRationalNumber {
 		if (this.isZero())
 			return this;
 		
-		this.numerator = this.numerator.multiply(ratio.getNumerator());
-		this.denominator = this.denominator.multiply(ratio.getDenominator());
+		if (this.isSmall() && ratio.isSmall()){
+			try {
+				this.set(Math.multiplyExact(this.small_numerator, ratio.small_numerator), Math.multiplyExact(this.small_denominator, ratio.small_denominator));
+				this.cancel();
+				
+				return this;
+			} catch (ArithmeticException ae){
+				// overflow, compute with BigIntegers
+			}
+		}
+		
+		this.set(this.getNumerator().multiply(ratio.getNumerator()), this.getDenominator().multiply(ratio.getDenominator()));
 		
 		this.cancel();
 		
@@ -254,9 +385,15 @@ public class MyRationalNumber {
 			throw new Exception("inversion of zero not defined");
 		
 		
-		BigInteger svd = this.numerator;
-		this.numerator = this.denominator;
-		this.denominator = svd;
+		if (this.isSmall()){
+			long svd = this.small_numerator;
+			this.small_numerator = this.small_denominator;
+			this.small_denominator = svd;
+		} else {
+			BigInteger svd = this.numerator;
+			this.numerator = this.denominator;
+			this.denominator = svd;
+		}
 		
 		return this;
 	}
@@ -267,17 +404,36 @@ public class MyRationalNumber {
 	 * @return This with smallest numerator and denominator.
 	 */
 	public MyRationalNumber cancel(){
-		if (!this.numerator.equals(BigInteger.ZERO) && !this.denominator.equals(BigInteger.ZERO)){
-			BigInteger gcd = this.gcd(this.numerator, this.denominator);
-			this.numerator = this.numerator.divide(gcd);
-			this.denominator = this.denominator.divide(gcd);
+		if (this.isSmall()){
+			if (this.small_numerator != 0 && this.small_denominator != 0){
+				long gcd = MyRationalNumber.gcd_(this.small_numerator, this.small_denominator);
+				this.small_numerator = this.small_numerator/gcd;
+				this.small_denominator = this.small_denominator/gcd;
+			}
+			
+			if (this.small_numerator < 0 && this.small_denominator < 0){
+				this.small_numerator = -this.small_numerator;
+				this.small_denominator = -this.small_denominator;
+			}
+			
+			return this;
 		}
 		
-		if (this.numerator.signum() == -1 && this.denominator.signum() == -1){
-			this.numerator = this.numerator.negate();
-			this.denominator = this.denominator.negate();
+		BigInteger numerator = this.numerator;
+		BigInteger denominator = this.denominator;
+		if (!numerator.equals(BigInteger.ZERO) && !denominator.equals(BigInteger.ZERO)){
+			BigInteger gcd = this.gcd(numerator, denominator);
+			numerator = numerator.divide(gcd);
+			denominator = denominator.divide(gcd);
 		}
 		
+		if (numerator.signum() == -1 && denominator.signum() == -1){
+			numerator = numerator.negate();
+			denominator = denominator.negate();
+		}
+		
+		this.set(numerator, denominator);
+		
 		return this;
 	}
 	
@@ -287,6 +443,9 @@ public class MyRationalNumber {
 	 * @return This as double.
 	 */
 	public double getRatio(){
+		if (this.isSmall())
+			return (double)this.small_numerator/(double)this.small_denominator;
+		
 		return this.numerator.doubleValue()/this.denominator.doubleValue();
 	}
 	
@@ -294,6 +453,22 @@ public class MyRationalNumber {
 	 * Gets a string representing this.
 	 */
 	public String toString(){
+		if (this.isSmall()){
+			if (this.small_numerator == 0)
+				return "0";
+			
+			if (this.small_numerator == this.small_denominator)
+				return "1";
+			
+			if (this.small_denominator == 1)
+				return this.small_numerator + "";
+			
+			if (this.small_denominator == -1)
+				return -this.small_numerator + "";
+			
+			return this.small_numerator + " / " + this.small_denominator;
+		}
+		
 		if (this.numerator.equals(BigInteger.ZERO))
 			return "0";
 		
@@ -394,6 +569,26 @@ public class MyRationalNumber {
 //		return gcd(b, a % b);
 	}
 	
+	/**
+	 * Computes the non-negative greatest common divisor of two longs
+	 * whose absolute values are below 2^62.
+	 * 
+	 * @param a First long.
+	 * @param b Second long.
+	 * @return The greatest common divisor.
+	 */
+	private static long gcd_(long a, long b){
+		a = Math.abs(a);
+		b = Math.abs(b);
+		while (b != 0){
+			long r = a % b;
+			a = b;
+			b = r;
+		}
+		
+		return a;
+	}
+	
 	public BigInteger gcd(long a_, long b_){
 		BigInteger a = new BigInteger(a_ + "");
 		BigInteger b = new BigInteger(b_ + "");
@@ -0,0 +1,377 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.graph;
+
+import java.util.ArrayList;
+
+import math.set.MyBitSet;
+import math.set.MySet;
+import math.set.MyUniverse;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ * The class MyCompiledGraph.
+ * A read-only snapshot of a MyGraph with int indexed nodes and edges, see
+ * MyGraph.compile(). The nodes are indexed in the order of getNodes(), the edges
+ * in the order of getEdges(). The adjacency is stored in compressed arrays: the
+ * edges going out of node i are at positions getForwardStart(i) to
+ * getForwardEnd(i) - 1 of the forward arrays, sorted by their sinks, the edges
+ * going into node i likewise in the backward arrays, sorted by their sources.
+ * Traversals are scans over these arrays, no strings are built and no sets are
+ * walked. The snapshot does not follow later changes of the graph.
+ */
+public class MyCompiledGraph<E>{
+	private MyUniverse<MyNode<E>> nodes;
+	private ArrayList<MyEdge<E>> edges;
+	private int[] sources;				// index of the source of each edge
+	private int[] sinks;				// index of the sink of each edge
+	
+	private int[] forward_offsets;
+	private int[] forward_targets;		// sinks of the edges going out of a node
+	private int[] forward_edges;
+	
+	private int[] backward_offsets;
+	private int[] backward_targets;		// sources of the edges going into a node
+	private int[] backward_edges;
+	
+	private int[] neighbour_offsets;
+	private int[] neighbours;			// undirected neighbours of a node, ascending and without duplicates
+	
+	/**
+	 * Constructor. Compiles the graph in O(number of nodes + number of edges).
+	 * 
+	 * @param graph The graph.
+	 */
+	public MyCompiledGraph(MyGraph<E> graph){
+		this.nodes = new MyUniverse<MyNode<E>>(graph.getNodes());
+		this.edges = graph.getEdges().toArrayList();
+		
+		int n = this.nodes.size();
+		int m = this.edges.size();
+		this.sources = new int[m];
+		this.sinks = new int[m];
+		for (int e = 0; e < m; e++){
+			this.sources[e] = this.nodes.getIndex(this.edges.get(e).getSource());
+			this.sinks[e] = this.nodes.getIndex(this.edges.get(e).getSink());
+		}
+		
+		// sorting the edges by sink and then by source, each in O(n + m), leaves
+		// the lists ordered by the other end, and by edge index for equal ends
+		int[] by_sink = new int[m];
+		int[] by_sink_offsets = MyCompiledGraph.makeOffsets(this.sinks, n);
+		int[] next = by_sink_offsets.clone();
+		for (int e = 0; e < m; e++)
+			by_sink[next[this.sinks[e]]++] = e;
+		
+		this.forward_offsets = MyCompiledGraph.makeOffsets(this.sources, n);
+		this.forward_targets = new int[m];
+		this.forward_edges = new int[m];
+		next = this.forward_offsets.clone();
+		for (int k = 0; k < m; k++){
+			int e = by_sink[k];
+			int p = next[this.sources[e]]++;
+			this.forward_targets[p] = this.sinks[e];
+			this.forward_edges[p] = e;
+		}
+		
+		this.backward_offsets = by_sink_offsets;
+		this.backward_targets = new int[m];
+		this.backward_edges = new int[m];
+		next = this.backward_offsets.clone();
+		for (int k = 0; k < m; k++){
+			int e = this.forward_edges[k];
+			int p = next[this.sinks[e]]++;
+			this.backward_targets[p] = this.sources[e];
+			this.backward_edges[p] = e;
+		}
+		
+		// merge forward and backward targets of each node
+		this.neighbour_offsets = new int[n + 1];
+		int[] merged = new int[2*m];
+		int length = 0;
+		for (int i = 0; i < n; i++){
+			int f = this.forward_offsets[i];
+			int b = this.backward_offsets[i];
+			while (f < this.forward_offsets[i + 1] || b < this.backward_offsets[i + 1]){
+				int target;
+				if (b == this.backward_offsets[i + 1] || (f < this.forward_offsets[i + 1] && this.forward_targets[f] <= this.backward_targets[b]))
+					target = this.forward_targets[f++];
+				else
+					target = this.backward_targets[b++];
+				
+				if (length == this.neighbour_offsets[i] || merged[length - 1] != target)
+					merged[length++] = target;
+			}
+			this.neighbour_offsets[i + 1] = length;
+		}
+		this.neighbours = new int[length];
+		System.arraycopy(merged, 0, this.neighbours, 0, length);
+	}
+	
+	private static int[] makeOffsets(int[] keys, int n){
+		int[] ret = new int[n + 1];
+		for (int k = 0; k < keys.length; k++)
+			ret[keys[k] + 1]++;
+		for (int i = 0; i < n; i++)
+			ret[i + 1] += ret[i];
+		
+		return ret;
+	}
+	
+	public int getNumberOfNodes(){
+		return this.nodes.size();
+	}
+	
+	public int getNumberOfEdges(){
+		return this.edges.size();
+	}
+	
+	/**
+	 * Gets the nodes as indexed universe, the indices are the node indices of this graph.
+	 * 
+	 * @return The universe of nodes.
+	 */
+	public MyUniverse<MyNode<E>> getNodeUniverse(){
+		return this.nodes;
+	}
+	
+	public MyNode<E> getNode(int i){
+		return this.nodes.getElement(i);
+	}
+	
+	/**
+	 * Gets the index of a node.
+	 * 
+	 * @param node The node.
+	 * @return The index or -1 if the node is not part of the graph.
+	 */
+	public int getNodeIndex(Object node){
+		return this.nodes.getIndex(node);
+	}
+	
+	public MyEdge<E> getEdge(int e){
+		return this.edges.get(e);
+	}
+	
+	public int getSource(int e){
+		return this.sources[e];
+	}
+	
+	public int getSink(int e){
+		return this.sinks[e];
+	}
+	
+	public int getForwardStart(int i){
+		return this.forward_offsets[i];
+	}
+	
+	public int getForwardEnd(int i){
+		return this.forward_offsets[i + 1];
+	}
+	
+	public int getForwardTarget(int k){
+		return this.forward_targets[k];
+	}
+	
+	public int getForwardEdge(int k){
+		return this.forward_edges[k];
+	}
+	
+	public int getBackwardStart(int i){
+		return this.backward_offsets[i];
+	}
+	
+	public int getBackwardEnd(int i){
+		return this.backward_offsets[i + 1];
+	}
+	
+	public int getBackwardTarget(int k){
+		return this.backward_targets[k];
+	}
+	
+	public int getBackwardEdge(int k){
+		return this.backward_edges[k];
+	}
+	
+	public int getNeighbourStart(int i){
+		return this.neighbour_offsets[i];
+	}
+	
+	public int getNeighbourEnd(int i){
+		return this.neighbour_offsets[i + 1];
+	}
+	
+	public int getNeighbour(int k){
+		return this.neighbours[k];
+	}
+	
+	/**
+	 * Computes the nodes reachable from a node, iteratively with an explicit stack.
+	 * 
+	 * @param index The index of the start node.
+	 * @param directed If false, the edges are followed in both directions.
+	 * @return The reachable nodes including the start node.
+	 */
+	public MyBitSet<MyNode<E>> getReachableNodes(int index, boolean directed){
+		int[] offsets = directed ? this.forward_offsets : this.neighbour_offsets;
+		int[] targets = directed ? this.forward_targets : this.neighbours;
+		
+		MyBitSet<MyNode<E>> ret = new MyBitSet<MyNode<E>>(this.nodes);
+		int[] stack = new int[this.nodes.size()];
+		int size = 0;
+		ret.addIndex(index);
+		stack[size++] = index;
+		while (size > 0){
+			int i = stack[--size];
+			for (int k = offsets[i]; k < offsets[i + 1]; k++){
+				if (!ret.containsIndex(targets[k])){
+					ret.addIndex(targets[k]);
+					stack[size++] = targets[k];
+				}
+			}
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Walks recursively along the undirected edges up to a maximal depth, the
+	 * neighbours are visited in ascending order.
+	 * 
+	 * @param index The index of the current node which is to be analyzed.
+	 * @param ret The already touched nodes.
+	 */
+	public void depthFirstSearch(int index, MyBitSet<MyNode<E>> ret, int current_depth, int max_depth){
+		if (current_depth <= max_depth){
+			ret.addIndex(index);
+			
+			// get all untouched neighbours of this node
+			int[] untouched = new int[this.neighbour_offsets[index + 1] - this.neighbour_offsets[index]];
+			int n = 0;
+			for (int k = this.neighbour_offsets[index]; k < this.neighbour_offsets[index + 1]; k++)
+				if (!ret.containsIndex(this.neighbours[k]))
+					untouched[n++] = this.neighbours[k];
+			
+			// walk along the edges of the graph
+			for (int k = 0; k < n; k++)
+				this.depthFirstSearch(untouched[k], ret, current_depth + 1, max_depth);
+		}
+	}
+	
+	/**
+	 * Computes the distances from a node by breadth first search, all edges have
+	 * length one.
+	 * 
+	 * @param index The index of the start node.
+	 * @param directed If false, the edges are followed in both directions.
+	 * @param predecessors If not null, gets the index of the edge by which each node was reached, -1 for the start node and nodes not reached.
+	 * @return The distances, -1 for nodes which cannot be reached.
+	 */
+	public int[] breadthFirstSearch(int index, boolean directed, int[] predecessors){
+		int n = this.nodes.size();
+		int[] ret = new int[n];
+		for (int i = 0; i < n; i++){
+			ret[i] = -1;
+			if (predecessors != null)
+				predecessors[i] = -1;
+		}
+		
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		ret[index] = 0;
+		queue[tail++] = index;
+		while (head < tail){
+			int i = queue[head++];
+			for (int k = this.forward_offsets[i]; k < this.forward_offsets[i + 1]; k++)
+				tail = this.visit(i, this.forward_targets[k], this.forward_edges[k], ret, predecessors, queue, tail);
+			if (!directed)
+				for (int k = this.backward_offsets[i]; k < this.backward_offsets[i + 1]; k++)
+					tail = this.visit(i, this.backward_targets[k], this.backward_edges[k], ret, predecessors, queue, tail);
+		}
+		
+		return ret;
+	}
+	
+	private int visit(int i, int j, int e, int[] distances, int[] predecessors, int[] queue, int tail){
+		if (distances[j] == -1){
+			distances[j] = distances[i] + 1;
+			if (predecessors != null)
+				predecessors[j] = e;
+			queue[tail++] = j;
+		} else if (predecessors != null && predecessors[j] > e && distances[j] == distances[i] + 1 && (this.sources[predecessors[j]] == i || this.sinks[predecessors[j]] == i)){
+			predecessors[j] = e;	// prefer the first of parallel edges
+		}
+		
+		return tail;
+	}
+	
+	/**
+	 * Computes a shortest path between two nodes.
+	 * 
+	 * @param source The source node.
+	 * @param sink The sink node.
+	 * @param directed If false, graph is treated as being an undirected graph.
+	 * @return The set containing the edges between source and sink, null if sink cannot be reached.
+	 * @throws Exception If one of the nodes is not part of the graph.
+	 */
+	public MySet<MyEdge<E>> getShortestPath(MyNode<E> source, MyNode<E> sink, boolean directed) throws Exception{
+		int source_index = this.nodes.getIndex(source);
+		int sink_index = this.nodes.getIndex(sink);
+		if (source_index == -1 || sink_index == -1)
+			throw new Exception("node not in graph: " + (source_index == -1 ? source : sink));
+		
+		int[] predecessors = new int[this.nodes.size()];
+		int[] distances = this.breadthFirstSearch(source_index, directed, predecessors);
+		if (distances[sink_index] == -1)
+			return null;
+		
+		// backtracking
+		MySet<MyEdge<E>> ret = new MySet<MyEdge<E>>();
+		int i = sink_index;
+		while (i != source_index){
+			int e = predecessors[i];
+			ret.add(this.edges.get(e));
+			i = this.sources[e] == i ? this.sinks[e] : this.sources[e];
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Computes the largest distance between two nodes connected by an undirected
+	 * path, by breadth first search from each node.
+	 * 
+	 * @return The diameter, -1 if there are no two connected nodes.
+	 */
+	public int diameter(){
+		int ret = -1;
+		for (int i = 0; i < this.nodes.size(); i++){
+			int[] distances = this.breadthFirstSearch(i, false, null);
+			for (int j = 0; j < distances.length; j++)
+				if (j != i && distances[j] > ret)
+					ret = distances[j];
+		}
+		
+		return ret;
+	}
+}
@@ -19,21 +19,21 @@
 
 package math.graph;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
-
 import math.set.MyEquivalenceRelation;
-import math.set.MyPair;
 import math.set.MySet;
-import system.parsers.simple.SimpleParser;
-import miscellaneous.MyPriorityQueue;
 
+/**
+ * The connected components of a graph, the direction of the edges is ignored.
+ * All nodes are labelled with the number of their component in one sweep over
+ * the compiled graph, in O(number of nodes + number of edges), afterwards two
+ * nodes are compared in constant time. The components are numbered in the order
+ * of their first nodes and are recomputed when the graph was changed.
+ */
 public class MyConnectedComponents implements MyEquivalenceRelation<MyNode>{
 	private MyGraph G;
-	private HashMap<String,MySet<MyNode>> already_computed;	// for each node the corresponding "equivalence class", ...
-	// ... since we do not want to traverse the graph every time two nodes are evaluated if being equal
-	// might be redundant with respect to the final partition
+	private MyCompiledGraph compiled_graph;		// the snapshot the components were computed for
+	private int[] components;					// component of each node of the compiled graph
+	private int number_of_components;
 	
 	/**
 	 * The constructor.
@@ -42,7 +42,7 @@ public class MyConnectedComponents implements MyEquivalenceRelation<MyNode>{
 	 */
 	public MyConnectedComponents(MyGraph G){
 		this.G = G;
-		this.already_computed = new HashMap<String,MySet<MyNode>>();
+		this.compiled_graph = null;
 	}
 	
 	/**
@@ -55,46 +55,114 @@ public class MyConnectedComponents implements MyEquivalenceRelation<MyNode>{
 	 * @throws Exception
 	 */
 	public boolean isEqual(MyNode node1, MyNode node2) throws Exception{
-		// if node1 is not in hash, the equivalence class was not computed yet
-		if (!this.already_computed.containsKey(node1.toString())){
-			MySet<MyNode> cc = makeConnectedComponents(node1);	// make equivalence class
+		int component1 = this.getComponent(node1);
+		if (component1 == -1)
+			return node1.equals(node2);
+		
+		return component1 == this.getComponent(node2);
+	}
+	
+	private void check(){
+		if (this.compiled_graph != this.G.compile())
+			this.makeComponents();
+	}
+	
+	/**
+	 * Labels the nodes by breadth first search along the undirected neighbours.
+	 */
+	private void makeComponents(){
+		MyCompiledGraph compiled_graph = this.G.compile();
+		int n = compiled_graph.getNumberOfNodes();
+		
+		this.components = new int[n];
+		for (int i = 0; i < n; i++)
+			this.components[i] = -1;
+		this.number_of_components = 0;
+		
+		int[] queue = new int[n];
+		for (int s = 0; s < n; s++){
+			if (this.components[s] != -1)
+				continue;
 			
-			// put all elements of equivalence class into hash
-			Iterator<MyNode> iterator = cc.iterator();
-			while (iterator.hasNext())
-				this.already_computed.put(iterator.next().toString(), cc);
+			int head = 0;
+			int tail = 0;
+			this.components[s] = this.number_of_components;
+			queue[tail++] = s;
+			while (head < tail){
+				int i = queue[head++];
+				for (int k = compiled_graph.getNeighbourStart(i); k < compiled_graph.getNeighbourEnd(i); k++){
+					int j = compiled_graph.getNeighbour(k);
+					if (this.components[j] == -1){
+						this.components[j] = this.number_of_components;
+						queue[tail++] = j;
+					}
+				}
+			}
+			this.number_of_components++;
 		}
 		
-		return already_computed.get(node1.toString()).contains(node2);
+		this.compiled_graph = compiled_graph;
+	}
+	
+	/**
+	 * Gets the component of a node.
+	 * 
+	 * @param node The node.
+	 * @return The number of the component or -1 if the node is not part of the graph.
+	 */
+	public int getComponent(MyNode node){
+		this.check();
+		
+		int index = this.compiled_graph.getNodeIndex(node);
+		if (index == -1)
+			return -1;
+		
+		return this.components[index];
 	}
 	
 	/**
-	 * Calculates the connected components recursively using method depthFirstSearch.
+	 * Gets the components of all nodes, indexed like the nodes of the compiled
+	 * graph. The array must not be changed.
+	 * 
+	 * @return The component of each node.
+	 */
+	public int[] getComponents(){
+		this.check();
+		
+		return this.components;
+	}
+	
+	public int getNumberOfComponents(){
+		this.check();
+		
+		return this.number_of_components;
+	}
+	
+	/**
+	 * Calculates the connected component of a node.
 	 */
 	public MySet<MyNode> makeConnectedComponents(MyNode node) throws Exception{
-		MySet<MyNode> ret = new MySet<MyNode>();	// this empty set will later on consist of the linkage class
+		MySet<MyNode> ret = new MySet<MyNode>(this.G.compile().getNodeUniverse());	// this empty set will later on consist of the linkage class
 		this.depthFirstSearch(node, ret);			// find all nodes that can be reached from this node
 
 		return ret;
 	}
 	
 	/**
-	 * Walks recursively along the edges of the graph.
+	 * Collects the nodes which can be reached along the edges of the graph in both directions,
+	 * on the compiled graph.
 	 * 
-	 * @param node The current node which is to be analyzed.
+	 * @param node The node to start from.
 	 * @param ret The already touched nodes.
 	 */
 	public void depthFirstSearch(MyNode node, MySet<MyNode> ret){
-		ret.add(node);
-
-		// get all untouched neighbours of this reaction
-		MySet<MyNode> neighbours = this.G.getNodeNeighboursForwardBackward(node).difference(ret);		
-		while (neighbours.size() > 0){						// as long as there is a neighbour which was not yet touched
-			MyNode head_of_neighbours = neighbours.head();	// get the first neighbour
-			neighbours.remove(head_of_neighbours);			// remove it from the neighbours list
-		
-			// walk along the edges of the graph
-			depthFirstSearch(head_of_neighbours, ret);
+		MyCompiledGraph compiled_graph = this.G.compile();
+		int index = compiled_graph.getNodeIndex(node);
+		if (index == -1){
+			ret.add(node);
+			return;
 		}
+		
+		ret.addAll(compiled_graph.getReachableNodes(index, false).toMySet());
 	}
 }
@@ -24,11 +24,12 @@ import java.util.Iterator;
 
 import crnt.Complex;
 import crnt.Species;
+import math.set.MyBitSet;
 import math.set.MyMultiset;
 import math.set.MyPair;
 import math.set.MyPartition;
 import math.set.MySet;
-import miscellaneous.MyPriorityQueue;
+import math.set.MyUniverse;
 
 public class MyGraph<E>{
 	private MySet<MyEdge<E>> edges;
@@ -40,6 +41,8 @@ public class MyGraph<E>{
 	private HashMap<String, MySet<MyNode<E>>> forward_neighbours;			// lookup table for forward neighbours of node
 	private HashMap<String, MySet<MyNode<E>>> backward_neighbours;			// lookup table for backward neighbours of node
 	
+	private MyCompiledGraph<E> compiled_graph;								// int indexed snapshot for traversals, null if it has to be rebuilt
+	
 	public static void main(String[] args) throws Exception{
 		// Feinberg1995a_example_4.7 as pure graph
 		MyGraph<MyMultiset<String>> G = new MyGraph<MyMultiset<String>>();
@@ -98,7 +101,7 @@ public class MyGraph<E>{
 		System.out.println("partition of nodes: " + partition_of_nodes.toString());
 		System.out.println();
 		
-		partition_of_nodes = new MyPartition(new MyStronglyConnectedComponents(G));
+		partition_of_nodes = new MyPartition(new MyStronglyConnectedComponents<MyMultiset<String>>(G));
 		iterator = (Iterator<MyNode<MyMultiset<String>>>)G.getNodes().iterator();
 		while (iterator.hasNext())
 			partition_of_nodes.addElementToEquivalenceClasses(iterator.next());
@@ -119,16 +122,29 @@ public class MyGraph<E>{
 		this.backward_neighbours = new HashMap<String, MySet<MyNode<E>>>();
 	}
 	
+	/**
+	 * Copies an edge before it is added to this graph. Subclasses can override
+	 * this method to prepare the copy before it is inserted, e.g., to intern it.
+	 * 
+	 * @param edge The edge to add.
+	 * @return The copy which is stored by this graph.
+	 */
+	protected MyEdge<E> copy(MyEdge<E> edge){
+		return edge.clone();
+	}
+	
 	public boolean addEdge(MyEdge<E> edge){
 		if (edge.getSource().equals(edge.getSink()))
 			return false;
 		
-		MyEdge<E> edge_clone = edge.clone();
+		MyEdge<E> edge_clone = this.copy(edge);
 		
 		this.edges.add(edge_clone);				// add the edge
 
 		this.nodes.add(edge_clone.getSource());	// add the source
 		this.nodes.add(edge_clone.getSink());	// add the sink
+		
+		this.compiled_graph = null;
 
 		//###################################################
 		//#    everything with respect to edge's source     #
@@ -194,6 +210,8 @@ public class MyGraph<E>{
 		
 		// remove edge
 		this.edges.remove(edge);
+		
+		this.compiled_graph = null;
 	}
 	
 	private void removeComplexReactionReferences(MyEdge<E> edge){
@@ -490,26 +508,19 @@ public class MyGraph<E>{
 //		return route;
 //	}
 	
+	/**
+	 * Computes the largest distance between two connected nodes, the graph is
+	 * treated as being an undirected graph.
+	 * 
+	 * @return The diameter, -1 if there are no two connected nodes.
+	 */
 	public int diameter() throws Exception{
-		MySet<MyNode<E>> nodes = this.getNodes();
-		
-		int max_d = -1;
-		for (int i = 0; i < nodes.size(); i++){
-			MyNode<E> node_i = nodes.toArrayList().get(i);
-			for (int j = i + 1; j < nodes.size(); j++){
-				MyNode<E> node_j = nodes.toArrayList().get(j);
-				
-				int d = this.dijkstra(node_i, node_j, false).size();
-				if (d > max_d)
-					max_d = d;
-			}
-		}
-		
-		return max_d;
+		return this.compile().diameter();
 	}
 	
 	/**
-	 * Computes shortest path between to nodes.
+	 * Computes shortest path between to nodes. All edges have length one, so
+	 * a breadth first search on the compiled graph is sufficient.
 	 * 
 	 * @param source The source node.
 	 * @param sink The sink node.
@@ -517,86 +528,12 @@ public class MyGraph<E>{
 	 * @return MySet<MyEdge<E>> The set containing the edges between source and sink.
 	 */
 	public MySet<MyEdge<E>> dijkstra(MyNode<E> source, MyNode<E> sink, boolean directed) throws Exception{
-	MySet<MyNode<E>> nodes = this.getNodes();
-	
-	int[] dist = new int[nodes.size()];
-	int[] prev = new int[nodes.size()];
-	
-	dist[nodes.getIndex(source)] = 0;
-	MyPriorityQueue<MyNodeDistance> pq = new MyPriorityQueue<MyNodeDistance>();
-	
-	// fill priority queue
-	for (int i = 0; i < nodes.size(); i++){
-		if (i != nodes.getIndex(source)){
-			dist[i] = Integer.MAX_VALUE;
-			prev[i] = -1;
-		}
-		pq.add(new MyNodeDistance(nodes.toArrayList().get(i), dist[i]));
+		return this.compile().getShortestPath(source, sink, directed);
 	}
 	
-	// traverse graph, collect distances, precursors and update queue
-	while (pq.size() > 0){
-		MyNodeDistance cd = pq.poll();
-		MyNode<E> u = (MyNode<E>)cd.getFirstElement();
-		if (u.equals(sink))
-			break;
-		
-		MySet<MyNode<E>> neighbours = null;
-		if (directed)
-			neighbours = this.getNodeNeighboursForward(u);
-		else
-			neighbours = this.getNodeNeighboursForwardBackward(u);
-		
-		Iterator<MyNode<E>> iterator = neighbours.iterator();
-		while (iterator.hasNext()){
-			MyNode<E> v = iterator.next();
-			int alt = dist[nodes.getIndex(u)] + 1;
-			if (alt < dist[nodes.getIndex(v)]){
-				// save data about old pair
-				MyNodeDistance cd_rm = new MyNodeDistance(v, dist[nodes.getIndex(v)]);
-
-				// update data
-				dist[nodes.getIndex(v)] = alt;
-				prev[nodes.getIndex(v)] = nodes.getIndex(u);
-				
-				// remove old pair and insert updated pair
-				pq.remove(cd_rm);
-				pq.add(new MyNodeDistance(v, alt));
-			}
-		}
-	}
-
-	// backtracking
-	MySet<MyEdge<E>> route = new MySet<MyEdge<E>>();
-	MyNode<E> sink_ = sink;
-	while (!sink_.equals(source)){
-		if (prev[nodes.getIndex(sink_)] < 0)
-			return null;
-		
-		MyNode<E> source_ = nodes.toArrayList().get(prev[nodes.getIndex(sink_)]);
-		
-		MySet<MyEdge<E>> going_out = null;
-		MySet<MyEdge<E>> going_in  = null;
-		if (directed){
-			going_out = this.getEdgesOut(source_);
-			going_in  = this.getEdgesIn(sink_);
-		} else {
-			going_out = this.getEdges(source_);
-			going_in  = this.getEdges(sink_);
-		}
-		
-		MySet<MyEdge<E>> edge = going_in.intersection(going_out);
-		if (edge.size() == 0)
-			throw new Exception("there is something wrong: intersection of edges is empty");
-		
-		sink_ = source_;
-		route.add(edge.head());
-	}
-	return route;
-}
-	
 	/**
-	 * Computes shortest path between to nodes. Alternative version.
+	 * Computes shortest path between to nodes. Alternative version, now the
+	 * same as dijkstra.
 	 * 
 	 * @param source The source node.
 	 * @param sink The sink node.
@@ -604,86 +541,75 @@ public class MyGraph<E>{
 	 * @return MySet<MyEdge<E>> The set containing the edges between source and sink.
 	 */
 	public MySet<MyEdge<E>> dijkstra2(MyNode<E> source, MyNode<E> sink, boolean directed) throws Exception{
-		MySet<MyNode<E>> nodes = this.getNodes();
-		
-		int[] dist = new int[nodes.size()];
-		MyEdge<E>[] prev = new MyEdge[nodes.size()];
-		
-		dist[nodes.getIndex(source)] = 0;
-		MyPriorityQueue<MyNodeDistance> pq = new MyPriorityQueue<MyNodeDistance>();
-		
-		// fill priority queue
-		for (int i = 0; i < nodes.size(); i++){
-			if (i != nodes.getIndex(source)){
-				dist[i] = Integer.MAX_VALUE;
-				prev[i] = null;
-			}
-			pq.add(new MyNodeDistance(nodes.toArrayList().get(i), dist[i]));
-		}
-		
-		// traverse graph, collect distances, precursors and update queue
-		while (pq.size() > 0){
-			MyNodeDistance cd = pq.poll();
-			MyNode<E> u = (MyNode<E>)cd.getFirstElement();
-			if (u.equals(sink))
-				break;
-			
-			MySet<MyEdge<E>> connecting_edges = null;
-			if (directed)
-				connecting_edges = this.getEdgesOut(u);
-			else
-				connecting_edges = this.getEdgesOut(u).union(this.getEdgesIn(u));
-			
-			Iterator<MyEdge<E>> iterator = connecting_edges.iterator();
-			while (iterator.hasNext()){
-				MyEdge<E> edge = iterator.next();
-				MyNode<E> v = edge.getSink();
-				int alt = dist[nodes.getIndex(u)] + 1;
-				if (alt < dist[nodes.getIndex(v)]){
-					// save data about old pair
-					MyNodeDistance cd_rm = new MyNodeDistance(v, dist[nodes.getIndex(v)]);
-
-					// update data
-					dist[nodes.getIndex(v)] = alt;
-					prev[nodes.getIndex(v)] = edge;
-					
-					// remove old pair and insert updated pair
-					pq.remove(cd_rm);
-					pq.add(new MyNodeDistance(v, alt));
-				}
-			}
-		}
-
-		MySet<MyEdge<E>> route = new MySet<MyEdge<E>>();
-		MyNode<E> sink_ = sink;
-		while (!sink_.equals(source)){
-			if (prev[nodes.getIndex(sink_)] == null)
-				return null;
-			
-			MyEdge<E> edge = prev[nodes.getIndex(sink_)];
-			route.add(edge);
-			
-			sink_ = edge.getSource();
-		}
+		return this.compile().getShortestPath(source, sink, directed);
+	}
+	
+	/**
+	 * Gets the nodes of this graph as indexed universe, e.g., to represent
+	 * sets of nodes as MyBitSet objects. The indices follow the order of
+	 * getNodes().
+	 * 
+	 * @return The universe of nodes.
+	 */
+	public MyUniverse<MyNode<E>> getNodeUniverse(){
+		return this.compile().getNodeUniverse();
+	}
+	
+	/**
+	 * Compiles this graph into an int indexed snapshot whose adjacency is
+	 * stored in arrays, see MyCompiledGraph. The snapshot is kept until the
+	 * graph is changed.
+	 * 
+	 * @return The compiled graph.
+	 */
+	public MyCompiledGraph<E> compile(){
+		if (this.compiled_graph == null)
+			this.compiled_graph = new MyCompiledGraph<E>(this);
 		
-		return route;
+		return this.compiled_graph;
 	}
 	
 	public MySet<MyNode<E>> extend(MyNode<E> node, int diameter){
-		MySet<MyNode<E>> ret = new MySet<MyNode<E>>();
+		MyUniverse<MyNode<E>> universe = this.getNodeUniverse();
 		
-		this.depthFirstSearch(node, ret, 0, diameter);
+		int index = universe.getIndex(node);
+		if (index == -1){
+			MySet<MyNode<E>> ret = new MySet<MyNode<E>>();
+			this.depthFirstSearch(node, ret, 0, diameter);
+			
+			return ret;
+		}
 		
-		return ret;
+		MyBitSet<MyNode<E>> ret = new MyBitSet<MyNode<E>>(universe);
+		this.compile().depthFirstSearch(index, ret, 0, diameter);
+		
+		return ret.toMySet();
 	}
 	
 	public boolean isNodeSetsNeighbours(MySet<MyNode<E>> nodes1, MySet<MyNode<E>> nodes2, int diameter){
-		for (int i = 0; i < nodes1.size(); i++){
-			MyNode<E> node = nodes1.toArrayList().get(i);
-			MySet<MyNode<E>> neighbourhood = (MySet<MyNode<E>>)this.extend(node, diameter);
+		MyUniverse<MyNode<E>> universe = this.getNodeUniverse();
+		
+		// nodes2 as bit set, nodes which are not part of this graph can only be reached from themselves
+		MyBitSet<MyNode<E>> nodes2_bits = new MyBitSet<MyNode<E>>(universe);
+		Iterator<MyNode<E>> iterator = nodes2.iterator();
+		while (iterator.hasNext())
+			nodes2_bits.addElement(iterator.next());
+		
+		iterator = nodes1.iterator();
+		while (iterator.hasNext()){
+			MyNode<E> node = iterator.next();
+			
+			int index = universe.getIndex(node);
+			if (index == -1){
+				if (nodes2.contains(node))
+					return true;
+				continue;
+			}
+			
+			MyBitSet<MyNode<E>> neighbourhood = new MyBitSet<MyNode<E>>(universe);
+			this.compile().depthFirstSearch(index, neighbourhood, 0, diameter);
 			
-			MySet<MyNode<E>> intersection = neighbourhood.intersection(nodes2);
-			if (intersection.size() > 0)
+			if (neighbourhood.intersects(nodes2_bits))
 				return true;
 		}
 		
@@ -24,6 +24,9 @@ import java.lang.reflect.Method;
 public class MyNode<E> implements Comparable<MyNode<E>>{
 	private String id;
 	private E e; 
+	
+	private String key;			// memoized result of toString, null if invalid
+	private String object_key;	// string representation of the object the key was built from
 
 	public MyNode(){
 		this.id = null;
@@ -67,14 +70,21 @@ public class MyNode<E> implements Comparable<MyNode<E>>{
 	}
 	
 	public String toString(){
+		// the key is memoized as long as the contained object returns the same string
+		String object_key = this.e == null ? null : this.e.toString();
+		if (this.key != null && object_key == this.object_key)
+			return this.key;
+		this.object_key = object_key;
+		
 		// nodes are returned in brackets "(...)" to distinguish it from the contained object
 		if (this.id != null && this.e == null)
-			return "(" + this.id.toString() + ")";
-		
-		if (this.id == null && this.e != null)
-			return "(" + this.e.toString() + ")";
+			this.key = "(" + this.id.toString() + ")";
+		else if (this.id == null && this.e != null)
+			this.key = "(" + object_key + ")";
+		else
+			this.key = "(" + this.id + " := " + object_key + ")";
 		
-		return "(" + this.id + " := " + this.e.toString() + ")";
+		return this.key;
 	}
 	
 	public int compareTo(MyNode<E> node) {
@@ -17,99 +17,316 @@
  * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
  */
 
+
 package math.graph;
 
-import java.util.HashMap;
-import java.util.Iterator;
 
+import math.set.MyEquivalenceClass;
 import math.set.MyEquivalenceRelation;
+import math.set.MyPartition;
 import math.set.MySet;
+import math.set.MyUniverse;
 
-public class MyStronglyConnectedComponents implements MyEquivalenceRelation<MyNode>{
-	private MyGraph G;											// the graph the equivalence relation is based on
-	private HashMap<String,MySet<MyNode>> already_computed;		// for each node the corresponding "equivalence class",
-																// since we do not want to traverse the graph every time two
-																// nodes are evaluated if being equal might be redundant
-																// with respect to the final partition
-	private MySet<String> pairs_tested;							// which pairs of nodes were already tested
+/**
+ * The strongly connected components of a graph, computed in one pass by
+ * Tarjan's algorithm on the compiled graph in O(number of nodes + number of
+ * edges). The components are numbered in reverse topological order, i.e.,
+ * edges between different components always point to a component with a
+ * smaller number. The condensation, the acyclic graph of the components, is
+ * kept in compressed arrays, a component is terminal if no edge leaves it.
+ * The components are recomputed when the graph was changed.
+ */
+public class MyStronglyConnectedComponents<E> implements MyEquivalenceRelation<MyNode<E>>{
+	private MyGraph<E> G;										// the graph the equivalence relation is based on
+	private MyCompiledGraph<E> compiled_graph;					// the snapshot the components were computed for
+	
+	private int[] components;									// component of each node of the compiled graph
+	private int number_of_components;
+	private int[] component_sizes;
+	
+	// condensation, the successors of component c are at positions condensation_offsets[c] to condensation_offsets[c + 1] - 1
+	private int[] condensation_offsets;
+	private int[] condensation_targets;
 	
 	/**
 	 * The constructor.
 	 * 
 	 * @param reaction_network
 	 */
-	public MyStronglyConnectedComponents(MyGraph G){
+	public MyStronglyConnectedComponents(MyGraph<E> G){
 		this.G = G;
-		this.already_computed = new HashMap<String,MySet<MyNode>>();
-		this.pairs_tested = new MySet<String>();
-	}
-	
-	public boolean isEqual(MyNode node1, MyNode node2) throws Exception{
-		// make key for already tested pairs
-		String pair = node1.toString() + "_" + node2.toString();
-		if (node1.toString().compareTo(node2.toString()) > 0)
-			pair = node2.toString() + "_" + node1.toString();
-		
-		// if pair was not tested yet ...
-		if (!this.pairs_tested.contains(pair)){
-			// get the corresponding strongly connected components
-			MySet<MyNode> pslc1 = this.already_computed.get(node1.toString());
-			MySet<MyNode> pslc2 = this.already_computed.get(node2.toString());
-		
-			// if those are not available yet, the given nodes serve as starting point
-			if (pslc1 == null)
-				pslc1 = (new MySet<MyNode>()).addElement(node1);
-			if (pslc2 == null)
-				pslc2 = (new MySet<MyNode>()).addElement(node2);
-		
-			// which nodes can be reached using only directed edges
-			MySet<MyNode> forward = makeStronglyConnectedComponents(node1);		// forward direction
-			MySet<MyNode> backward = makeStronglyConnectedComponents(node2);	// backward direction
-
-			// if node2 can be reached from node1, and node1 can be reached from node2
-			if (forward.contains(node2) && backward.contains(node1)){
-				// merge strongly connected components
-				MySet<MyNode> ret = pslc1.union(pslc2); 
-				
-				// and put all elements into lookup hash
-				Iterator<MyNode> iterator = ret.iterator();
-				while (iterator.hasNext())
-					this.already_computed.put(iterator.next().toString(), ret);
-			}
+		this.compiled_graph = null;
+	}
+	
+	public boolean isEqual(MyNode<E> node1, MyNode<E> node2) throws Exception{
+		int component1 = this.getComponent(node1);
+		if (component1 == -1)
+			return node1.equals(node2);
+		
+		return component1 == this.getComponent(node2);
+	}
+	
+	private void check(){
+		if (this.compiled_graph != this.G.compile())
+			this.makeComponents();
+	}
+	
+	/**
+	 * Tarjan's algorithm, iteratively with explicit stacks so that long paths
+	 * do not overflow the call stack.
+	 */
+	private void makeComponents(){
+		MyCompiledGraph<E> compiled_graph = this.G.compile();
+		int n = compiled_graph.getNumberOfNodes();
+		
+		int[] index = new int[n];
+		int[] low = new int[n];
+		boolean[] on_stack = new boolean[n];
+		int[] stack = new int[n];			// nodes of the components not completed yet
+		int[] call_stack = new int[n];		// nodes of the current path
+		int[] next_edge = new int[n];		// position of the next outgoing edge of the nodes on the path
+		int stack_size = 0;
+		int call_stack_size = 0;
+		int counter = 0;
+		
+		this.components = new int[n];
+		this.number_of_components = 0;
+		for (int i = 0; i < n; i++)
+			index[i] = -1;
+		
+		for (int s = 0; s < n; s++){
+			if (index[s] != -1)
+				continue;
+			
+			index[s] = low[s] = counter++;
+			stack[stack_size++] = s;
+			on_stack[s] = true;
+			call_stack[call_stack_size] = s;
+			next_edge[call_stack_size++] = compiled_graph.getForwardStart(s);
 			
-			this.pairs_tested.add(pair);	// save the corresponding pair as being already tested
+			while (call_stack_size > 0){
+				int v = call_stack[call_stack_size - 1];
+				if (next_edge[call_stack_size - 1] < compiled_graph.getForwardEnd(v)){
+					int w = compiled_graph.getForwardTarget(next_edge[call_stack_size - 1]++);
+					if (index[w] == -1){
+						index[w] = low[w] = counter++;
+						stack[stack_size++] = w;
+						on_stack[w] = true;
+						call_stack[call_stack_size] = w;
+						next_edge[call_stack_size++] = compiled_graph.getForwardStart(w);
+					} else if (on_stack[w] && index[w] < low[v])
+						low[v] = index[w];
+				} else {
+					call_stack_size--;
+					
+					// v is the root of a component, pop it
+					if (low[v] == index[v]){
+						int w;
+						do {
+							w = stack[--stack_size];
+							on_stack[w] = false;
+							this.components[w] = this.number_of_components;
+						} while (w != v);
+						this.number_of_components++;
+					}
+					
+					if (call_stack_size > 0){
+						int u = call_stack[call_stack_size - 1];
+						if (low[v] < low[u])
+							low[u] = low[v];
+					}
+				}
+			}
+		}
+		
+		this.component_sizes = new int[this.number_of_components];
+		for (int i = 0; i < n; i++)
+			this.component_sizes[this.components[i]]++;
+		
+		this.makeCondensation(compiled_graph);
+		this.compiled_graph = compiled_graph;
+	}
+	
+	/**
+	 * Collects the edges between different components, without duplicates.
+	 */
+	private void makeCondensation(MyCompiledGraph<E> compiled_graph){
+		int n = compiled_graph.getNumberOfNodes();
+		
+		// nodes sorted by component
+		int[] member_offsets = new int[this.number_of_components + 1];
+		for (int c = 0; c < this.number_of_components; c++)
+			member_offsets[c + 1] = member_offsets[c] + this.component_sizes[c];
+		int[] members = new int[n];
+		int[] next = new int[this.number_of_components];
+		System.arraycopy(member_offsets, 0, next, 0, this.number_of_components);
+		for (int i = 0; i < n; i++)
+			members[next[this.components[i]]++] = i;
+		
+		this.condensation_offsets = new int[this.number_of_components + 1];
+		int[] targets = new int[compiled_graph.getNumberOfEdges()];
+		int[] last_source = new int[this.number_of_components];	// component for which a target was added last
+		for (int c = 0; c < this.number_of_components; c++)
+			last_source[c] = -1;
+		
+		int length = 0;
+		for (int c = 0; c < this.number_of_components; c++){
+			for (int p = member_offsets[c]; p < member_offsets[c + 1]; p++){
+				int i = members[p];
+				for (int k = compiled_graph.getForwardStart(i); k < compiled_graph.getForwardEnd(i); k++){
+					int d = this.components[compiled_graph.getForwardTarget(k)];
+					if (d != c && last_source[d] != c){
+						last_source[d] = c;
+						targets[length++] = d;
+					}
+				}
+			}
+			this.condensation_offsets[c + 1] = length;
+		}
+		
+		this.condensation_targets = new int[length];
+		System.arraycopy(targets, 0, this.condensation_targets, 0, length);
+	}
+	
+	/**
+	 * Gets the component of a node.
+	 * 
+	 * @param node The node.
+	 * @return The number of the component or -1 if the node is not part of the graph.
+	 */
+	public int getComponent(MyNode<E> node){
+		this.check();
+		
+		int index = this.compiled_graph.getNodeIndex(node);
+		if (index == -1)
+			return -1;
+		
+		return this.components[index];
+	}
+	
+	/**
+	 * Gets the components of all nodes, indexed like the nodes of the compiled
+	 * graph. The array must not be changed.
+	 * 
+	 * @return The component of each node.
+	 */
+	public int[] getComponents(){
+		this.check();
+		
+		return this.components;
+	}
+	
+	public int getNumberOfComponents(){
+		this.check();
+		
+		return this.number_of_components;
+	}
+	
+	public int getComponentSize(int c){
+		this.check();
+		
+		return this.component_sizes[c];
+	}
+	
+	public int getSuccessorStart(int c){
+		this.check();
+		
+		return this.condensation_offsets[c];
+	}
+	
+	public int getSuccessorEnd(int c){
+		this.check();
+		
+		return this.condensation_offsets[c + 1];
+	}
+	
+	/**
+	 * Gets a successor in the condensation.
+	 * 
+	 * @param k Position between getSuccessorStart(c) and getSuccessorEnd(c) for component c.
+	 * @return The successor component.
+	 */
+	public int getSuccessor(int k){
+		this.check();
+		
+		return this.condensation_targets[k];
+	}
+	
+	/**
+	 * Checks whether no edge leaves a component.
+	 * 
+	 * @param c The component.
+	 * @return True if the component is terminal, false otherwise.
+	 */
+	public boolean isTerminal(int c){
+		this.check();
+		
+		return this.condensation_offsets[c] == this.condensation_offsets[c + 1];
+	}
+	
+	/**
+	 * Makes the partition of the nodes into the strongly connected components.
+	 * 
+	 * @return The partition.
+	 * @throws Exception
+	 */
+	public MyPartition<MyNode<E>> getPartition() throws Exception{
+		this.check();
+		
+		MyUniverse<MyNode<E>> universe = this.compiled_graph.getNodeUniverse();
+		MyEquivalenceClass<MyNode<E>>[] classes = MyStronglyConnectedComponents.newEquivalenceClassArray(this.number_of_components);
+		for (int i = 0; i < this.components.length; i++){
+			int c = this.components[i];
+			if (classes[c] == null)
+				classes[c] = new MyEquivalenceClass<MyNode<E>>(this, universe);
+			classes[c].add(this.compiled_graph.getNode(i));
 		}
 		
-		return this.already_computed.get(node1.toString()).contains(node2);
+		MyPartition<MyNode<E>> ret = new MyPartition<MyNode<E>>(this);
+		for (int c = 0; c < this.number_of_components; c++)
+			ret.addEquivalenceClass(classes[c]);
+		
+		return ret;
+	}
+	
+	/**
+	 * Creates an array of equivalence classes of nodes. A generic array can
+	 * not be created directly, the array is only filled with classes of the
+	 * given type.
+	 * 
+	 * @param length The number of classes.
+	 * @return The array.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <E> MyEquivalenceClass<MyNode<E>>[] newEquivalenceClassArray(int length){
+		return (MyEquivalenceClass<MyNode<E>>[])new MyEquivalenceClass<?>[length];
 	}
 	
 	/**
-	 * Calculates the strongly connected component recursively using method depthFirstSearch.
+	 * Calculates the nodes which can be reached from a node along the directed edges.
 	 */
-	public MySet<MyNode> makeStronglyConnectedComponents(MyNode node) throws Exception{
-		MySet<MyNode> ret = new MySet<MyNode>();	// this empty set will later on consist of the elements of the strongly connected components
+	public MySet<MyNode<E>> makeStronglyConnectedComponents(MyNode<E> node) throws Exception{
+		MySet<MyNode<E>> ret = new MySet<MyNode<E>>(this.G.compile().getNodeUniverse());	// this empty set will later on consist of the reachable nodes
 		this.depthFirstSearch(node, ret);			// find all nodes that can be reached from this node
 		
 		return ret;
 	}
 	
 	/**
-	 * Walks recursively along the directed edges of the graph.
+	 * Collects the nodes which can be reached along the directed edges of the graph,
+	 * on the compiled graph.
 	 * 
-	 * @param node The current node which is to be analyzed.
+	 * @param node The node to start from.
 	 * @param ret The already touched nodes.
 	 */
-	public void depthFirstSearch(MyNode node, MySet<MyNode> ret){
-		ret.add(node);
-		
-		// get all untouched neighbours of this edge
-		MySet<MyNode> neighbours = this.G.getNodeNeighboursForward(node).difference(ret);
-		while (neighbours.size() > 0){						// as long as there is a neighbour which was not yet touched
-			MyNode head_of_neighbours = neighbours.head();	// get the first neighbour
-			neighbours.remove(head_of_neighbours);			// remove it from the neighbours list
-		
-			// walk along the edges of the graph
-			depthFirstSearch(head_of_neighbours, ret);
+	public void depthFirstSearch(MyNode<E> node, MySet<MyNode<E>> ret){
+		MyCompiledGraph<E> compiled_graph = this.G.compile();
+		int index = compiled_graph.getNodeIndex(node);
+		if (index == -1){
+			ret.add(node);
+			return;
 		}
+		
+		ret.addAll(compiled_graph.getReachableNodes(index, true).toMySet());
 	}
 }
@@ -0,0 +1,224 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.linalg;
+
+import java.math.BigInteger;
+
+import math.field.MyRationalNumber;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ * The class MyBareissMath.
+ * Fraction-free Gauss-Jordan elimination after Bareiss on integer matrices. Each
+ * update divides exactly by the previous pivot, so all entries stay integers,
+ * namely minors of the matrix, and no gcd has to be computed. At the end every
+ * pivot equals the last pivot D and the matrix is D times its row reduced
+ * echelon form. Rational matrices are scaled row by row to integer matrices.
+ */
+public class MyBareissMath {
+	private int[] pivots;			// pivot columns of the last elimination
+	private BigInteger pivot;		// the last pivot D of the last elimination
+	private boolean odd_swaps;		// if the last elimination used an odd number of row swaps
+	
+	/**
+	 * Computes the row reduced echelon form scaled by the last pivot D, such that all
+	 * entries are integers. D is positive, the pivot entries are all D.
+	 * 
+	 * @param matrix The matrix whose row reduced echelon form is to be computed.
+	 * @return D times the row reduced echelon form.
+	 */
+	public BigInteger[][] integerRref(MyRationalNumber[][] matrix){
+		BigInteger[][] ret = MyModularMath.toIntegerMatrix(matrix, null);
+		this.eliminate(ret);
+		
+		if (this.pivot.signum() < 0){
+			this.pivot = this.pivot.negate();
+			for (int i = 0; i < this.pivots.length; i++)
+				for (int j = 0; j < ret[i].length; j++)
+					ret[i][j] = ret[i][j].negate();
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Computes the row reduced echelon form.
+	 * 
+	 * @param matrix The matrix whose row reduced echelon form is to be computed.
+	 * @return The row reduced echelon form of matrix.
+	 */
+	public MyRationalNumber[][] rref(MyRationalNumber[][] matrix){
+		BigInteger[][] integer_rref = this.integerRref(matrix);
+		
+		MyRationalNumber[][] ret = new MyRationalNumber[integer_rref.length][integer_rref[0].length];
+		for (int i = 0; i < integer_rref.length; i++)
+			for (int j = 0; j < integer_rref[i].length; j++)
+				ret[i][j] = integer_rref[i][j].signum() == 0 ? MyRationalNumber.valueOf(0) : new MyRationalNumber(integer_rref[i][j], this.pivot).cancel();
+		
+		return ret;
+	}
+	
+	/**
+	 * Computes the rank of a given matrix.
+	 * 
+	 * @param matrix The matrix whose rank is to be computed.
+	 * @return The rank of the given matrix.
+	 */
+	public int rank(MyRationalNumber[][] matrix){
+		this.eliminate(MyModularMath.toIntegerMatrix(matrix, null));
+		
+		return this.pivots.length;
+	}
+	
+	/**
+	 * Computes the determinant of a square matrix.
+	 * 
+	 * @param matrix The square matrix.
+	 * @return The determinant.
+	 * @throws Exception
+	 */
+	public MyRationalNumber determinant(MyRationalNumber[][] matrix) throws Exception{
+		if (matrix.length != matrix[0].length)
+			throw new Exception("not a square matrix: height = " + matrix.length + ", width = " + matrix[0].length);
+		
+		BigInteger[] multiples = new BigInteger[matrix.length];
+		this.eliminate(MyModularMath.toIntegerMatrix(matrix, multiples));
+		if (this.pivots.length < matrix.length)
+			return MyRationalNumber.valueOf(0);
+		
+		// the rows were multiplied by the multiples, so the determinant was too
+		BigInteger denominator = BigInteger.ONE;
+		for (int i = 0; i < multiples.length; i++)
+			denominator = denominator.multiply(multiples[i]);
+		
+		BigInteger numerator = this.odd_swaps ? this.pivot.negate() : this.pivot;
+		
+		return new MyRationalNumber(numerator, denominator).cancel();
+	}
+	
+	/**
+	 * Computes a basis of the kernel consisting of integer vectors. There is one
+	 * vector for each free column, the entries of each vector have gcd 1.
+	 * 
+	 * @param matrix The matrix whose kernel is to be computed.
+	 * @return The basis vectors as columns.
+	 */
+	public BigInteger[][] integerKernel(MyRationalNumber[][] matrix){
+		BigInteger[][] integer_rref = this.integerRref(matrix);
+		int width = integer_rref[0].length;
+		int krank = width - this.pivots.length;
+		
+		if (krank == 0){
+			BigInteger[][] ret = new BigInteger[width][1];
+			for (int j = 0; j < width; j++)
+				ret[j][0] = BigInteger.ZERO;
+			return ret;
+		}
+		
+		boolean[] non_free = new boolean[width];
+		for (int i = 0; i < this.pivots.length; i++)
+			non_free[this.pivots[i]] = true;
+		
+		BigInteger[][] ret = new BigInteger[width][krank];
+		int c = 0;
+		for (int f = 0; f < width; f++){
+			if (non_free[f])
+				continue;
+			
+			// D*x_f plus the entries of column f in the pivot rows vanish, take x_f = D
+			for (int j = 0; j < width; j++)
+				ret[j][c] = BigInteger.ZERO;
+			ret[f][c] = this.pivot;
+			for (int i = 0; i < this.pivots.length; i++)
+				ret[this.pivots[i]][c] = integer_rref[i][f].negate();
+			
+			BigInteger gcd = BigInteger.ZERO;
+			for (int j = 0; j < width; j++)
+				gcd = gcd.gcd(ret[j][c]);
+			if (!gcd.equals(BigInteger.ONE))
+				for (int j = 0; j < width; j++)
+					ret[j][c] = ret[j][c].divide(gcd);
+			
+			c++;
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Performs fraction-free Gauss-Jordan elimination in place. The pivot columns, the last
+	 * pivot and the parity of the row swaps are stored in the corresponding fields.
+	 * 
+	 * @param a The integer matrix.
+	 */
+	private void eliminate(BigInteger[][] a){
+		int n = a.length;
+		int m = a[0].length;
+		
+		int[] pivots = new int[Math.min(n, m)];
+		BigInteger previous = BigInteger.ONE;
+		boolean odd_swaps = false;
+		
+		int i = 0;
+		for (int j = 0; j < m && i < n; j++){
+			int k = i;
+			while (k < n && a[k][j].signum() == 0)
+				k++;
+			if (k == n)
+				continue;
+			
+			if (k != i){
+				BigInteger[] swap = a[i];
+				a[i] = a[k];
+				a[k] = swap;
+				odd_swaps = !odd_swaps;
+			}
+			
+			BigInteger p = a[i][j];
+			for (k = 0; k < n; k++){
+				if (k == i)
+					continue;
+				
+				// a[k][l] := (p*a[k][l] - a[k][j]*a[i][l])/previous, the division is exact
+				BigInteger factor = a[k][j];
+				for (int l = 0; l < m; l++){
+					if (l == j)
+						continue;
+					
+					BigInteger value = a[k][l].multiply(p);
+					if (factor.signum() != 0 && a[i][l].signum() != 0)
+						value = value.subtract(factor.multiply(a[i][l]));
+					a[k][l] = previous.equals(BigInteger.ONE) ? value : value.divide(previous);
+				}
+				a[k][j] = BigInteger.ZERO;
+			}
+			
+			previous = p;
+			pivots[i++] = j;
+		}
+		
+		this.pivots = new int[i];
+		System.arraycopy(pivots, 0, this.pivots, 0, i);
+		this.pivot = previous;
+		this.odd_swaps = odd_swaps;
+	}
+}
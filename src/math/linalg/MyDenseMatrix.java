@@ -0,0 +1,378 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.linalg;
+
+import math.field.MyDouble;
+import math.field.MyEntry;
+import math.set.MySet;
+import system.process.octave.MyOctaveRank;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ * The class MyDenseMatrix.
+ * A labelled matrix storing its values in one contiguous double array. The rows
+ * and columns are labelled by two indexed dimension sets, entry objects are only
+ * created on request. The values are stored row-major, transposed matrices are
+ * column-major views sharing the array of the original matrix.
+ */
+public class MyDenseMatrix<FirstD,SecondD> implements MyLabelledMatrix<FirstD,SecondD>{
+	private MySet<FirstD> first_dimension;
+	private MySet<SecondD> second_dimension;
+	
+	private double[] values;
+	private int height;
+	private int width;
+	private int row_stride;		// distance of two consecutive rows in the value array
+	private int column_stride;	// distance of two consecutive columns in the value array
+	
+	/**
+	 * Constructor. Creates a zero matrix.
+	 * 
+	 * @param first_dimension The row objects.
+	 * @param second_dimension The column objects.
+	 */
+	public MyDenseMatrix(MySet<FirstD> first_dimension, MySet<SecondD> second_dimension){
+		this.first_dimension = first_dimension;
+		this.second_dimension = second_dimension;
+		this.height = first_dimension.size();
+		this.width = second_dimension.size();
+		this.values = new double[this.height*this.width];
+		this.row_stride = this.width;
+		this.column_stride = 1;
+	}
+	
+	MyDenseMatrix(MySet<FirstD> first_dimension, MySet<SecondD> second_dimension, double[] values){
+		this(first_dimension, second_dimension, values, second_dimension.size(), 1);
+	}
+	
+	private MyDenseMatrix(MySet<FirstD> first_dimension, MySet<SecondD> second_dimension, double[] values, int row_stride, int column_stride){
+		this.first_dimension = first_dimension;
+		this.second_dimension = second_dimension;
+		this.height = first_dimension.size();
+		this.width = second_dimension.size();
+		this.values = values;
+		this.row_stride = row_stride;
+		this.column_stride = column_stride;
+	}
+	
+	public void setSimpleEntry(int i, int j, double value){
+		this.values[i*this.row_stride + j*this.column_stride] = value;
+	}
+	
+	public double getSimpleEntry(int i, int j){
+		return this.values[i*this.row_stride + j*this.column_stride];
+	}
+	
+	public MyEntry<?,FirstD,SecondD> getEntry(int i, int j){
+		return new MyDouble<FirstD,SecondD>(this.getSimpleEntry(i, j), this.getFirstDimension(i), this.getSecondDimension(j));
+	}
+	
+	public MySet<FirstD> getFirstDimensionSet(){
+		return this.first_dimension;
+	}
+	
+	public MySet<SecondD> getSecondDimensionSet(){
+		return this.second_dimension;
+	}
+	
+	public FirstD getFirstDimension(int i){
+		return this.first_dimension.getElementByIndex(i);
+	}
+	
+	public SecondD getSecondDimension(int j){
+		return this.second_dimension.getElementByIndex(j);
+	}
+	
+	public int getFirstDimensionIndex(FirstD fd){
+		return this.first_dimension.getIndex(fd);
+	}
+	
+	public int getSecondDimensionIndex(SecondD sd){
+		return this.second_dimension.getIndex(sd);
+	}
+	
+	public int getHeight(){
+		return this.height;
+	}
+	
+	public int getWidth(){
+		return this.width;
+	}
+	
+	/**
+	 * Checks if the values are stored column by column.
+	 * 
+	 * @return True if the matrix is a column-major view.
+	 */
+	public boolean isColumnMajor(){
+		return this.column_stride != 1;
+	}
+	
+	/**
+	 * Gets a row.
+	 * 
+	 * @param i Index of row of interest.
+	 * 
+	 * @return The row.
+	 */
+	public MyVector<FirstD,SecondD> getRow(int i){
+		MyVector<FirstD,SecondD> ret = new MyVector<FirstD,SecondD>();
+		for (int j = 0; j < this.width; j++)
+			ret.add(this.getEntry(i, j).setComparatorToSecondDimension());
+		
+		return ret;
+	}
+	
+	/**
+	 * Gets a row.
+	 * 
+	 * @param firstD The object defining the row of interest.
+	 * 
+	 * @return The row.
+	 */
+	public MyVector<FirstD,SecondD> getRow(FirstD firstD){
+		return this.getRow(this.getFirstDimensionIndex(firstD));
+	}
+	
+	/**
+	 * Gets a column.
+	 * 
+	 * @param j Index of column of interest.
+	 * 
+	 * @return The column.
+	 */
+	public MyVector<FirstD,SecondD> getColumn(int j){
+		MyVector<FirstD,SecondD> ret = new MyVector<FirstD,SecondD>();
+		for (int i = 0; i < this.height; i++)
+			ret.add(this.getEntry(i, j).setComparatorToFirstDimension());
+		
+		return ret;
+	}
+	
+	/**
+	 * Gets a column.
+	 * 
+	 * @param secondD The object defining the column of interest.
+	 * 
+	 * @return The column.
+	 */
+	public MyVector<FirstD,SecondD> getColumn(SecondD secondD){
+		return this.getColumn(this.getSecondDimensionIndex(secondD));
+	}
+	
+	/**
+	 * Gets a view of the rows and columns with the given indices, nothing is copied.
+	 * 
+	 * @param rows Indices of the rows.
+	 * @param columns Indices of the columns.
+	 * 
+	 * @return The view.
+	 */
+	public MyMatrixView<FirstD,SecondD> getView(int[] rows, int[] columns){
+		return new MyMatrixView<FirstD,SecondD>(this, rows, columns);
+	}
+	
+	/**
+	 * Gets a view of the rows and columns with the given labels, e.g., the
+	 * columns of the reactions of a linkage class, nothing is copied.
+	 * 
+	 * @param first_dimension The labels of the rows.
+	 * @param second_dimension The labels of the columns.
+	 * 
+	 * @return The view.
+	 * @throws Exception If a label does not occur in this matrix.
+	 */
+	public MyMatrixView<FirstD,SecondD> getView(MySet<FirstD> first_dimension, MySet<SecondD> second_dimension) throws Exception{
+		return MyMatrixView.select(this, first_dimension, second_dimension);
+	}
+	
+	/**
+	 * Transposes the matrix without copying the values. The returned
+	 * matrix is a view sharing the value array with this matrix.
+	 * 
+	 * @return The transposed matrix.
+	 */
+	public MyDenseMatrix<SecondD,FirstD> transpose(){
+		return new MyDenseMatrix<SecondD,FirstD>(this.second_dimension, this.first_dimension, this.values, this.column_stride, this.row_stride);
+	}
+	
+	/**
+	 * Copies the values into a new row-major matrix.
+	 * 
+	 * @return The row-major copy.
+	 */
+	public MyDenseMatrix<FirstD,SecondD> toRowMajor(){
+		MyDenseMatrix<FirstD,SecondD> ret = new MyDenseMatrix<FirstD,SecondD>(this.first_dimension, this.second_dimension);
+		for (int i = 0; i < this.height; i++)
+			for (int j = 0; j < this.width; j++)
+				ret.values[i*this.width + j] = this.getSimpleEntry(i, j);
+		
+		return ret;
+	}
+	
+	/**
+	 * Gets the values in row-major order, copies them only if this matrix is a view.
+	 * 
+	 * @return The row-major values.
+	 */
+	double[] getRowMajorValues(){
+		if (this.column_stride == 1 && this.row_stride == this.width)
+			return this.values;
+		
+		return this.toRowMajor().values;
+	}
+	
+	/**
+	 * Copies the values into a new column-major matrix, such that
+	 * the values of each column are contiguous.
+	 * 
+	 * @return The column-major copy.
+	 */
+	public MyDenseMatrix<FirstD,SecondD> toColumnMajor(){
+		return this.transpose().toRowMajor().transpose();
+	}
+	
+	/**
+	 * Multiplies two MyDenseMatrix objects.
+	 * 
+	 * @param A Second matrix.
+	 * 
+	 * @return The resulting matrix.
+	 */
+	public <ThirdD> MyDenseMatrix<FirstD,ThirdD> mul(MyDenseMatrix<SecondD,ThirdD> A) throws Exception{
+		if (this.width != A.height)
+			throw new Exception("dimensions do not match: width = " + this.width + ", height = " + A.height);
+		
+		double[] values = new MyMultiplication().mul(this.getRowMajorValues(), A.getRowMajorValues(), this.height, this.width, A.width);
+		
+		return new MyDenseMatrix<FirstD,ThirdD>(this.first_dimension, A.second_dimension, values);
+	}
+	
+	public MyDenseMatrix<FirstD,SecondD> mul(double x){
+		MyDenseMatrix<FirstD,SecondD> ret = new MyDenseMatrix<FirstD,SecondD>(this.first_dimension, this.second_dimension, this.values.clone(), this.row_stride, this.column_stride);
+		for (int k = 0; k < ret.values.length; k++)
+			ret.values[k] = x*ret.values[k];
+		
+		return ret;
+	}
+	
+	/**
+	 * Computes the extreme rays of this MyDenseMatrix object using polco. The matrix
+	 * is compressed before and the rays are expanded afterwards, see MyNetworkCompression.
+	 * 
+	 * @return The extreme rays of this matrix.
+	 * @throws Exception
+	 */
+	public MyMatrix<SecondD,?> getExtremeRays() throws Exception{
+		double[][] rays = (new MyNetworkCompression(this.toDoubleMatrix())).getExtremeRays();
+		
+		MyMatrix<SecondD,String> ret = new MyMatrix<SecondD,String>();
+		for (int j = 0; j < this.width; j++){
+			for (int i = 0; i < rays.length; i++){
+				MyDouble<SecondD,String> entry = new MyDouble<SecondD,String>(rays[i][j], this.getSecondDimension(j), "er" + i);
+				ret.add(entry);
+			}
+		}
+		
+		return ret;
+	}
+	
+	public double[][] toDoubleMatrix() throws Exception{
+		double[][] ret = new double[this.height][this.width];
+		for (int i = 0; i < this.height; i++)
+			for (int j = 0; j < this.width; j++)
+				ret[i][j] = this.getSimpleEntry(i, j);
+		
+		return ret;
+	}
+	
+	/**
+	 * Converts this matrix into a MyMatrix object consisting of entry objects.
+	 * 
+	 * @return The corresponding MyMatrix object.
+	 */
+	public MyMatrix<FirstD,SecondD> toMyMatrix(){
+		MyMatrix<FirstD,SecondD> ret = new MyMatrix<FirstD,SecondD>();
+		for (int i = 0; i < this.height; i++)
+			for (int j = 0; j < this.width; j++)
+				ret.add(this.getEntry(i, j));
+		
+		return ret;
+	}
+	
+	/**
+	 * Creates human readable string.
+	 * 
+	 * @param Human readable string.
+	 */
+	public String toString(){
+		StringBuilder builder = new StringBuilder();
+		for (int j = 0; j < this.width; j++)
+			builder.append(this.getSecondDimension(j)).append(" ");
+		builder.append("\n");
+		
+		for (int i = 0; i < this.height; i++){
+			for (int j = 0; j < this.width; j++)
+				builder.append(this.getSimpleEntry(i, j)).append(" ");
+			builder.append(this.getFirstDimension(i)).append("\n");
+		}
+		
+		return builder.toString();
+	}
+	
+	public String toOctaveString() throws Exception{
+		if (this.height == 0 || this.width == 0)
+			throw new Exception("No entries in matrix.");
+		
+		StringBuffer buffer = new StringBuffer("A = [\n");
+		
+		for (int i = 0; i < this.height; i++){
+			for (int j = 0; j < this.width; j++)
+				buffer = buffer.append(this.getSimpleEntry(i, j)).append(",");
+					
+			buffer.setLength(buffer.length() - 1);
+			buffer = buffer.append(";\n");
+		}
+	
+		return buffer.append("]").toString();
+	}
+	
+	/**
+	 * Computes the rank using octave. Octave
+	 * must be installed for this method to work.
+	 * 
+	 * @param path Path to the directory for writing files, e.g., /tmp/.
+	 * 
+	 * @return The rank of the given matrix.
+	 * @throws Exception
+	 */
+	public int getRankUsingOctave(String path) throws Exception{
+		MyOctaveRank rank = new MyOctaveRank();
+		rank.setProgramName("octave");
+		rank.setProgramPath("");
+		rank.setInputPath(path);
+		rank.setOutputPath(rank.getInputPath());
+		rank.makeInputFile(this.toOctaveString());
+		rank.run();
+		return rank.parseOutputFile();
+	}
+}
@@ -0,0 +1,63 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.linalg;
+
+import math.field.MyEntry;
+import math.set.MySet;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ * The interface MyLabelledMatrix.
+ * A matrix whose rows are labelled by the elements of a first dimension set and
+ * whose columns are labelled by the elements of a second dimension set. The i-th
+ * row belongs to the i-th element of the first dimension set, the j-th column to
+ * the j-th element of the second dimension set.
+ */
+public interface MyLabelledMatrix<FirstD,SecondD> {
+	public MySet<FirstD> getFirstDimensionSet();
+	
+	public MySet<SecondD> getSecondDimensionSet();
+	
+	public FirstD getFirstDimension(int i);
+	
+	public SecondD getSecondDimension(int j);
+	
+	public int getFirstDimensionIndex(FirstD fd);
+	
+	public int getSecondDimensionIndex(SecondD sd);
+	
+	public int getHeight();
+	
+	public int getWidth();
+	
+	/**
+	 * Gets the entry in row i and column j together with its dimension objects.
+	 * 
+	 * @param i Index of the row.
+	 * @param j Index of the column.
+	 * 
+	 * @return The entry.
+	 */
+	public MyEntry<?,FirstD,SecondD> getEntry(int i, int j);
+	
+	public double[][] toDoubleMatrix() throws Exception;
+}
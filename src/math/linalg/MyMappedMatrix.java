@@ -0,0 +1,339 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.linalg;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+import math.field.MyDouble;
+import math.field.MyEntry;
+import math.set.MySet;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ * The class MyMappedMatrix.
+ * A labelled matrix read from a binary file by mapping the file into memory, see
+ * system.parsers.binary.BinaryMatrixWriter. Nothing is parsed when the file is
+ * opened, the arrays are read directly from the mapped file and the labels are
+ * decoded on request. Pages are loaded by the operating system when they are
+ * touched and are shared between processes mapping the same file.
+ * 
+ * The file consists of a header of HEADER_SIZE bytes (the ints MAGIC, VERSION,
+ * height, width, number of non-zeros and the byte offsets of the row label
+ * table, the column label table, the row pointers, the column indices and the
+ * values), the two label tables and the matrix in compressed row storage (CSR).
+ * A label table of n labels consists of n + 1 int offsets, relative to the end
+ * of the offsets, followed by the UTF-8 encoded labels. All numbers are little
+ * endian, the values are aligned to 8 bytes.
+ */
+public class MyMappedMatrix implements MyLabelledMatrix<String,String>{
+	public static final int MAGIC = 0x4d4e5243;		// "CRNM" in little endian
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 40;
+	
+	private ByteBuffer buffer;
+	
+	private int height;
+	private int width;
+	private int number_of_non_zeros;
+	
+	private IntBuffer row_label_offsets;
+	private int row_label_data;					// position of the first byte of the row labels
+	private IntBuffer column_label_offsets;
+	private int column_label_data;
+	
+	// compressed row storage, the non-zeros of row i are at positions row_pointers[i] to row_pointers[i + 1] - 1
+	private IntBuffer row_pointers;
+	private IntBuffer column_indices;
+	private DoubleBuffer values;
+	
+	private String[] first_dimension_labels;	// decoded on request
+	private String[] second_dimension_labels;
+	private MySet<String> first_dimension;		// made on request
+	private MySet<String> second_dimension;
+	private HashMap<String,Integer> first_dimension_indices;
+	private HashMap<String,Integer> second_dimension_indices;
+	
+	public MyMappedMatrix(String file_name) throws Exception{
+		this(new File(file_name));
+	}
+	
+	/**
+	 * Constructor. Maps the file read-only, the mapping stays valid after the
+	 * file is closed.
+	 * 
+	 * @param file The file written by BinaryMatrixWriter.
+	 * @throws Exception
+	 */
+	public MyMappedMatrix(File file) throws Exception{
+		RandomAccessFile random_access_file = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = random_access_file.getChannel();
+			if (channel.size() < MyMappedMatrix.HEADER_SIZE || channel.size() > Integer.MAX_VALUE)
+				throw new Exception("not a binary matrix file: " + file);
+			
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			random_access_file.close();
+		}
+		this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+		
+		if (this.buffer.getInt(0) != MyMappedMatrix.MAGIC)
+			throw new Exception("not a binary matrix file: " + file);
+		if (this.buffer.getInt(4) != MyMappedMatrix.VERSION)
+			throw new Exception("unsupported version " + this.buffer.getInt(4) + " of binary matrix file: " + file);
+		
+		this.height = this.buffer.getInt(8);
+		this.width = this.buffer.getInt(12);
+		this.number_of_non_zeros = this.buffer.getInt(16);
+		
+		this.row_label_offsets = this.getIntBuffer(this.buffer.getInt(20), this.height + 1);
+		this.row_label_data = this.buffer.getInt(20) + 4*(this.height + 1);
+		this.column_label_offsets = this.getIntBuffer(this.buffer.getInt(24), this.width + 1);
+		this.column_label_data = this.buffer.getInt(24) + 4*(this.width + 1);
+		this.row_pointers = this.getIntBuffer(this.buffer.getInt(28), this.height + 1);
+		this.column_indices = this.getIntBuffer(this.buffer.getInt(32), this.number_of_non_zeros);
+		
+		ByteBuffer values = this.getSlice(this.buffer.getInt(36), 8*this.number_of_non_zeros);
+		this.values = values.asDoubleBuffer();
+		
+		if (this.row_pointers.get(this.height) != this.number_of_non_zeros)
+			throw new Exception("corrupt binary matrix file: " + file);
+	}
+	
+	private ByteBuffer getSlice(int position, int length) throws Exception{
+		if (position < MyMappedMatrix.HEADER_SIZE || length < 0 || position > this.buffer.capacity() - length)
+			throw new Exception("corrupt binary matrix file, section out of range: " + position);
+		
+		ByteBuffer ret = this.buffer.duplicate();
+		ret.position(position);
+		ret.limit(position + length);
+		
+		return ret.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	private IntBuffer getIntBuffer(int position, int length) throws Exception{
+		return this.getSlice(position, 4*length).asIntBuffer();
+	}
+	
+	private static String decode(ByteBuffer buffer, int position, int length){
+		byte[] bytes = new byte[length];
+		ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(position);
+		duplicate.get(bytes);
+		
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	public String getFirstDimension(int i){
+		if (this.first_dimension_labels == null)
+			this.first_dimension_labels = new String[this.height];
+		if (this.first_dimension_labels[i] == null){
+			int start = this.row_label_offsets.get(i);
+			this.first_dimension_labels[i] = MyMappedMatrix.decode(this.buffer, this.row_label_data + start, this.row_label_offsets.get(i + 1) - start);
+		}
+		
+		return this.first_dimension_labels[i];
+	}
+	
+	public String getSecondDimension(int j){
+		if (this.second_dimension_labels == null)
+			this.second_dimension_labels = new String[this.width];
+		if (this.second_dimension_labels[j] == null){
+			int start = this.column_label_offsets.get(j);
+			this.second_dimension_labels[j] = MyMappedMatrix.decode(this.buffer, this.column_label_data + start, this.column_label_offsets.get(j + 1) - start);
+		}
+		
+		return this.second_dimension_labels[j];
+	}
+	
+	public MySet<String> getFirstDimensionSet(){
+		if (this.first_dimension == null){
+			this.first_dimension_indices = new HashMap<String,Integer>();
+			for (int i = 0; i < this.height; i++)
+				this.first_dimension_indices.put(this.getFirstDimension(i), i);
+			this.first_dimension = new MySet<String>(new MyMatrixView.PositionComparator<String>(this.first_dimension_indices));
+			this.first_dimension.addAll(this.first_dimension_indices.keySet());
+		}
+		
+		return this.first_dimension;
+	}
+	
+	public MySet<String> getSecondDimensionSet(){
+		if (this.second_dimension == null){
+			this.second_dimension_indices = new HashMap<String,Integer>();
+			for (int j = 0; j < this.width; j++)
+				this.second_dimension_indices.put(this.getSecondDimension(j), j);
+			this.second_dimension = new MySet<String>(new MyMatrixView.PositionComparator<String>(this.second_dimension_indices));
+			this.second_dimension.addAll(this.second_dimension_indices.keySet());
+		}
+		
+		return this.second_dimension;
+	}
+	
+	public int getFirstDimensionIndex(String fd){
+		this.getFirstDimensionSet();
+		Integer ret = this.first_dimension_indices.get(fd);
+		
+		return ret == null ? -1 : ret;
+	}
+	
+	public int getSecondDimensionIndex(String sd){
+		this.getSecondDimensionSet();
+		Integer ret = this.second_dimension_indices.get(sd);
+		
+		return ret == null ? -1 : ret;
+	}
+	
+	public int getHeight(){
+		return this.height;
+	}
+	
+	public int getWidth(){
+		return this.width;
+	}
+	
+	public int getNumberOfNonZeros(){
+		return this.number_of_non_zeros;
+	}
+	
+	public int getRowStart(int i){
+		return this.row_pointers.get(i);
+	}
+	
+	public int getRowEnd(int i){
+		return this.row_pointers.get(i + 1);
+	}
+	
+	/**
+	 * Gets the column index of the k-th non-zero, the non-zeros are stored row by row.
+	 * 
+	 * @param k Position of the non-zero, between getRowStart(i) and getRowEnd(i) for row i.
+	 * 
+	 * @return The column index.
+	 */
+	public int getColumnIndex(int k){
+		return this.column_indices.get(k);
+	}
+	
+	public double getValue(int k){
+		return this.values.get(k);
+	}
+	
+	/**
+	 * Gets the value in row i and column j by binary search in row i.
+	 * 
+	 * @param i Index of the row.
+	 * @param j Index of the column.
+	 * 
+	 * @return The value.
+	 */
+	public double getSimpleEntry(int i, int j){
+		int low = this.row_pointers.get(i);
+		int high = this.row_pointers.get(i + 1) - 1;
+		while (low <= high){
+			int middle = (low + high) >>> 1;
+			int column = this.column_indices.get(middle);
+			if (column < j)
+				low = middle + 1;
+			else if (column > j)
+				high = middle - 1;
+			else
+				return this.values.get(middle);
+		}
+		
+		return 0;
+	}
+	
+	public MyEntry<?,String,String> getEntry(int i, int j){
+		return new MyDouble<String,String>(this.getSimpleEntry(i, j), this.getFirstDimension(i), this.getSecondDimension(j));
+	}
+	
+	public double[][] toDoubleMatrix() throws Exception{
+		double[][] ret = new double[this.height][this.width];
+		for (int i = 0; i < this.height; i++)
+			for (int k = this.row_pointers.get(i); k < this.row_pointers.get(i + 1); k++)
+				ret[i][this.column_indices.get(k)] = this.values.get(k);
+		
+		return ret;
+	}
+	
+	/**
+	 * Converts this matrix into a sparse matrix labelled with the given sets, e.g.,
+	 * the species and reactions of the network the matrix was written for. The
+	 * string representations of the elements must equal the labels in the file.
+	 * 
+	 * @param first_dimension The row objects.
+	 * @param second_dimension The column objects.
+	 * 
+	 * @return The sparse matrix.
+	 * @throws Exception If the sets do not match the labels.
+	 */
+	public <FirstD,SecondD> MySparseMatrix<FirstD,SecondD> toSparseMatrix(MySet<FirstD> first_dimension, MySet<SecondD> second_dimension) throws Exception{
+		if (first_dimension.size() != this.height || second_dimension.size() != this.width)
+			throw new Exception("dimensions do not match: " + first_dimension.size() + "x" + second_dimension.size() + " instead of " + this.height + "x" + this.width);
+		for (int i = 0; i < this.height; i++)
+			if (!first_dimension.getElementByIndex(i).toString().equals(this.getFirstDimension(i)))
+				throw new Exception("row " + i + " is labelled " + this.getFirstDimension(i) + " instead of " + first_dimension.getElementByIndex(i));
+		for (int j = 0; j < this.width; j++)
+			if (!second_dimension.getElementByIndex(j).toString().equals(this.getSecondDimension(j)))
+				throw new Exception("column " + j + " is labelled " + this.getSecondDimension(j) + " instead of " + second_dimension.getElementByIndex(j));
+		
+		// count the non-zeros per column and sort them into columns, in O(number of non-zeros + width)
+		int[] column_pointers = new int[this.width + 1];
+		for (int k = 0; k < this.number_of_non_zeros; k++)
+			column_pointers[this.column_indices.get(k) + 1]++;
+		for (int j = 0; j < this.width; j++)
+			column_pointers[j + 1] += column_pointers[j];
+		
+		int[] row_indices = new int[this.number_of_non_zeros];
+		double[] column_values = new double[this.number_of_non_zeros];
+		int[] next = new int[this.width];
+		System.arraycopy(column_pointers, 0, next, 0, this.width);
+		for (int i = 0; i < this.height; i++){
+			for (int k = this.row_pointers.get(i); k < this.row_pointers.get(i + 1); k++){
+				int p = next[this.column_indices.get(k)]++;
+				row_indices[p] = i;
+				column_values[p] = this.values.get(k);
+			}
+		}
+		
+		MySparseMatrix<FirstD,SecondD> ret = new MySparseMatrix<FirstD,SecondD>(first_dimension, second_dimension, this.number_of_non_zeros);
+		int[] indices = new int[this.height];
+		double[] column = new double[this.height];
+		for (int j = 0; j < this.width; j++){
+			int length = column_pointers[j + 1] - column_pointers[j];
+			System.arraycopy(row_indices, column_pointers[j], indices, 0, length);
+			System.arraycopy(column_values, column_pointers[j], column, 0, length);
+			ret.appendColumn(indices, column, length);
+		}
+		
+		return ret;
+	}
+}
@@ -20,8 +20,12 @@
 package math.linalg;
 
 import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import math.field.MyRationalNumber;
+import math.set.MySet;
 
 /**
  * Class which implements some helpful mathematical tools. 
@@ -36,6 +40,58 @@ import math.field.MyRationalNumber;
  * 
  */
 public class MyMath {
+	public static final int RATIONAL = 0;	// Gauss-Jordan elimination over the rationals
+	public static final int MODULAR = 1;	// elimination modulo primes with rational reconstruction
+	public static final int BAREISS = 2;	// fraction-free elimination on integer matrices
+	
+	public static final int PARALLEL_THRESHOLD = 1 << 14;	// default number of entry updates per pivot from which rows are updated in parallel
+	
+	private static final double MAX_EXACT_INTEGER = 9007199254740992.0;	// 2^53, larger doubles are not necessarily exact integers
+	
+	private int mode;	// the elimination mode used by rref, rank and kernel
+	private int parallel_threshold = MyMath.PARALLEL_THRESHOLD;
+	
+	/**
+	 * Constructor. Uses Gauss-Jordan elimination over the rationals.
+	 */
+	public MyMath(){
+		this.mode = MyMath.RATIONAL;
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param mode The elimination mode, i.e., MyMath.RATIONAL, MyMath.MODULAR or MyMath.BAREISS.
+	 */
+	public MyMath(int mode) throws Exception{
+		this.setMode(mode);
+	}
+	
+	public void setMode(int mode) throws Exception{
+		if (mode != MyMath.RATIONAL && mode != MyMath.MODULAR && mode != MyMath.BAREISS)
+			throw new Exception("unknown elimination mode: " + mode);
+		
+		this.mode = mode;
+	}
+	
+	public int getMode(){
+		return this.mode;
+	}
+	
+	/**
+	 * Sets the number of entry updates per pivot from which the rows are updated in parallel
+	 * during rational Gauss-Jordan elimination. Smaller eliminations stay serial, 
+	 * Integer.MAX_VALUE switches the parallel updates off. The results do not depend on it.
+	 * 
+	 * @param parallel_threshold The threshold.
+	 */
+	public void setParallelThreshold(int parallel_threshold){
+		this.parallel_threshold = parallel_threshold;
+	}
+	
+	public int getParallelThreshold(){
+		return this.parallel_threshold;
+	}
 	
 	/**
 	 * Main method for testing purposes.
@@ -136,7 +192,7 @@ public class MyMath {
 		for(int l = j + 1; l < m; l++)
 			matrix[i][l] = matrix[i][l].clone().div(matrix[i][j]);
 
-		matrix[i][j] = new MyRationalNumber(1);
+		matrix[i][j] = MyRationalNumber.valueOf(1);
 	}
 	
 	/**
@@ -148,16 +204,70 @@ public class MyMath {
 	private void eliminate(MyRationalNumber[][] matrix, int i, int j){
 		int n = matrix.length;
 		int m = matrix[0].length;
+		
+		// the rows are updated independently, so they can be split among several threads
+		if ((long)(n - 1)*(m - j) >= this.parallel_threshold && n > 1){
+			int rows_per_task = Math.max(1, n/(4*ForkJoinPool.getCommonPoolParallelism()));
+			ForkJoinPool.commonPool().invoke(new EliminationTask(matrix, i, j, 0, n, rows_per_task));
+		} else
+			MyMath.eliminate(matrix, i, j, 0, n);
+	}
+	
+	/**
+	 * Substracts an appropriate multiple of row i from the rows from to to - 1, except row i.
+	 * 
+	 * @param matrix The matrix from whose rows is to be substracted. 
+	 * @param i The row which is substracted from the other rows.
+	 * @param j Starting index in row.
+	 * @param from First row to update.
+	 * @param to Row after the last row to update.
+	 */
+	private static void eliminate(MyRationalNumber[][] matrix, int i, int j, int from, int to){
+		int m = matrix[0].length;
 
-		for(int k = 0; k < n; k++){
-			if(k != i && matrix[k][j].getRatio() != 0){
+		for(int k = from; k < to; k++){
+			if(k != i && !matrix[k][j].isZero()){
 				for(int l = j + 1; l < m; l++)
 					matrix[k][l] = matrix[k][l].clone().add(matrix[k][j].clone().mul(matrix[i][l]).neg());
-				matrix[k][j] = new MyRationalNumber(0);
+				matrix[k][j] = MyRationalNumber.valueOf(0);
 			}
 		}
 	}
 
+	/**
+	 * Task updating a range of rows during the elimination of one pivot column.
+	 * Ranges larger than rows_per_task are split into two halves.
+	 */
+	private static class EliminationTask extends RecursiveAction{
+		private static final long serialVersionUID = 1L;
+		
+		private MyRationalNumber[][] matrix;
+		private int i;
+		private int j;
+		private int from;
+		private int to;
+		private int rows_per_task;
+		
+		public EliminationTask(MyRationalNumber[][] matrix, int i, int j, int from, int to, int rows_per_task){
+			this.matrix = matrix;
+			this.i = i;
+			this.j = j;
+			this.from = from;
+			this.to = to;
+			this.rows_per_task = rows_per_task;
+		}
+		
+		protected void compute(){
+			if (this.to - this.from <= this.rows_per_task){
+				MyMath.eliminate(this.matrix, this.i, this.j, this.from, this.to);
+				return;
+			}
+			
+			int middle = (this.from + this.to) >>> 1;
+			RecursiveAction.invokeAll(new EliminationTask(this.matrix, this.i, this.j, this.from, middle, this.rows_per_task), new EliminationTask(this.matrix, this.i, this.j, middle, this.to, this.rows_per_task));
+		}
+	}
+	
 	/**
 	 * Checks if a column is a pivot column.
 	 * 
@@ -169,9 +279,9 @@ public class MyMath {
 		int c = 0;
 		int one = -1;
 		for (int i = 0; i < matrix.length; i++){
-			if (matrix[i][j].getRatio() != 0.0 && matrix[i][j].getRatio() != 1.0)
+			if (!matrix[i][j].isZero() && !matrix[i][j].isOne())
 				return false;
-			else if (matrix[i][j].getRatio() == 1.0){
+			else if (matrix[i][j].isOne()){
 				one = i;
 				c++;
 			}
@@ -188,7 +298,7 @@ public class MyMath {
 			return false;
 		
 		for (int k = j - 1; k >= 0; k--)
-			if (matrix[one][k].getRatio() != 0.0)
+			if (!matrix[one][k].isZero())
 				return false;
 		
 		return true;
@@ -201,6 +311,11 @@ public class MyMath {
 	 * @return The row reduced echelon form of matrix. 
 	 */
 	public MyRationalNumber[][] rref(MyRationalNumber[][] matrix_) throws Exception{
+		if (this.mode == MyMath.MODULAR)
+			return (new MyModularMath()).rref(matrix_);
+		if (this.mode == MyMath.BAREISS)
+			return (new MyBareissMath()).rref(matrix_);
+		
 		MyRationalNumber[][] matrix = this.copy(matrix_);
 		
 		int n = matrix.length;
@@ -211,7 +326,7 @@ public class MyMath {
 		while(i < n && j < m){
 			//look for a non-zero entry in col j at or below row i
 			int k = i;
-			while(k < n && matrix[k][j].getRatio() == 0)
+			while(k < n && matrix[k][j].isZero())
 				k++;
 
 			// if such an entry is found at row k
@@ -225,7 +340,7 @@ public class MyMath {
 				}
 
 				// if ret[i][j] is not 1, then divide row i by ret[i][j]
-				if(matrix[i][j].getRatio() != 1){
+				if(!matrix[i][j].isOne()){
 					this.divide(matrix, i, j);
 					//System.out.println("divide:\n" + MyRationalNumber.toString(matrix));
 				}
@@ -277,6 +392,11 @@ public class MyMath {
 	 * @return The rank of the given matrix.
 	 */
 	public int rank(MyRationalNumber[][] matrix) throws Exception{
+		if (this.mode == MyMath.MODULAR)
+			return (new MyModularMath()).rank(matrix);
+		if (this.mode == MyMath.BAREISS)
+			return (new MyBareissMath()).rank(matrix);
+		
 		MyRationalNumber[][] rref = this.rref(matrix);
 		
 		return this.rank_(rref);
@@ -288,12 +408,180 @@ public class MyMath {
 	 * @param matrix The matrix whose rank is to be computed.
 	 * @return The rank of the given matrix.
 	 */
-	public int rank(double[][] matrix) throws Exception{		
+	public int rank(double[][] matrix) throws Exception{
+		if (this.mode == MyMath.MODULAR)
+			return (new MyModularMath()).rank(MyRationalNumber.toMyRationalNumberMatrix(matrix));
+		if (this.mode == MyMath.BAREISS)
+			return (new MyBareissMath()).rank(MyRationalNumber.toMyRationalNumberMatrix(matrix));
+		
 		MyRationalNumber[][] rref = this.rref(matrix);
 		
 		return this.rank_(rref);
 	}
 	
+	/**
+	 * Computes the rank of a given sparse matrix exactly. Integer matrices, e.g., stoichiometric
+	 * matrices, are reduced row by row against an echelon basis of sparse integer rows, where each
+	 * row is divided by the gcd of its entries. Matrices with non-integer entries and integer
+	 * eliminations exceeding the range of long are handled by rational Gauss-Jordan elimination.
+	 * 
+	 * @param matrix The matrix whose rank is to be computed.
+	 * @return The rank of the given matrix.
+	 */
+	public int rank(MySparseMatrix<?,?> matrix) throws Exception{
+		if (matrix.getHeight() == 0 || matrix.getWidth() == 0)
+			return 0;
+		
+		double[] values = matrix.getRowValues();
+		for (int k = 0; k < matrix.getNumberOfNonZeros(); k++)
+			if (values[k] != Math.rint(values[k]) || Math.abs(values[k]) > MyMath.MAX_EXACT_INTEGER)
+				return this.rank(matrix.toDoubleMatrix());
+		
+		try {
+			return this.integerRank(matrix);
+		} catch (ArithmeticException ae){
+			// the entries are integers, so they are converted exactly
+			return this.rank(MyMath.toMyRationalNumberMatrix(matrix));
+		}
+	}
+	
+	/**
+	 * Converts a sparse matrix row by row, only the non-zero entries are converted from doubles.
+	 * 
+	 * @param matrix The sparse matrix, neither height nor width is 0.
+	 * @return The dense rational matrix.
+	 */
+	private static MyRationalNumber[][] toMyRationalNumberMatrix(MySparseMatrix<?,?> matrix) throws Exception{
+		int[] column_indices = matrix.getColumnIndices();
+		double[] values = matrix.getRowValues();
+		
+		MyRationalNumber[][] ret = new MyRationalNumber[matrix.getHeight()][matrix.getWidth()];
+		for (int i = 0; i < ret.length; i++){
+			for (int k = matrix.getRowStart(i); k < matrix.getRowEnd(i); k++)
+				ret[i][column_indices[k]] = new MyRationalNumber(values[k]);
+			for (int j = 0; j < ret[i].length; j++)
+				if (ret[i][j] == null)
+					ret[i][j] = MyRationalNumber.valueOf(0);
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Computes the rank of a sparse integer matrix. Each row is reduced by the basis rows whose leading
+	 * column matches its current leading column, until it is zero or becomes a new basis row.
+	 * 
+	 * @param matrix The integer matrix whose rank is to be computed.
+	 * @return The rank of the given matrix.
+	 * @throws ArithmeticException If an intermediate value does not fit into a long.
+	 */
+	private int integerRank(MySparseMatrix<?,?> matrix){
+		int width = matrix.getWidth();
+		int[] column_indices = matrix.getColumnIndices();
+		double[] values = matrix.getRowValues();
+		
+		int[][] basis_columns = new int[width][];	// basis row with leading column j, null if there is none
+		long[][] basis_values = new long[width][];
+		
+		int[] columns = new int[width];
+		long[] row = new long[width];
+		int[] buffer_columns = new int[width];
+		long[] buffer_row = new long[width];
+		
+		int ret = 0;
+		for (int i = 0; i < matrix.getHeight(); i++){
+			int length = 0;
+			for (int k = matrix.getRowStart(i); k < matrix.getRowEnd(i); k++){
+				columns[length] = column_indices[k];
+				row[length++] = (long)values[k];
+			}
+			
+			while (length > 0){
+				int lead = columns[0];
+				if (basis_columns[lead] == null){
+					MyMath.divideByContent(row, length);
+					basis_columns[lead] = Arrays.copyOf(columns, length);
+					basis_values[lead] = Arrays.copyOf(row, length);
+					ret++;
+					break;
+				}
+				
+				// row := b*row - a*basis_row, which cancels the leading entry
+				long g = MyMath.gcd(row[0], basis_values[lead][0]);
+				long a = row[0]/g;
+				long b = basis_values[lead][0]/g;
+				length = MyMath.combine(columns, row, length, b, basis_columns[lead], basis_values[lead], a, buffer_columns, buffer_row);
+				MyMath.divideByContent(buffer_row, length);
+				
+				int[] swap_columns = columns;
+				columns = buffer_columns;
+				buffer_columns = swap_columns;
+				long[] swap_row = row;
+				row = buffer_row;
+				buffer_row = swap_row;
+			}
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Computes f1*row1 - f2*row2 for two sparse rows with ascending column indices, zeros are dropped.
+	 * 
+	 * @return The number of non-zeros of the result.
+	 */
+	private static int combine(int[] columns1, long[] row1, int length1, long f1, int[] columns2, long[] row2, long f2, int[] ret_columns, long[] ret_row){
+		int length = 0;
+		int k1 = 0;
+		int k2 = 0;
+		while (k1 < length1 || k2 < columns2.length){
+			long value;
+			int column;
+			if (k2 == columns2.length || (k1 < length1 && columns1[k1] < columns2[k2])){
+				column = columns1[k1];
+				value = Math.multiplyExact(f1, row1[k1++]);
+			} else if (k1 == length1 || columns2[k2] < columns1[k1]){
+				column = columns2[k2];
+				value = Math.negateExact(Math.multiplyExact(f2, row2[k2++]));
+			} else {
+				column = columns1[k1];
+				value = Math.subtractExact(Math.multiplyExact(f1, row1[k1++]), Math.multiplyExact(f2, row2[k2++]));
+			}
+			
+			if (value != 0){
+				ret_columns[length] = column;
+				ret_row[length++] = value;
+			}
+		}
+		
+		return length;
+	}
+	
+	/**
+	 * Divides a sparse integer row by the gcd of its entries.
+	 */
+	private static void divideByContent(long[] row, int length){
+		long g = 0;
+		for (int k = 0; k < length && g != 1; k++)
+			g = MyMath.gcd(g, row[k]);
+		
+		if (g > 1)
+			for (int k = 0; k < length; k++)
+				row[k] = row[k]/g;
+	}
+	
+	private static long gcd(long a, long b){
+		a = Math.abs(a);
+		b = Math.abs(b);
+		while (b != 0){
+			long r = a % b;
+			a = b;
+			b = r;
+		}
+		
+		return a;
+	}
+	
 	/**
 	 * Computes a basis of the kernel of a given matrix.
 	 * 
@@ -302,17 +590,29 @@ public class MyMath {
 	 */
 	public MyRationalNumber[][] kernel(MyRationalNumber[][] matrix) throws Exception{
 		MyRationalNumber[][] rref = this.rref(matrix);
-		int rank = this.rank(rref);
+		int rank = this.rank_(rref);
 		
 		int width = rref[0].length;
 		
 		if (rank == width){
 			MyRationalNumber[][] ret = new MyRationalNumber[width][1];
 			for (int j = 0; j < width; j++)
-				ret[j][0] = new MyRationalNumber(0);
+				ret[j][0] = MyRationalNumber.valueOf(0);
 			return ret;
 		}
 		
+		return this.kernel(rref, rank);
+	}
+	
+	/**
+	 * Reads a basis of the kernel off a row reduced echelon form.
+	 * 
+	 * @param rref Matrix in row reduced echelon form.
+	 * @param rank The number of pivots of rref, smaller than its width.
+	 * @return A basis of the kernel, one column for each free column of rref.
+	 */
+	private MyRationalNumber[][] kernel(MyRationalNumber[][] rref, int rank){
+		int width = rref[0].length;
 		int krank = width - rank;
 		
 		MyRationalNumber[][] basis = new MyRationalNumber[width][krank];
@@ -326,7 +626,7 @@ public class MyMath {
 		//System.out.println(rank);
 		int j = 0;
 		for (int i = 0; i < rank; i++){
-			while (j < width - 1 && rref[i][j].getRatio() == 0)
+			while (j < width - 1 && rref[i][j].isZero())
 				j++;
 			
 			MyRationalNumber[] non_free_entries = this.getNonFreeEntries(rref, i, non_free, krank);
@@ -351,6 +651,112 @@ public class MyMath {
 		return this.kernel(matrix_);
 	}
 	
+	/**
+	 * Computes a basis of the kernel of a given sparse matrix exactly. Each basis vector is scaled
+	 * to integer entries with gcd 1, there is one vector for each free column of the reduced row
+	 * echelon form, so that the basis is as sparse as the echelon form allows.
+	 * 
+	 * @param matrix The matrix whose kernel is to be computed.
+	 * @return The basis vectors as columns labelled 0, 1, ..., no columns if the kernel is trivial.
+	 * @throws Exception If an entry of the basis cannot be represented exactly by a double.
+	 */
+	public <FirstD,SecondD> MySparseMatrix<SecondD,Integer> kernel(MySparseMatrix<FirstD,SecondD> matrix) throws Exception{
+		int width = matrix.getWidth();
+		
+		MyRationalNumber[][] basis = null;
+		int rank = 0;
+		if (matrix.getHeight() == 0){
+			basis = new MyRationalNumber[width][width];
+			for (int i = 0; i < width; i++)
+				for (int j = 0; j < width; j++)
+					basis[i][j] = MyRationalNumber.valueOf(i == j ? 1 : 0);
+		} else if (width > 0){
+			// one elimination gives both the basis and the rank
+			MyRationalNumber[][] rref = this.rref(MyMath.toMyRationalNumberMatrix(matrix));
+			rank = this.rank_(rref);
+			if (rank < width)
+				basis = this.kernel(rref, rank);
+		}
+		
+		int krank = width - rank;
+		
+		MySet<Integer> names = new MySet<Integer>();
+		for (int k = 0; k < krank; k++)
+			names.add(k);
+		
+		MySparseMatrix<SecondD,Integer> ret = new MySparseMatrix<SecondD,Integer>(matrix.getSecondDimensionSet(), names, width);
+		int[] indices = new int[width];
+		double[] values = new double[width];
+		for (int k = 0; k < krank; k++){
+			// multiply by the lcm of the denominators, divide by the gcd of the numerators
+			BigInteger lcm = BigInteger.ONE;
+			for (int j = 0; j < width; j++)
+				if (!basis[j][k].isZero())
+					lcm = lcm.divide(lcm.gcd(basis[j][k].getDenominator())).multiply(basis[j][k].getDenominator());
+			BigInteger[] column = new BigInteger[width];
+			BigInteger gcd = BigInteger.ZERO;
+			for (int j = 0; j < width; j++){
+				column[j] = basis[j][k].getNumerator().multiply(lcm.divide(basis[j][k].getDenominator()));
+				gcd = gcd.gcd(column[j]);
+			}
+			
+			int length = 0;
+			for (int j = 0; j < width; j++){
+				if (column[j].signum() == 0)
+					continue;
+				
+				BigInteger value = column[j].divide(gcd);
+				if (value.abs().bitLength() > 53)
+					throw new Exception("kernel entry " + value + " not representable by a double");
+				indices[length] = j;
+				values[length++] = value.doubleValue();
+			}
+			ret.appendColumn(indices, values, length);
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Computes the determinant of a square matrix by fraction-free elimination.
+	 * 
+	 * @param matrix The square matrix.
+	 * @return The determinant.
+	 */
+	public MyRationalNumber determinant(MyRationalNumber[][] matrix) throws Exception{
+		return (new MyBareissMath()).determinant(matrix);
+	}
+	
+	public MyRationalNumber determinant(double[][] matrix) throws Exception{
+		return this.determinant(MyRationalNumber.toMyRationalNumberMatrix(matrix));
+	}
+	
+	/**
+	 * Computes the row reduced echelon form scaled by a positive integer D by fraction-free
+	 * elimination, such that all entries are integers and all pivots are D.
+	 * 
+	 * @param matrix The matrix whose row reduced echelon form is to be computed.
+	 * @return D times the row reduced echelon form.
+	 */
+	public BigInteger[][] integerRref(MyRationalNumber[][] matrix) throws Exception{
+		return (new MyBareissMath()).integerRref(matrix);
+	}
+	
+	/**
+	 * Computes a basis of the kernel consisting of integer vectors by fraction-free elimination.
+	 * The vectors are the kernel vectors of the method kernel scaled to coprime integers.
+	 * 
+	 * @param matrix The matrix whose kernel is to be computed.
+	 * @return A basis of the kernel of the given matrix.
+	 */
+	public BigInteger[][] integerKernel(MyRationalNumber[][] matrix) throws Exception{
+		return (new MyBareissMath()).integerKernel(matrix);
+	}
+	
+	public BigInteger[][] integerKernel(double[][] matrix) throws Exception{
+		return this.integerKernel(MyRationalNumber.toMyRationalNumberMatrix(matrix));
+	}
+	
 	/**
 	 * Gets the entries corresponding to non-free variables of a specific row of a matrix in row reduced echelon form.  
 	 * 
@@ -386,9 +792,9 @@ public class MyMath {
 			if (!non_free[j]){
 				for (int k = 0; k < krank; k++){
 					if (k == c)
-						basis[j][k] = new MyRationalNumber(1);
+						basis[j][k] = MyRationalNumber.valueOf(1);
 					else
-						basis[j][k] = new MyRationalNumber(0);
+						basis[j][k] = MyRationalNumber.valueOf(0);
 				}
 				c++;
 			}
@@ -408,7 +814,7 @@ public class MyMath {
 	 */
 	private int findIndexOfValidRatio(MyRationalNumber[][] matrix, int i, int k){
 		for (int j = 0; j < matrix[0].length; j++){
-			if (matrix[i][j].getRatio() != 0 && matrix[k][j].getRatio() != 0){
+			if (!matrix[i][j].isZero() && !matrix[k][j].isZero()){
 				return j;
 			}
 		}
@@ -433,18 +839,18 @@ public class MyMath {
 		MyRationalNumber ratio = matrix[i][valid_index].clone().div(matrix[j][valid_index]);
 		for (int k = 0; k < matrix[0].length; k++){
 			// if both are zero, no problem and go on, it cannot be two zero columns since a valid index exists
-			if (!(matrix[i][k].getRatio() == 0 && matrix[j][k].getRatio() == 0)){
+			if (!(matrix[i][k].isZero() && matrix[j][k].isZero())){
 				// if first entry is zero and the other is not, return false ...
-				if (matrix[i][k].getRatio() == 0 && matrix[j][k].getRatio() != 0)
+				if (matrix[i][k].isZero() && !matrix[j][k].isZero())
 					return false;
 				// ... and vice versa
-				if (matrix[i][k].getRatio() != 0 && matrix[j][k].getRatio() == 0)
+				if (!matrix[i][k].isZero() && matrix[j][k].isZero())
 					return false;
 				
 				// now, it is secured that both entries are nonzero, calculate ratio
 				MyRationalNumber new_ratio = matrix[i][k].clone().div(matrix[j][k]);
 				//if (new_ratio.getNumerator() != 0 || new_ratio.getDenominator() != 0)
-				if (!new_ratio.getNumerator().equals(BigInteger.ZERO) || !new_ratio.getDenominator().equals(BigInteger.ZERO))
+				if (!new_ratio.isZero())
 					// if ratios are different, return false
 					if (!ratio.equals(new_ratio))
 						return false;
@@ -25,31 +25,52 @@ import system.process.octave.MyOctaveKernel;
 import system.process.octave.MyOctaveRank;
 import system.process.octave.MyOctaveRref;
 
-import java.util.logging.Level;
 import java.lang.reflect.*;
 import java.util.*;
 import java.io.*;
 
-import ch.javasoft.polco.adapter.*;
 import crnt.Complex;
 import crnt.Reaction;
 import crnt.ReactionNetwork;
 import crnt.Species;
 import math.field.MyDouble;
 import math.field.MyEntry;
+import math.field.MyInteger;
+import math.field.MyRational;
+import math.field.MyRationalNumber;
 import math.set.MySet;
 
-public class MyMatrix<FirstD,SecondD> extends MySet<MyEntry<?,FirstD,SecondD>>{
+public class MyMatrix<FirstD,SecondD> extends MySet<MyEntry<?,FirstD,SecondD>> implements MyLabelledMatrix<FirstD,SecondD>{
 	private static final long serialVersionUID = 1L;
 	
+	// entry types, ordered by generality
+	private static final int INTEGER_ENTRIES = 0;
+	private static final int RATIONAL_ENTRIES = 1;
+	private static final int DOUBLE_ENTRIES = 2;
+	private static final int OTHER_ENTRIES = 3;
+	
 	private MySet<FirstD> first_dimension_set;
 	private MySet<SecondD> second_dimension_set;
 	private MyEntry<?,FirstD,SecondD>[][] matrix;
 	
+	/**
+	 * Creates a two dimensional array of entries. Arrays of a generic type can
+	 * not be created directly, the array of wildcard entries is only filled
+	 * with entries of the given type.
+	 * 
+	 * @param height The number of rows.
+	 * @param width The number of columns.
+	 * @return The array.
+	 */
+	@SuppressWarnings("unchecked")
+	static <Entry,FirstD,SecondD> MyEntry<Entry,FirstD,SecondD>[][] newEntryArray(int height, int width){
+		return (MyEntry<Entry,FirstD,SecondD>[][])new MyEntry<?,?,?>[height][width];
+	}
+	
 	public static void main(String[] args) throws Exception{
 		ReactionNetwork reaction_network = (new SimpleParser()).parse(System.getProperty("user.dir") + "/examples/simple/Feinberg1995a_example_4.7");
 		
-		MyMatrix<Species,Reaction> N = reaction_network.getNMatrix();
+		MyDenseMatrix<Species,Reaction> N = reaction_network.getNMatrix();
 		System.out.println(N.toString());
 		System.out.println(N.toOctaveString());
 		
@@ -70,7 +91,31 @@ public class MyMatrix<FirstD,SecondD> extends MySet<MyEntry<?,FirstD,SecondD>>{
 		this.first_dimension_set = null;
 		this.second_dimension_set = null;
 	}
-	
+
+	/**
+	 * Constructor for a matrix whose layout is known in advance, see MyMatrixBuilder.
+	 * Entry (i, j) must be labelled with the i-th element of the first and the j-th
+	 * element of the second dimension set, so makeMatrix is not needed.
+	 *
+	 * @param first_dimension_set The row labels.
+	 * @param second_dimension_set The column labels.
+	 * @param entries All entries of the matrix, indexed like the dimension sets.
+	 */
+	MyMatrix(MySet<FirstD> first_dimension_set, MySet<SecondD> second_dimension_set, MyEntry<?,FirstD,SecondD>[][] entries){
+		super();
+
+		this.first_dimension_set = first_dimension_set;
+		this.second_dimension_set = second_dimension_set;
+		this.matrix = MyMatrix.newEntryArray(entries.length, entries[0].length);
+		for (int i = 0; i < entries.length; i++){
+			for (int j = 0; j < entries[i].length; j++){
+				this.add(entries[i][j]);
+				// the lookup table holds copies, like the one made by makeMatrix
+				this.matrix[i][j] = entries[i][j].clone().setComparatorToFirstDimension();
+			}
+		}
+	}
+
 	public MySet<FirstD> getFirstDimensionSet(){
 		this.check();
 		
@@ -102,13 +147,13 @@ public class MyMatrix<FirstD,SecondD> extends MySet<MyEntry<?,FirstD,SecondD>>{
 	public FirstD getFirstDimension(int i){
 		this.check();
 		
-		return this.getFirstDimensionSet().toArrayList().get(i);
+		return this.getFirstDimensionSet().getElementByIndex(i);
 	}
 	
 	public SecondD getSecondDimension(int j){
 		this.check();
 		
-		return this.getSecondDimensionSet().toArrayList().get(j);
+		return this.getSecondDimensionSet().getElementByIndex(j);
 	}
 	
 	/**
@@ -182,7 +227,7 @@ public class MyMatrix<FirstD,SecondD> extends MySet<MyEntry<?,FirstD,SecondD>>{
 		ArrayList<MyVector<FirstD,SecondD>> vector_list = vectors.toArrayList();
 		int height = vector_list.get(0).size();
 		int width = vector_list.size();
-		this.matrix = new MyEntry[height][width];
+		this.matrix = MyMatrix.newEntryArray(height, width);
 		
 		for (int j = 0; j < width; j++){
 			MyVector<FirstD,SecondD> vector = vector_list.get(j);
@@ -467,6 +512,52 @@ public class MyMatrix<FirstD,SecondD> extends MySet<MyEntry<?,FirstD,SecondD>>{
 		return ret;
 	}
 	
+	/**
+	 * Gets a view of the rows and columns with the given indices. The view shares the
+	 * entries of this matrix, nothing is copied.
+	 * 
+	 * @param rows Indices of the rows.
+	 * @param columns Indices of the columns.
+	 * 
+	 * @return The view.
+	 */
+	public MyMatrixView<FirstD,SecondD> getView(int[] rows, int[] columns){
+		this.check();
+		
+		return new MyMatrixView<FirstD,SecondD>(this, rows, columns);
+	}
+	
+	/**
+	 * Gets a view of the rows and columns with the given labels.
+	 * 
+	 * @param first_dimension The labels of the rows.
+	 * @param second_dimension The labels of the columns.
+	 * 
+	 * @return The view.
+	 * @throws Exception If a label does not occur in this matrix.
+	 */
+	public MyMatrixView<FirstD,SecondD> getView(MySet<FirstD> first_dimension, MySet<SecondD> second_dimension) throws Exception{
+		this.check();
+		
+		return MyMatrixView.select(this, first_dimension, second_dimension);
+	}
+	
+	public MyMatrixView<FirstD,SecondD> getRowView(int i){
+		return this.getView(new int[]{i}, MyMatrixView.range(0, this.getWidth()));
+	}
+	
+	public MyMatrixView<FirstD,SecondD> getColumnView(int j){
+		return this.getView(MyMatrixView.range(0, this.getHeight()), new int[]{j});
+	}
+	
+	public MyMatrixView<FirstD,SecondD> getSubMatrixView(int index_i, int index_j, int height, int width){
+		return this.getView(MyMatrixView.range(index_i, height), MyMatrixView.range(index_j, width));
+	}
+	
+	public MyMatrixView<SecondD,FirstD> getTransposeView(){
+		return this.getView(MyMatrixView.range(0, this.getHeight()), MyMatrixView.range(0, this.getWidth())).transpose();
+	}
+	
 	// -------------------------------------------------------------------------------------------
 	//                                   Mathematical methods
 	// -------------------------------------------------------------------------------------------
@@ -512,22 +603,69 @@ public class MyMatrix<FirstD,SecondD> extends MySet<MyEntry<?,FirstD,SecondD>>{
 	}
 	
 	/**
-	 * Multiplies two MyMatrix objects.
+	 * Multiplies two MyMatrix objects. The columns of this matrix are matched with the
+	 * rows of A by their labels if both carry the same labels, by index otherwise.
+	 * Matrices with MyInteger, MyDouble and MyRational entries are multiplied by the
+	 * typed kernels of MyMultiplication, other entries are multiplied by reflection.
 	 * 
 	 * @param A Second matrix.
 	 * 
-	 * @return The resulting matrix.
+	 * @return The resulting matrix. Its entries are MyRational objects if the entries of
+	 * both matrices are MyInteger or MyRational objects and at least one is rational,
+	 * otherwise MyDouble objects.
 	 */
 	public MyMatrix<FirstD, ?> mul(MyMatrix<SecondD, ?> A) throws Exception{
 		this.check();
 		
+		int n = this.getHeight();
+		int l = this.getWidth();
+		int m = A.getWidth();
+		if (l != A.getHeight())
+			throw new Exception("dimensions do not match: width = " + l + ", height = " + A.getHeight());
+		
+		int[] rows = this.getMatchingRows(A);
+		int type = Math.max(this.getEntryType(), A.getEntryType());
+		if (type == MyMatrix.OTHER_ENTRIES)
+			return this.mulUsingReflection(A, rows);
+		
+		MyMatrix<FirstD, ?> ret = new MyMatrix();
+		if (type == MyMatrix.RATIONAL_ENTRIES){
+			MyRationalNumber[] c = new MyMultiplication().mul(this.toRationalArray(null), A.toRationalArray(rows), n, l, m);
+			for (int k = 0; k < m; k++)
+				for (int i = 0; i < n; i++)
+					ret.add(new MyRational(c[i*m + k], this.getEntry(i, 0).getFirstDimension(), A.getEntry(0, k).getSecondDimension()));
+			
+			return ret;
+		}
+		
+		double[] c = null;
+		if (type == MyMatrix.INTEGER_ENTRIES){
+			try {
+				long[] exact = new MyMultiplication().mul(this.toLongArray(null), A.toLongArray(rows), n, l, m);
+				c = new double[exact.length];
+				for (int k = 0; k < exact.length; k++)
+					c[k] = exact[k];
+			} catch (ArithmeticException ae){
+				// overflow, compute with doubles
+			}
+		}
+		if (c == null)
+			c = new MyMultiplication().mul(this.toDoubleArray(null), A.toDoubleArray(rows), n, l, m);
+		for (int k = 0; k < m; k++)
+			for (int i = 0; i < n; i++)
+				ret.add(new MyDouble(c[i*m + k], this.getEntry(i, 0).getFirstDimension(), A.getEntry(0, k).getSecondDimension()));
+		
+		return ret;
+	}
+	
+	private MyMatrix<FirstD, ?> mulUsingReflection(MyMatrix<SecondD, ?> A, int[] rows) throws Exception{
 		MyMatrix<FirstD, ?> ret = new MyMatrix();
 		for (int k = 0; k < A.getWidth(); k++){
 			for (int i = 0; i < this.getHeight(); i++){
 				MyDouble sum = new MyDouble(new Double(0),this.getEntry(i, 0).getFirstDimension(),A.getEntry(0, k).getSecondDimension());
 				for (int j = 0; j < this.getWidth(); j++){
 					Object o1 = this.getEntry(i, j);
-					Object o2 = A.getEntry(j, k);
+					Object o2 = A.getEntry(rows == null ? j : rows[j], k);
 				
 					Object result = this.invokeMethod(o1, new Object[]{o2}, "mul");
 					sum = (MyDouble)this.invokeMethod(sum, new Object[]{result}, "add");
@@ -539,6 +677,94 @@ public class MyMatrix<FirstD,SecondD> extends MySet<MyEntry<?,FirstD,SecondD>>{
 		return ret;
 	}
 	
+	/**
+	 * Finds for each column of this matrix the row of A with the same label.
+	 * 
+	 * @return The row indices of A, or null if the labels do not match.
+	 */
+	private int[] getMatchingRows(MyMatrix<SecondD, ?> A){
+		HashMap<Object,Integer> indices = new HashMap<Object,Integer>();
+		for (int i = 0; i < A.getHeight(); i++)
+			indices.put(A.getEntry(i, 0).getFirstDimension(), i);
+		
+		int[] ret = new int[this.getWidth()];
+		for (int j = 0; j < this.getWidth(); j++){
+			Integer index = indices.get(this.getEntry(0, j).getSecondDimension());
+			if (index == null)
+				return null;
+			ret[j] = index;
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Determines the most general entry type of this matrix.
+	 */
+	private int getEntryType(){
+		int ret = MyMatrix.INTEGER_ENTRIES;
+		for (int i = 0; i < this.getHeight(); i++){
+			for (int j = 0; j < this.getWidth(); j++){
+				MyEntry<?,FirstD,SecondD> entry = this.getEntry(i, j);
+				if (entry instanceof MyRational)
+					ret = Math.max(ret, MyMatrix.RATIONAL_ENTRIES);
+				else if (entry instanceof MyDouble)
+					ret = Math.max(ret, MyMatrix.DOUBLE_ENTRIES);
+				else if (!(entry instanceof MyInteger))
+					return MyMatrix.OTHER_ENTRIES;
+			}
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Copies the entries into a row-major array.
+	 * 
+	 * @param rows The order of the rows, null for the order of this matrix.
+	 */
+	private long[] toLongArray(int[] rows){
+		int width = this.getWidth();
+		long[] ret = new long[this.getHeight()*width];
+		for (int i = 0; i < this.getHeight(); i++)
+			for (int j = 0; j < width; j++)
+				ret[i*width + j] = (Integer)this.getEntry(rows == null ? i : rows[i], j).getEntry();
+		
+		return ret;
+	}
+	
+	private double[] toDoubleArray(int[] rows){
+		int width = this.getWidth();
+		double[] ret = new double[this.getHeight()*width];
+		for (int i = 0; i < this.getHeight(); i++){
+			for (int j = 0; j < width; j++){
+				Object value = this.getEntry(rows == null ? i : rows[i], j).getEntry();
+				if (value instanceof MyRationalNumber)
+					ret[i*width + j] = ((MyRationalNumber)value).getRatio();
+				else
+					ret[i*width + j] = ((Number)value).doubleValue();
+			}
+		}
+		
+		return ret;
+	}
+	
+	private MyRationalNumber[] toRationalArray(int[] rows){
+		int width = this.getWidth();
+		MyRationalNumber[] ret = new MyRationalNumber[this.getHeight()*width];
+		for (int i = 0; i < this.getHeight(); i++){
+			for (int j = 0; j < width; j++){
+				Object value = this.getEntry(rows == null ? i : rows[i], j).getEntry();
+				if (value instanceof MyRationalNumber)
+					ret[i*width + j] = (MyRationalNumber)value;
+				else
+					ret[i*width + j] = MyRationalNumber.valueOf((Integer)value);
+			}
+		}
+		
+		return ret;
+	}
+	
 	public MyMatrix<FirstD, SecondD> mul(double x) throws Exception{
 		this.check();
 		
@@ -573,11 +799,13 @@ public class MyMatrix<FirstD,SecondD> extends MySet<MyEntry<?,FirstD,SecondD>>{
 	 */
 	public MyMatrix<FirstD, SecondD> round() throws Exception{
 		// very ugly solved, the same holds for method mul, see the comment in MyEntry class. 
-		MyMatrix<FirstD,SecondD> ret = new MyMatrix();
+		MyMatrix<FirstD,SecondD> ret = new MyMatrix<FirstD,SecondD>();
 		
 		for (int i = 0; i < this.getHeight(); i++){
 			for (int j = 0; j < this.getWidth(); j++){
-				MyEntry entry = (MyEntry<?,FirstD,SecondD>)this.invokeMethod(this.getEntry(i, j), new Object[]{},"round");
+				// round returns an entry with the same labels
+				@SuppressWarnings("unchecked")
+				MyEntry<?,FirstD,SecondD> entry = (MyEntry<?,FirstD,SecondD>)this.invokeMethod(this.getEntry(i, j), new Object[]{},"round");
 				ret.add(entry);
 			}
 		}
@@ -586,7 +814,8 @@ public class MyMatrix<FirstD,SecondD> extends MySet<MyEntry<?,FirstD,SecondD>>{
 	}
 
 	/**
-	 * Computes the extreme rays of this MyMatrix object using polco.
+	 * Computes the extreme rays of this MyMatrix object using polco. The matrix
+	 * is compressed before and the rays are expanded afterwards, see MyNetworkCompression.
 	 * 
 	 * @return The extreme rays of this matrix.
 	 * @throws Exception
@@ -594,20 +823,12 @@ public class MyMatrix<FirstD,SecondD> extends MySet<MyEntry<?,FirstD,SecondD>>{
 	public MyMatrix<SecondD,?> getExtremeRays() throws Exception{
 		this.check();
 		
-		MyMatrix<SecondD, SecondD> I = this.getUnityMatrix();
-		
-		double[][] eq = this.toDoubleMatrix();	//the coefficients of the system equalities
-		double[][] iq = I.toDoubleMatrix();		//the coefficients of the system inequalities
-		Options opts = new Options();
-		opts.setLoglevel(Level.FINE);
-		opts.setLogFile(new File("/tmp/polco.log"));
-		PolcoAdapter polco = new PolcoAdapter(opts);
-		double[][] rays = polco.getDoubleRays(eq, iq);
+		double[][] rays = (new MyNetworkCompression(this.toDoubleMatrix())).getExtremeRays();
 
 		MyMatrix<SecondD,?> ret = new MyMatrix();
 		
 		ArrayList<SecondD> secondD_array = this.getSecondDimensionSet().toArrayList();
-		for (int j = 0; j < rays[0].length; j++){
+		for (int j = 0; j < secondD_array.size(); j++){
 			for (int i = 0; i < rays.length; i++){
 				MyDouble entry = new MyDouble<SecondD,String>(rays[i][j],secondD_array.get(j), "er" + i);
 				ret.add(entry);
@@ -624,10 +845,10 @@ public class MyMatrix<FirstD,SecondD> extends MySet<MyEntry<?,FirstD,SecondD>>{
 			for (int j = 0; j < secondD_array.size(); j++){
 				MyEntry<?,FirstD,SecondD> entry = this.head();
 				if (secondD_array.get(i).equals(secondD_array.get(j))){
-					MyEntry<?,SecondD,SecondD> new_entry = new MyEntry(entry.getOne().getEntry(), secondD_array.get(i), secondD_array.get(j));
+					MyEntry<?,SecondD,SecondD> new_entry = new MyEntry<Object,SecondD,SecondD>(entry.getOne().getEntry(), secondD_array.get(i), secondD_array.get(j));
 					ret.add(new_entry);
 				} else {
-					MyEntry<?,SecondD,SecondD> new_entry = new MyEntry(entry.getZero().getEntry(), secondD_array.get(i), secondD_array.get(j));
+					MyEntry<?,SecondD,SecondD> new_entry = new MyEntry<Object,SecondD,SecondD>(entry.getZero().getEntry(), secondD_array.get(i), secondD_array.get(j));
 					ret.add(new_entry);
 				}
 			}
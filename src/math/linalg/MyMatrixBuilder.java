@@ -0,0 +1,115 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.linalg;
+
+import java.util.ArrayList;
+
+import math.field.MyEntry;
+import math.set.MySet;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ * The class MyMatrixBuilder.
+ * Builds a MyMatrix from (i, j, value) triples, where i and j are the indices of the
+ * labels in the row and column sets given up front. Cells which are not set get the
+ * value of the zero entry. The layout of the matrix is known in advance, so build does
+ * not need to sort the entries or to look them up by their labels.
+ *
+ * @param <Entry> The type of the values.
+ */
+public class MyMatrixBuilder<Entry,FirstD,SecondD>{
+	private MySet<FirstD> first_dimension_set;
+	private MySet<SecondD> second_dimension_set;
+	private ArrayList<FirstD> first_dimension_array;
+	private ArrayList<SecondD> second_dimension_array;
+	private MyEntry<Entry,FirstD,SecondD> zero;			// prototype for the entries, its labels are ignored
+	private MyEntry<Entry,FirstD,SecondD>[][] entries;	// null for cells not set yet
+	
+	/**
+	 * Constructor. The sets are used by the built matrix and must not be changed
+	 * afterwards.
+	 * 
+	 * @param first_dimension_set The row labels.
+	 * @param second_dimension_set The column labels.
+	 * @param zero An entry of the type to build with value zero, e.g., a MyInteger with value 0.
+	 */
+	public MyMatrixBuilder(MySet<FirstD> first_dimension_set, MySet<SecondD> second_dimension_set, MyEntry<Entry,FirstD,SecondD> zero){
+		this.first_dimension_set = first_dimension_set;
+		this.second_dimension_set = second_dimension_set;
+		this.first_dimension_array = first_dimension_set.toArrayList();
+		this.second_dimension_array = second_dimension_set.toArrayList();
+		this.zero = zero;
+		this.entries = MyMatrix.newEntryArray(this.first_dimension_array.size(), this.second_dimension_array.size());
+	}
+	
+	public int getHeight(){
+		return this.first_dimension_array.size();
+	}
+	
+	public int getWidth(){
+		return this.second_dimension_array.size();
+	}
+	
+	/**
+	 * Sets the value of a cell, a cell set twice keeps the last value.
+	 * 
+	 * @param i Index of the row label.
+	 * @param j Index of the column label.
+	 * @param value The value.
+	 */
+	public void set(int i, int j, Entry value){
+		MyEntry<Entry,FirstD,SecondD> entry = this.zero.clone();
+		entry.setEntry(value);
+		entry.setFirstDimension(this.first_dimension_array.get(i));
+		entry.setSecondDimension(this.second_dimension_array.get(j));
+		
+		this.entries[i][j] = entry;
+	}
+	
+	/**
+	 * Builds the matrix. Cells not set are filled with zeros, since a MyMatrix
+	 * stores all of its entries. The builder must not be used afterwards.
+	 * 
+	 * @return The matrix.
+	 */
+	public MyMatrix<FirstD,SecondD> build(){
+		if (this.getHeight() == 0 || this.getWidth() == 0)
+			return new MyMatrix<FirstD,SecondD>();
+		
+		for (int i = 0; i < this.getHeight(); i++){
+			FirstD first_dimension = this.first_dimension_array.get(i);
+			for (int j = 0; j < this.getWidth(); j++){
+				if (this.entries[i][j] == null){
+					MyEntry<Entry,FirstD,SecondD> entry = this.zero.clone();
+					entry.setFirstDimension(first_dimension);
+					entry.setSecondDimension(this.second_dimension_array.get(j));
+					this.entries[i][j] = entry;
+				}
+			}
+		}
+		
+		MyMatrix<FirstD,SecondD> ret = new MyMatrix<FirstD,SecondD>(this.first_dimension_set, this.second_dimension_set, this.entries);
+		this.entries = null;
+		
+		return ret;
+	}
+}
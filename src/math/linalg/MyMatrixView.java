@@ -0,0 +1,335 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.linalg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import math.field.MyEntry;
+import math.field.MyRationalNumber;
+import math.set.MySet;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ * The class MyMatrixView.
+ * A view of selected rows and columns of a labelled matrix, possibly transposed. The
+ * view only stores the indices of its rows and columns in the parent matrix, entries
+ * are read from the parent on request and views of views index into the parent
+ * directly. The labels are those of the parent, the dimension sets are made on
+ * request and ordered like the rows and columns of the view. A view reflects later
+ * changes of the parent, toMyMatrix materialises it. The transposed entries of a
+ * transposed view are made once and reused while the parent entries are unchanged.
+ */
+public class MyMatrixView<FirstD,SecondD> implements MyLabelledMatrix<FirstD,SecondD>{
+	private MyLabelledMatrix<FirstD,SecondD> parent;				// the parent, null if transposed
+	private MyLabelledMatrix<SecondD,FirstD> transposed_parent;		// the parent, null if not transposed
+	private int[] rows;				// row i of the view is row rows[i] of the parent, column rows[i] if transposed
+	private int[] columns;			// column j of the view is column columns[j] of the parent, row columns[j] if transposed
+	private boolean transposed;
+	
+	private ArrayList<MyEntry<?,SecondD,FirstD>> parent_entries;		// parent entry at position i*width + j, made on request
+	private ArrayList<MyEntry<?,FirstD,SecondD>> transposed_entries;	// transpose of the parent entry at the same position
+	
+	private MySet<FirstD> first_dimension;		// made on request
+	private MySet<SecondD> second_dimension;	// made on request
+	private HashMap<FirstD,Integer> first_dimension_indices;
+	private HashMap<SecondD,Integer> second_dimension_indices;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param parent The matrix the view refers to.
+	 * @param rows The indices of the rows in the parent.
+	 * @param columns The indices of the columns in the parent.
+	 */
+	public MyMatrixView(MyLabelledMatrix<FirstD,SecondD> parent, int[] rows, int[] columns){
+		this(parent, null, rows, columns);
+	}
+	
+	private MyMatrixView(MyLabelledMatrix<FirstD,SecondD> parent, MyLabelledMatrix<SecondD,FirstD> transposed_parent, int[] rows, int[] columns){
+		this.parent = parent;
+		this.transposed_parent = transposed_parent;
+		this.rows = rows;
+		this.columns = columns;
+		this.transposed = transposed_parent != null;
+	}
+	
+	/**
+	 * Makes a view of the rows and columns of a matrix given by their labels.
+	 * 
+	 * @param parent The matrix the view refers to.
+	 * @param first_dimension The labels of the rows, in the order of the view.
+	 * @param second_dimension The labels of the columns, in the order of the view.
+	 * @return The view.
+	 * @throws Exception If a label is not found in the parent.
+	 */
+	public static <FirstD,SecondD> MyMatrixView<FirstD,SecondD> select(MyLabelledMatrix<FirstD,SecondD> parent, MySet<FirstD> first_dimension, MySet<SecondD> second_dimension) throws Exception{
+		MyMatrixView<FirstD,SecondD> all = new MyMatrixView<FirstD,SecondD>(parent, MyMatrixView.range(0, parent.getHeight()), MyMatrixView.range(0, parent.getWidth()));
+		
+		int[] rows = new int[first_dimension.size()];
+		int i = 0;
+		Iterator<FirstD> fd_iterator = first_dimension.iterator();
+		while (fd_iterator.hasNext()){
+			FirstD fd = fd_iterator.next();
+			rows[i] = all.getFirstDimensionIndex(fd);
+			if (rows[i++] < 0)
+				throw new Exception("row " + fd + " not found");
+		}
+		
+		int[] columns = new int[second_dimension.size()];
+		int j = 0;
+		Iterator<SecondD> sd_iterator = second_dimension.iterator();
+		while (sd_iterator.hasNext()){
+			SecondD sd = sd_iterator.next();
+			columns[j] = all.getSecondDimensionIndex(sd);
+			if (columns[j++] < 0)
+				throw new Exception("column " + sd + " not found");
+		}
+		
+		return new MyMatrixView<FirstD,SecondD>(parent, rows, columns);
+	}
+	
+	/**
+	 * Makes the index array from, from + 1, ..., from + length - 1.
+	 */
+	public static int[] range(int from, int length){
+		int[] ret = new int[length];
+		for (int k = 0; k < length; k++)
+			ret[k] = from + k;
+		
+		return ret;
+	}
+	
+	/**
+	 * Makes a view of selected rows and columns of this view.
+	 * 
+	 * @param rows The indices of the rows in this view.
+	 * @param columns The indices of the columns in this view.
+	 * @return The view, referring to the parent of this view.
+	 */
+	public MyMatrixView<FirstD,SecondD> getView(int[] rows, int[] columns){
+		int[] parent_rows = new int[rows.length];
+		for (int i = 0; i < rows.length; i++)
+			parent_rows[i] = this.rows[rows[i]];
+		int[] parent_columns = new int[columns.length];
+		for (int j = 0; j < columns.length; j++)
+			parent_columns[j] = this.columns[columns[j]];
+		
+		return new MyMatrixView<FirstD,SecondD>(this.parent, this.transposed_parent, parent_rows, parent_columns);
+	}
+	
+	public MyMatrixView<FirstD,SecondD> getRow(int i){
+		return this.getView(new int[]{i}, MyMatrixView.range(0, this.getWidth()));
+	}
+	
+	public MyMatrixView<FirstD,SecondD> getColumn(int j){
+		return this.getView(MyMatrixView.range(0, this.getHeight()), new int[]{j});
+	}
+	
+	public MyMatrixView<FirstD,SecondD> getSubMatrix(int index_i, int index_j, int height, int width){
+		return this.getView(MyMatrixView.range(index_i, height), MyMatrixView.range(index_j, width));
+	}
+	
+	public MyMatrixView<SecondD,FirstD> transpose(){
+		return new MyMatrixView<SecondD,FirstD>(this.transposed_parent, this.parent, this.columns, this.rows);
+	}
+	
+	public int getHeight(){
+		return this.rows.length;
+	}
+	
+	public int getWidth(){
+		return this.columns.length;
+	}
+	
+	public MyEntry<?,FirstD,SecondD> getEntry(int i, int j){
+		if (!this.transposed)
+			return this.parent.getEntry(this.rows[i], this.columns[j]);
+		
+		if (this.parent_entries == null){
+			this.parent_entries = new ArrayList<MyEntry<?,SecondD,FirstD>>(Collections.<MyEntry<?,SecondD,FirstD>>nCopies(this.getHeight()*this.getWidth(), null));
+			this.transposed_entries = new ArrayList<MyEntry<?,FirstD,SecondD>>(Collections.<MyEntry<?,FirstD,SecondD>>nCopies(this.getHeight()*this.getWidth(), null));
+		}
+		
+		// the transpose is made again only if the parent entry or its value was replaced
+		int k = i*this.getWidth() + j;
+		MyEntry<?,SecondD,FirstD> entry = this.transposed_parent.getEntry(this.columns[j], this.rows[i]);
+		MyEntry<?,FirstD,SecondD> ret = this.transposed_entries.get(k);
+		if (this.parent_entries.get(k) != entry || ret.getEntry() != entry.getEntry()){
+			ret = entry.transpose();
+			this.parent_entries.set(k, entry);
+			this.transposed_entries.set(k, ret);
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Gets the value of an entry without making its transpose.
+	 */
+	private Object getValue(int i, int j){
+		if (this.transposed)
+			return this.transposed_parent.getEntry(this.columns[j], this.rows[i]).getEntry();
+		
+		return this.parent.getEntry(this.rows[i], this.columns[j]).getEntry();
+	}
+	
+	// the labels are taken from the entries, since the entries of a MyMatrix are not
+	// necessarily stored in the order of its second dimension set
+	public FirstD getFirstDimension(int i){
+		if (this.transposed){
+			if (this.transposed_parent.getHeight() > 0)
+				return this.transposed_parent.getEntry(0, this.rows[i]).getSecondDimension();
+			
+			return this.transposed_parent.getSecondDimension(this.rows[i]);
+		}
+		
+		if (this.parent.getWidth() > 0)
+			return this.parent.getEntry(this.rows[i], 0).getFirstDimension();
+		
+		return this.parent.getFirstDimension(this.rows[i]);
+	}
+	
+	public SecondD getSecondDimension(int j){
+		if (this.transposed){
+			if (this.transposed_parent.getWidth() > 0)
+				return this.transposed_parent.getEntry(this.columns[j], 0).getFirstDimension();
+			
+			return this.transposed_parent.getFirstDimension(this.columns[j]);
+		}
+		
+		if (this.parent.getHeight() > 0)
+			return this.parent.getEntry(0, this.columns[j]).getSecondDimension();
+		
+		return this.parent.getSecondDimension(this.columns[j]);
+	}
+	
+	public MySet<FirstD> getFirstDimensionSet(){
+		if (this.first_dimension == null){
+			this.first_dimension_indices = new HashMap<FirstD,Integer>();
+			for (int i = 0; i < this.getHeight(); i++)
+				this.first_dimension_indices.put(this.getFirstDimension(i), i);
+			this.first_dimension = new MySet<FirstD>(new PositionComparator<FirstD>(this.first_dimension_indices));
+			this.first_dimension.addAll(this.first_dimension_indices.keySet());
+		}
+		
+		return this.first_dimension;
+	}
+	
+	public MySet<SecondD> getSecondDimensionSet(){
+		if (this.second_dimension == null){
+			this.second_dimension_indices = new HashMap<SecondD,Integer>();
+			for (int j = 0; j < this.getWidth(); j++)
+				this.second_dimension_indices.put(this.getSecondDimension(j), j);
+			this.second_dimension = new MySet<SecondD>(new PositionComparator<SecondD>(this.second_dimension_indices));
+			this.second_dimension.addAll(this.second_dimension_indices.keySet());
+		}
+		
+		return this.second_dimension;
+	}
+	
+	public int getFirstDimensionIndex(FirstD fd){
+		this.getFirstDimensionSet();
+		Integer ret = this.first_dimension_indices.get(fd);
+		
+		return ret == null ? -1 : ret;
+	}
+	
+	public int getSecondDimensionIndex(SecondD sd){
+		this.getSecondDimensionSet();
+		Integer ret = this.second_dimension_indices.get(sd);
+		
+		return ret == null ? -1 : ret;
+	}
+	
+	public double[][] toDoubleMatrix() throws Exception{
+		double[][] ret = new double[this.getHeight()][this.getWidth()];
+		MyLabelledMatrix<?,?> parent = this.transposed ? this.transposed_parent : this.parent;
+		if (parent instanceof MyDenseMatrix){
+			MyDenseMatrix<?,?> dense = (MyDenseMatrix<?,?>)parent;
+			for (int i = 0; i < this.getHeight(); i++)
+				for (int j = 0; j < this.getWidth(); j++)
+					ret[i][j] = this.transposed ? dense.getSimpleEntry(this.columns[j], this.rows[i]) : dense.getSimpleEntry(this.rows[i], this.columns[j]);
+			
+			return ret;
+		}
+		
+		for (int i = 0; i < this.getHeight(); i++){
+			for (int j = 0; j < this.getWidth(); j++){
+				Object value = this.getValue(i, j);
+				if (value instanceof MyRationalNumber)
+					ret[i][j] = ((MyRationalNumber)value).getRatio();
+				else if (value instanceof Number)
+					ret[i][j] = ((Number)value).doubleValue();
+			}
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Copies the entries of this view into a new MyMatrix object.
+	 * 
+	 * @return The materialised matrix.
+	 */
+	public MyMatrix<FirstD,SecondD> toMyMatrix(){
+		MyMatrix<FirstD,SecondD> ret = new MyMatrix<FirstD,SecondD>();
+		for (int i = 0; i < this.getHeight(); i++)
+			for (int j = 0; j < this.getWidth(); j++)
+				ret.add(this.getEntry(i, j).clone().setComparatorToGeneral());
+		
+		return ret;
+	}
+	
+	public String toString(){
+		String ret = "";
+		for (int j = 0; j < this.getWidth(); j++)
+			ret = ret + this.getSecondDimension(j).toString() + " ";
+		ret = ret + "\n";
+		
+		for (int i = 0; i < this.getHeight(); i++){
+			for (int j = 0; j < this.getWidth(); j++)
+				ret = ret + this.getValue(i, j).toString() + " ";
+			ret = ret + this.getFirstDimension(i).toString() + "\n";
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Orders the labels of a view by their positions in the view, also used by MyMappedMatrix.
+	 */
+	static class PositionComparator<E> implements Comparator<E>{
+		private HashMap<E,Integer> positions;
+		
+		public PositionComparator(HashMap<E,Integer> positions){
+			this.positions = positions;
+		}
+		
+		public int compare(E e1, E e2){
+			return this.positions.get(e1).compareTo(this.positions.get(e2));
+		}
+	}
+}
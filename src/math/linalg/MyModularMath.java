@@ -0,0 +1,390 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.linalg;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import math.field.MyRationalNumber;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ * The class MyModularMath.
+ * Exact rank and row reduced echelon form of rational matrices computed modulo
+ * word-size primes with primitive long arithmetic. The exact result is obtained
+ * from the images modulo several primes by chinese remaindering and rational
+ * reconstruction, and it is verified against the input before it is returned.
+ */
+public class MyModularMath {
+	private static final long FIRST_PRIME = 2147483647L;	// 2^31 - 1, products of two residues fit into a long
+	private static ArrayList<Long> primes = new ArrayList<Long>();	// primes found so far, in descending order
+	
+	private int[] pivots;	// pivot columns of the last modular elimination
+	
+	/**
+	 * Computes the row reduced echelon form of a given matrix.
+	 * 
+	 * @param matrix The matrix whose row reduced echelon form is to be computed.
+	 * @return The row reduced echelon form of matrix.
+	 */
+	public MyRationalNumber[][] rref(MyRationalNumber[][] matrix) throws Exception{
+		BigInteger[][] integer_matrix = MyModularMath.toIntegerMatrix(matrix, null);
+		int n = integer_matrix.length;
+		int m = integer_matrix[0].length;
+		
+		int[] pivots = null;
+		BigInteger[][] residues = null;
+		BigInteger modulus = null;
+		for (int k = 0; ; k++){
+			long p = MyModularMath.getPrime(k);
+			long[][] rref = this.rref(integer_matrix, p);
+			int[] new_pivots = this.pivots;
+			
+			// a prime is unlucky if it yields fewer pivots or pivots further right, start over with a better prime
+			int c = pivots == null ? 1 : MyModularMath.comparePivots(new_pivots, pivots);
+			if (c < 0)
+				continue;
+			if (c > 0){
+				pivots = new_pivots;
+				residues = new BigInteger[pivots.length][m];
+				for (int i = 0; i < pivots.length; i++)
+					for (int j = 0; j < m; j++)
+						residues[i][j] = BigInteger.valueOf(rref[i][j]);
+				modulus = BigInteger.valueOf(p);
+			} else {
+				MyModularMath.combine(residues, modulus, rref, p);
+				modulus = modulus.multiply(BigInteger.valueOf(p));
+			}
+			
+			MyRationalNumber[][] candidate = MyModularMath.reconstruct(residues, modulus);
+			if (candidate != null && MyModularMath.verify(integer_matrix, candidate, pivots)){
+				MyRationalNumber[][] ret = new MyRationalNumber[n][m];
+				for (int i = 0; i < n; i++)
+					for (int j = 0; j < m; j++)
+						ret[i][j] = i < pivots.length ? candidate[i][j] : MyRationalNumber.valueOf(0);
+				
+				return ret;
+			}
+		}
+	}
+	
+	/**
+	 * Computes the rank of a given matrix. The rank modulo a prime is never larger than the
+	 * rank over the rationals, so the larger of the ranks modulo two primes is a lower bound.
+	 * If it is not the full rank, the row reduced echelon form is reconstructed and verified.
+	 * 
+	 * @param matrix The matrix whose rank is to be computed.
+	 * @return The rank of the given matrix.
+	 */
+	public int rank(MyRationalNumber[][] matrix) throws Exception{
+		BigInteger[][] integer_matrix = MyModularMath.toIntegerMatrix(matrix, null);
+		
+		int ret = 0;
+		for (int k = 0; k < 2; k++){
+			this.rref(integer_matrix, MyModularMath.getPrime(k));
+			ret = Math.max(ret, this.pivots.length);
+		}
+		
+		if (ret == Math.min(integer_matrix.length, integer_matrix[0].length))
+			return ret;
+		
+		MyRationalNumber[][] rref = this.rref(matrix);
+		ret = 0;
+		while (ret < rref.length && !MyModularMath.isZeroRow(rref[ret]))
+			ret++;
+		
+		return ret;
+	}
+	
+	/**
+	 * Performs Gauss-Jordan elimination modulo a prime, the pivot
+	 * columns are stored in the field pivots.
+	 * 
+	 * @param matrix The integer matrix.
+	 * @param p The prime, smaller than 2^31.
+	 * @return The non-zero rows of the row reduced echelon form modulo p.
+	 */
+	private long[][] rref(BigInteger[][] matrix, long p){
+		int n = matrix.length;
+		int m = matrix[0].length;
+		
+		BigInteger big_p = BigInteger.valueOf(p);
+		long[][] a = new long[n][m];
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < m; j++)
+				a[i][j] = matrix[i][j].mod(big_p).longValue();
+		
+		int[] pivots = new int[Math.min(n, m)];
+		int i = 0;
+		for (int j = 0; j < m && i < n; j++){
+			int k = i;
+			while (k < n && a[k][j] == 0)
+				k++;
+			if (k == n)
+				continue;
+			
+			long[] swap = a[i];
+			a[i] = a[k];
+			a[k] = swap;
+			
+			long inverse = MyModularMath.inverse(a[i][j], p);
+			for (int l = j; l < m; l++)
+				a[i][l] = a[i][l]*inverse % p;
+			
+			for (k = 0; k < n; k++){
+				long factor = a[k][j];
+				if (k == i || factor == 0)
+					continue;
+				
+				for (int l = j; l < m; l++)
+					if (a[i][l] != 0)
+						a[k][l] = (a[k][l] + (p - factor)*a[i][l]) % p;
+			}
+			
+			pivots[i++] = j;
+		}
+		
+		this.pivots = Arrays.copyOf(pivots, i);
+		
+		return Arrays.copyOf(a, i);
+	}
+	
+	/**
+	 * Compares two sets of pivot columns. The pivots over the rationals are the most
+	 * and the leftmost pivots found modulo any prime.
+	 * 
+	 * @return A positive value if pivots1 is better, a negative if pivots2 is better, 0 if equal.
+	 */
+	private static int comparePivots(int[] pivots1, int[] pivots2){
+		if (pivots1.length != pivots2.length)
+			return pivots1.length - pivots2.length;
+		
+		for (int i = 0; i < pivots1.length; i++)
+			if (pivots1[i] != pivots2[i])
+				return pivots2[i] - pivots1[i];
+		
+		return 0;
+	}
+	
+	/**
+	 * Combines the residues modulo the modulus with the residues modulo p by the chinese
+	 * remainder theorem, the residues are replaced by the residues modulo modulus*p.
+	 */
+	private static void combine(BigInteger[][] residues, BigInteger modulus, long[][] rref, long p){
+		BigInteger big_p = BigInteger.valueOf(p);
+		long inverse = MyModularMath.inverse(modulus.mod(big_p).longValue(), p);
+		for (int i = 0; i < residues.length; i++){
+			for (int j = 0; j < residues[i].length; j++){
+				long x = residues[i][j].mod(big_p).longValue();
+				long t = (rref[i][j] - x + p) % p*inverse % p;
+				if (t != 0)
+					residues[i][j] = residues[i][j].add(modulus.multiply(BigInteger.valueOf(t)));
+			}
+		}
+	}
+	
+	/**
+	 * Reconstructs rational numbers from their residues.
+	 * 
+	 * @return The rational numbers, null if one of the residues cannot be reconstructed yet.
+	 */
+	private static MyRationalNumber[][] reconstruct(BigInteger[][] residues, BigInteger modulus){
+		BigInteger bound = MyModularMath.sqrt(modulus.shiftRight(1));
+		
+		MyRationalNumber[][] ret = new MyRationalNumber[residues.length][];
+		for (int i = 0; i < residues.length; i++){
+			ret[i] = new MyRationalNumber[residues[i].length];
+			for (int j = 0; j < residues[i].length; j++){
+				ret[i][j] = MyModularMath.reconstruct(residues[i][j], modulus, bound);
+				if (ret[i][j] == null)
+					return null;
+			}
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Finds the rational number n/d with |n|, d <= bound and n = d*x modulo the modulus by
+	 * the extended euclidean algorithm.
+	 * 
+	 * @return The rational number, null if there is none.
+	 */
+	private static MyRationalNumber reconstruct(BigInteger x, BigInteger modulus, BigInteger bound){
+		if (x.signum() == 0)
+			return MyRationalNumber.valueOf(0);
+		
+		BigInteger r0 = modulus;
+		BigInteger r1 = x;
+		BigInteger t0 = BigInteger.ZERO;
+		BigInteger t1 = BigInteger.ONE;
+		while (r1.compareTo(bound) > 0){
+			BigInteger[] qr = r0.divideAndRemainder(r1);
+			r0 = r1;
+			r1 = qr[1];
+			BigInteger t = t0.subtract(qr[0].multiply(t1));
+			t0 = t1;
+			t1 = t;
+		}
+		
+		if (t1.signum() == 0 || t1.abs().compareTo(bound) > 0 || !r1.gcd(t1).equals(BigInteger.ONE))
+			return null;
+		
+		if (t1.signum() < 0)
+			return new MyRationalNumber(r1.negate(), t1.negate());
+		
+		return new MyRationalNumber(r1, t1);
+	}
+	
+	/**
+	 * Verifies a candidate for the row reduced echelon form. Each row a of the matrix must be
+	 * the combination of the candidate rows with the entries of a in the pivot columns as
+	 * coefficients. Then the row space of the matrix is contained in the row space of the
+	 * candidate, and since the rank is at least the number of pivots, both are equal.
+	 * 
+	 * @return True if the candidate is the row reduced echelon form of the matrix.
+	 */
+	private static boolean verify(BigInteger[][] matrix, MyRationalNumber[][] candidate, int[] pivots){
+		int m = matrix[0].length;
+		
+		// the pivot columns of the candidate must be unit vectors
+		for (int i = 0; i < pivots.length; i++)
+			for (int k = 0; k < pivots.length; k++)
+				if (i == k ? !candidate[k][pivots[i]].isOne() : !candidate[k][pivots[i]].isZero())
+					return false;
+		
+		// bring the candidate to a common denominator
+		BigInteger denominator = BigInteger.ONE;
+		for (int i = 0; i < candidate.length; i++)
+			for (int j = 0; j < m; j++)
+				denominator = MyModularMath.lcm(denominator, candidate[i][j].getDenominator());
+		
+		BigInteger[][] numerators = new BigInteger[candidate.length][m];
+		for (int i = 0; i < candidate.length; i++)
+			for (int j = 0; j < m; j++)
+				numerators[i][j] = candidate[i][j].getNumerator().multiply(denominator.divide(candidate[i][j].getDenominator()));
+		
+		for (int i = 0; i < matrix.length; i++){
+			for (int j = 0; j < m; j++){
+				BigInteger sum = BigInteger.ZERO;
+				for (int k = 0; k < pivots.length; k++)
+					if (matrix[i][pivots[k]].signum() != 0 && numerators[k][j].signum() != 0)
+						sum = sum.add(matrix[i][pivots[k]].multiply(numerators[k][j]));
+				
+				if (!sum.equals(matrix[i][j].multiply(denominator)))
+					return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Multiplies each row of a rational matrix by the least common multiple of its
+	 * denominators. This does not change the rank or the row reduced echelon form.
+	 * 
+	 * @param matrix The rational matrix.
+	 * @param multiples Array receiving the multiple of each row, may be null.
+	 * @return The integer matrix.
+	 */
+	static BigInteger[][] toIntegerMatrix(MyRationalNumber[][] matrix, BigInteger[] multiples){
+		BigInteger[][] ret = new BigInteger[matrix.length][matrix[0].length];
+		for (int i = 0; i < matrix.length; i++){
+			BigInteger multiple = BigInteger.ONE;
+			for (int j = 0; j < matrix[i].length; j++)
+				multiple = MyModularMath.lcm(multiple, matrix[i][j].getDenominator());
+			
+			for (int j = 0; j < matrix[i].length; j++)
+				ret[i][j] = matrix[i][j].getNumerator().multiply(multiple.divide(matrix[i][j].getDenominator()));
+			
+			if (multiples != null)
+				multiples[i] = multiple;
+		}
+		
+		return ret;
+	}
+	
+	private static boolean isZeroRow(MyRationalNumber[] row){
+		for (int j = 0; j < row.length; j++)
+			if (!row[j].isZero())
+				return false;
+		
+		return true;
+	}
+	
+	private static BigInteger lcm(BigInteger a, BigInteger b){
+		b = b.abs();
+		if (b.equals(BigInteger.ONE) || b.equals(a))
+			return a;
+		
+		return a.divide(a.gcd(b)).multiply(b);
+	}
+	
+	private static BigInteger sqrt(BigInteger x){
+		BigInteger ret = BigInteger.ONE.shiftLeft(x.bitLength()/2 + 1);
+		while (true){
+			BigInteger next = ret.add(x.divide(ret)).shiftRight(1);
+			if (next.compareTo(ret) >= 0)
+				return ret;
+			ret = next;
+		}
+	}
+	
+	/**
+	 * Computes the inverse of a modulo p by the extended euclidean algorithm.
+	 */
+	private static long inverse(long a, long p){
+		long r0 = p;
+		long r1 = a;
+		long t0 = 0;
+		long t1 = 1;
+		while (r1 != 0){
+			long q = r0/r1;
+			long r = r0 - q*r1;
+			r0 = r1;
+			r1 = r;
+			long t = t0 - q*t1;
+			t0 = t1;
+			t1 = t;
+		}
+		
+		return t0 < 0 ? t0 + p : t0;
+	}
+	
+	/**
+	 * Gets the k-th prime below 2^31.
+	 * 
+	 * @param k The index of the prime.
+	 * @return The prime.
+	 */
+	private static synchronized long getPrime(int k){
+		long candidate = MyModularMath.primes.isEmpty() ? MyModularMath.FIRST_PRIME : MyModularMath.primes.get(MyModularMath.primes.size() - 1) - 2;
+		while (MyModularMath.primes.size() <= k){
+			if (BigInteger.valueOf(candidate).isProbablePrime(50))
+				MyModularMath.primes.add(candidate);
+			candidate = candidate - 2;
+		}
+		
+		return MyModularMath.primes.get(k);
+	}
+}
@@ -0,0 +1,392 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.linalg;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import math.field.MyRationalNumber;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ * The class MyMultiplication.
+ * Matrix multiplication kernels specialised by entry type. The dense kernels
+ * work on row-major primitive arrays and run over blocks of output columns and
+ * of the inner dimension, such that the used parts of both factors stay in the
+ * cache. The sums are always accumulated in ascending order of the inner index,
+ * hence the results do not depend on the blocking or on the parallelisation.
+ * Large products are computed in parallel over blocks of output columns, an
+ * instance holds the threshold from which on its products are computed in
+ * parallel.
+ */
+public class MyMultiplication {
+	public static final int PARALLEL_THRESHOLD = 1 << 16;	// default number of multiplications from which products are computed in parallel
+	public static final int BLOCK_SIZE = 64;				// number of columns and inner indices per block
+	
+	private static final int DOUBLE = 0;
+	private static final int LONG = 1;
+	private static final int RATIONAL = 2;
+	private static final int SPARSE_DENSE = 3;
+	private static final int SPARSE_SPARSE = 4;
+	
+	private int parallel_threshold = MyMultiplication.PARALLEL_THRESHOLD;
+	
+	private int type;
+	private int n;	// height of the first factor
+	private int l;	// width of the first factor, height of the second factor
+	private int m;	// width of the second factor
+	
+	private double[] double_a;
+	private double[] double_b;
+	private double[] double_c;
+	private long[] long_a;
+	private long[] long_b;
+	private long[] long_c;
+	private MyRationalNumber[] rational_a;
+	private MyRationalNumber[] rational_b;
+	private MyRationalNumber[] rational_c;
+	private MySparseMatrix<?,?> sparse_a;
+	private MySparseMatrix<?,?> sparse_b;
+	private int[][] sparse_indices;		// row indices of the computed columns of a sparse product
+	private double[][] sparse_values;	// values of the computed columns of a sparse product
+	
+	/**
+	 * Constructor. Products of at least MyMultiplication.PARALLEL_THRESHOLD
+	 * multiplications are computed in parallel.
+	 */
+	public MyMultiplication(){
+	}
+	
+	/**
+	 * Constructor of the instance computing a single product.
+	 */
+	private MyMultiplication(int type, int n, int l, int m, int parallel_threshold){
+		this.type = type;
+		this.n = n;
+		this.l = l;
+		this.m = m;
+		this.parallel_threshold = parallel_threshold;
+	}
+	
+	/**
+	 * Sets the number of multiplications from which products are computed in parallel.
+	 * Integer.MAX_VALUE switches the parallel computation off. The results do not depend on it.
+	 * 
+	 * @param parallel_threshold The threshold.
+	 */
+	public void setParallelThreshold(int parallel_threshold){
+		this.parallel_threshold = parallel_threshold;
+	}
+	
+	public int getParallelThreshold(){
+		return this.parallel_threshold;
+	}
+	
+	/**
+	 * Multiplies two row-major double matrices.
+	 * 
+	 * @param a The first factor of height n and width l.
+	 * @param b The second factor of height l and width m.
+	 * 
+	 * @return The row-major product of height n and width m.
+	 */
+	public double[] mul(double[] a, double[] b, int n, int l, int m){
+		MyMultiplication multiplication = new MyMultiplication(MyMultiplication.DOUBLE, n, l, m, this.parallel_threshold);
+		multiplication.double_a = a;
+		multiplication.double_b = b;
+		multiplication.double_c = new double[n*m];
+		multiplication.compute((long)n*l*m);
+		
+		return multiplication.double_c;
+	}
+	
+	/**
+	 * Multiplies two row-major integer matrices exactly.
+	 * 
+	 * @param a The first factor of height n and width l.
+	 * @param b The second factor of height l and width m.
+	 * 
+	 * @return The row-major product of height n and width m.
+	 * @throws ArithmeticException If a product or a sum does not fit into a long.
+	 */
+	public long[] mul(long[] a, long[] b, int n, int l, int m){
+		MyMultiplication multiplication = new MyMultiplication(MyMultiplication.LONG, n, l, m, this.parallel_threshold);
+		multiplication.long_a = a;
+		multiplication.long_b = b;
+		multiplication.long_c = new long[n*m];
+		multiplication.compute((long)n*l*m);
+		
+		return multiplication.long_c;
+	}
+	
+	/**
+	 * Multiplies two row-major rational matrices. The factors are not changed.
+	 * 
+	 * @param a The first factor of height n and width l.
+	 * @param b The second factor of height l and width m.
+	 * 
+	 * @return The row-major product of height n and width m.
+	 */
+	public MyRationalNumber[] mul(MyRationalNumber[] a, MyRationalNumber[] b, int n, int l, int m){
+		MyMultiplication multiplication = new MyMultiplication(MyMultiplication.RATIONAL, n, l, m, this.parallel_threshold);
+		multiplication.rational_a = a;
+		multiplication.rational_b = b;
+		multiplication.rational_c = new MyRationalNumber[n*m];
+		multiplication.compute((long)n*l*m);
+		
+		MyRationalNumber[] ret = multiplication.rational_c;
+		for (int k = 0; k < ret.length; k++)
+			if (ret[k] == null)
+				ret[k] = MyRationalNumber.valueOf(0);
+		
+		return ret;
+	}
+	
+	/**
+	 * Multiplies a sparse matrix with a dense matrix. The columns of A and the
+	 * rows of B are matched by index.
+	 * 
+	 * @param A The sparse first factor.
+	 * @param B The dense second factor.
+	 * 
+	 * @return The dense product.
+	 * @throws Exception
+	 */
+	public <FirstD,SecondD,ThirdD> MyDenseMatrix<FirstD,ThirdD> mul(MySparseMatrix<FirstD,SecondD> A, MyDenseMatrix<SecondD,ThirdD> B) throws Exception{
+		if (A.getWidth() != B.getHeight())
+			throw new Exception("dimensions do not match: width = " + A.getWidth() + ", height = " + B.getHeight());
+		
+		MyMultiplication multiplication = new MyMultiplication(MyMultiplication.SPARSE_DENSE, A.getHeight(), A.getWidth(), B.getWidth(), this.parallel_threshold);
+		multiplication.sparse_a = A;
+		A.getColumnIndices();	// makes the row storage before the columns are computed in parallel
+		multiplication.double_b = B.getRowMajorValues();
+		multiplication.double_c = new double[A.getHeight()*B.getWidth()];
+		multiplication.compute((long)A.getNumberOfNonZeros()*B.getWidth());
+		
+		return new MyDenseMatrix<FirstD,ThirdD>(A.getFirstDimensionSet(), B.getSecondDimensionSet(), multiplication.double_c);
+	}
+	
+	/**
+	 * Multiplies two sparse matrices column by column. The columns of A and the
+	 * rows of B are matched by index.
+	 * 
+	 * @param A The sparse first factor.
+	 * @param B The sparse second factor.
+	 * 
+	 * @return The sparse product.
+	 * @throws Exception
+	 */
+	public <FirstD,SecondD,ThirdD> MySparseMatrix<FirstD,ThirdD> mul(MySparseMatrix<FirstD,SecondD> A, MySparseMatrix<SecondD,ThirdD> B) throws Exception{
+		if (A.getWidth() != B.getHeight())
+			throw new Exception("dimensions do not match: width = " + A.getWidth() + ", height = " + B.getHeight());
+		
+		MyMultiplication multiplication = new MyMultiplication(MyMultiplication.SPARSE_SPARSE, A.getHeight(), A.getWidth(), B.getWidth(), this.parallel_threshold);
+		multiplication.sparse_a = A;
+		multiplication.sparse_b = B;
+		multiplication.sparse_indices = new int[B.getWidth()][];
+		multiplication.sparse_values = new double[B.getWidth()][];
+		
+		// estimate of the number of multiplications
+		long work = 0;
+		for (int j = 0; j < B.getWidth(); j++)
+			for (int k = B.getColumnStart(j); k < B.getColumnEnd(j); k++)
+				work += A.getColumnEnd(B.getRowIndices()[k]) - A.getColumnStart(B.getRowIndices()[k]);
+		multiplication.compute(work);
+		
+		int capacity = 0;
+		for (int j = 0; j < B.getWidth(); j++)
+			capacity += multiplication.sparse_indices[j].length;
+		
+		MySparseMatrix<FirstD,ThirdD> ret = new MySparseMatrix<FirstD,ThirdD>(A.getFirstDimensionSet(), B.getSecondDimensionSet(), capacity);
+		for (int j = 0; j < B.getWidth(); j++)
+			ret.appendColumn(multiplication.sparse_indices[j], multiplication.sparse_values[j], multiplication.sparse_indices[j].length);
+		
+		return ret;
+	}
+	
+	private void compute(long work){
+		if (work >= this.parallel_threshold && this.m > MyMultiplication.BLOCK_SIZE){
+			int columns_per_task = Math.max(MyMultiplication.BLOCK_SIZE, this.m/(4*ForkJoinPool.getCommonPoolParallelism()));
+			ForkJoinPool.commonPool().invoke(new ColumnTask(this, 0, this.m, columns_per_task));
+		} else
+			this.multiply(0, this.m);
+	}
+	
+	/**
+	 * Computes the output columns from to to - 1.
+	 */
+	private void multiply(int from, int to){
+		for (int block = from; block < to; block += MyMultiplication.BLOCK_SIZE){
+			int end = Math.min(block + MyMultiplication.BLOCK_SIZE, to);
+			switch (this.type){
+			case MyMultiplication.DOUBLE: this.multiplyDouble(block, end); break;
+			case MyMultiplication.LONG: this.multiplyLong(block, end); break;
+			case MyMultiplication.RATIONAL: this.multiplyRational(block, end); break;
+			case MyMultiplication.SPARSE_DENSE: this.multiplySparseDense(block, end); break;
+			case MyMultiplication.SPARSE_SPARSE: this.multiplySparseSparse(block, end); break;
+			}
+		}
+	}
+	
+	private void multiplyDouble(int from, int to){
+		for (int inner = 0; inner < this.l; inner += MyMultiplication.BLOCK_SIZE){
+			int inner_end = Math.min(inner + MyMultiplication.BLOCK_SIZE, this.l);
+			for (int i = 0; i < this.n; i++){
+				int offset = i*this.m;
+				for (int k = inner; k < inner_end; k++){
+					double a = this.double_a[i*this.l + k];
+					if (a == 0)
+						continue;
+					
+					int base = k*this.m;
+					for (int j = from; j < to; j++)
+						this.double_c[offset + j] += a*this.double_b[base + j];
+				}
+			}
+		}
+	}
+	
+	private void multiplyLong(int from, int to){
+		for (int inner = 0; inner < this.l; inner += MyMultiplication.BLOCK_SIZE){
+			int inner_end = Math.min(inner + MyMultiplication.BLOCK_SIZE, this.l);
+			for (int i = 0; i < this.n; i++){
+				int offset = i*this.m;
+				for (int k = inner; k < inner_end; k++){
+					long a = this.long_a[i*this.l + k];
+					if (a == 0)
+						continue;
+					
+					int base = k*this.m;
+					for (int j = from; j < to; j++)
+						if (this.long_b[base + j] != 0)
+							this.long_c[offset + j] = Math.addExact(this.long_c[offset + j], Math.multiplyExact(a, this.long_b[base + j]));
+				}
+			}
+		}
+	}
+	
+	private void multiplyRational(int from, int to){
+		for (int inner = 0; inner < this.l; inner += MyMultiplication.BLOCK_SIZE){
+			int inner_end = Math.min(inner + MyMultiplication.BLOCK_SIZE, this.l);
+			for (int i = 0; i < this.n; i++){
+				int offset = i*this.m;
+				for (int k = inner; k < inner_end; k++){
+					MyRationalNumber a = this.rational_a[i*this.l + k];
+					if (a.isZero())
+						continue;
+					
+					int base = k*this.m;
+					for (int j = from; j < to; j++){
+						MyRationalNumber b = this.rational_b[base + j];
+						if (b.isZero())
+							continue;
+						
+						if (this.rational_c[offset + j] == null)
+							this.rational_c[offset + j] = a.clone().mul(b);
+						else
+							this.rational_c[offset + j].add(a.clone().mul(b));
+					}
+				}
+			}
+		}
+	}
+	
+	private void multiplySparseDense(int from, int to){
+		int[] column_indices = this.sparse_a.getColumnIndices();
+		double[] row_values = this.sparse_a.getRowValues();
+		for (int i = 0; i < this.n; i++){
+			int offset = i*this.m;
+			for (int k = this.sparse_a.getRowStart(i); k < this.sparse_a.getRowEnd(i); k++){
+				double a = row_values[k];
+				int base = column_indices[k]*this.m;
+				for (int j = from; j < to; j++)
+					this.double_c[offset + j] += a*this.double_b[base + j];
+			}
+		}
+	}
+	
+	private void multiplySparseSparse(int from, int to){
+		int[] row_indices_a = this.sparse_a.getRowIndices();
+		double[] column_values_a = this.sparse_a.getColumnValues();
+		int[] row_indices_b = this.sparse_b.getRowIndices();
+		double[] column_values_b = this.sparse_b.getColumnValues();
+		
+		double[] accumulator = new double[this.n];
+		boolean[] occupied = new boolean[this.n];
+		int[] indices = new int[this.n];
+		for (int j = from; j < to; j++){
+			int length = 0;
+			for (int k = this.sparse_b.getColumnStart(j); k < this.sparse_b.getColumnEnd(j); k++){
+				int column = row_indices_b[k];
+				double b = column_values_b[k];
+				for (int p = this.sparse_a.getColumnStart(column); p < this.sparse_a.getColumnEnd(column); p++){
+					int i = row_indices_a[p];
+					if (!occupied[i]){
+						occupied[i] = true;
+						indices[length++] = i;
+					}
+					accumulator[i] += column_values_a[p]*b;
+				}
+			}
+			
+			Arrays.sort(indices, 0, length);
+			this.sparse_indices[j] = Arrays.copyOf(indices, length);
+			this.sparse_values[j] = new double[length];
+			for (int k = 0; k < length; k++){
+				int i = indices[k];
+				this.sparse_values[j][k] = accumulator[i];
+				accumulator[i] = 0;
+				occupied[i] = false;
+			}
+		}
+	}
+	
+	private static class ColumnTask extends RecursiveAction{
+		private static final long serialVersionUID = 1L;
+		
+		private MyMultiplication multiplication;
+		private int from;
+		private int to;
+		private int columns_per_task;
+		
+		public ColumnTask(MyMultiplication multiplication, int from, int to, int columns_per_task){
+			this.multiplication = multiplication;
+			this.from = from;
+			this.to = to;
+			this.columns_per_task = columns_per_task;
+		}
+		
+		protected void compute(){
+			if (this.to - this.from <= this.columns_per_task){
+				this.multiplication.multiply(this.from, this.to);
+				return;
+			}
+			
+			// split at a block boundary
+			int middle = this.from + ((this.to - this.from)/(2*MyMultiplication.BLOCK_SIZE))*MyMultiplication.BLOCK_SIZE;
+			if (middle == this.from)
+				middle = (this.from + this.to) >>> 1;
+			RecursiveAction.invokeAll(new ColumnTask(this.multiplication, this.from, middle, this.columns_per_task), new ColumnTask(this.multiplication, middle, this.to, this.columns_per_task));
+		}
+	}
+}
@@ -0,0 +1,370 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.linalg;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.logging.Level;
+
+import ch.javasoft.polco.adapter.Options;
+import ch.javasoft.polco.adapter.PolcoAdapter;
+import math.field.MyRationalNumber;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ * The class MyNetworkCompression.
+ * Compresses a stoichiometric matrix of irreversible reactions before the elementary
+ * flux modes are computed. Reactions which cannot carry a steady-state flux are removed,
+ * i.e., reactions of dead-end species, which are only produced or only consumed, and
+ * reactions whose rows in the kernel vanish. Reactions with proportional fluxes in each
+ * steady state are lumped, i.e., the two reactions of a species occurring in exactly two
+ * reactions (linear chains) and fully coupled reactions with proportional kernel rows.
+ * The extreme rays of the compressed matrix are expanded to the original reactions.
+ */
+public class MyNetworkCompression {
+	private int height;		// number of species
+	private int width;		// number of original reactions
+	
+	private ArrayList<MyRationalNumber[]> columns;				// columns of the lumped reactions, null entries are zeros
+	private ArrayList<ArrayList<Integer>> members;				// original reactions of each lumped reaction
+	private ArrayList<ArrayList<MyRationalNumber>> factors;		// flux of a member = factor*flux of the lumped reaction
+	
+	/**
+	 * Constructor. Compresses the given matrix.
+	 * 
+	 * @param matrix The stoichiometric matrix, the columns are the irreversible reactions.
+	 * @throws Exception
+	 */
+	public MyNetworkCompression(double[][] matrix) throws Exception{
+		this.height = matrix.length;
+		this.width = this.height > 0 ? matrix[0].length : 0;
+		
+		this.columns = new ArrayList<MyRationalNumber[]>();
+		this.members = new ArrayList<ArrayList<Integer>>();
+		this.factors = new ArrayList<ArrayList<MyRationalNumber>>();
+		for (int j = 0; j < this.width; j++){
+			MyRationalNumber[] column = new MyRationalNumber[this.height];
+			for (int i = 0; i < this.height; i++)
+				if (matrix[i][j] != 0)
+					column[i] = new MyRationalNumber(matrix[i][j]);
+			this.columns.add(column);
+			
+			ArrayList<Integer> member = new ArrayList<Integer>();
+			member.add(j);
+			this.members.add(member);
+			ArrayList<MyRationalNumber> factor = new ArrayList<MyRationalNumber>();
+			factor.add(MyRationalNumber.valueOf(1));
+			this.factors.add(factor);
+		}
+		
+		boolean changed = true;
+		while (changed){
+			changed = this.removeDeadEnds();
+			if (!changed)
+				changed = this.lumpCoupledReactions();
+		}
+		
+		this.normalize();
+	}
+	
+	/**
+	 * Gets the number of reactions of the compressed matrix.
+	 * 
+	 * @return The number of lumped reactions.
+	 */
+	public int getNumberOfReactions(){
+		return this.columns.size();
+	}
+	
+	/**
+	 * Gets the compressed matrix. Its columns are the lumped reactions scaled to
+	 * integers, its rows are the species which occur in a lumped reaction.
+	 * 
+	 * @return The compressed matrix, at least one row.
+	 */
+	public double[][] getCompressedMatrix(){
+		ArrayList<Integer> rows = new ArrayList<Integer>();
+		for (int i = 0; i < this.height; i++)
+			if (!this.isZeroRow(i))
+				rows.add(i);
+		
+		double[][] ret = new double[Math.max(1, rows.size())][this.columns.size()];
+		for (int k = 0; k < rows.size(); k++)
+			for (int j = 0; j < this.columns.size(); j++)
+				if (this.columns.get(j)[rows.get(k)] != null)
+					ret[k][j] = this.columns.get(j)[rows.get(k)].getRatio();
+		
+		return ret;
+	}
+	
+	/**
+	 * Expands vectors of the compressed matrix to the original reactions.
+	 * 
+	 * @param rays The vectors, rays[k][j] is the flux of lumped reaction j in vector k.
+	 * @return The vectors of the original reactions, removed reactions have zero flux.
+	 */
+	public double[][] expand(double[][] rays){
+		double[][] ret = new double[rays.length][this.width];
+		for (int k = 0; k < rays.length; k++)
+			for (int j = 0; j < this.columns.size(); j++)
+				for (int l = 0; l < this.members.get(j).size(); l++)
+					ret[k][this.members.get(j).get(l)] = this.factors.get(j).get(l).getRatio()*rays[k][j];
+		
+		return ret;
+	}
+	
+	/**
+	 * Computes the extreme rays of the compressed matrix using polco and expands
+	 * them to the original reactions.
+	 * 
+	 * @return The extreme rays, rays[k][j] is the flux of reaction j in ray k.
+	 * @throws Exception
+	 */
+	public double[][] getExtremeRays() throws Exception{
+		if (this.columns.size() == 0)
+			return new double[0][this.width];
+		
+		double[][] eq = this.getCompressedMatrix();	//the coefficients of the system equalities
+		double[][] iq = new double[this.columns.size()][this.columns.size()];	//the coefficients of the system inequalities
+		for (int j = 0; j < this.columns.size(); j++)
+			iq[j][j] = 1.0;
+		Options opts = new Options();
+		opts.setLoglevel(Level.FINE);
+		opts.setLogFile(new File("/tmp/polco.log"));
+		PolcoAdapter polco = new PolcoAdapter(opts);
+		
+		return this.expand(polco.getDoubleRays(eq, iq));
+	}
+	
+	/**
+	 * Removes the reactions of dead-end species and lumps the two reactions of
+	 * species occurring in exactly two reactions, until nothing changes.
+	 * 
+	 * @return True if the matrix was changed, false otherwise.
+	 */
+	private boolean removeDeadEnds() throws Exception{
+		boolean ret = false;
+		boolean changed = true;
+		while (changed){
+			changed = false;
+			for (int i = 0; i < this.height; i++){
+				ArrayList<Integer> reactions = new ArrayList<Integer>();
+				boolean produced = false;
+				boolean consumed = false;
+				for (int j = 0; j < this.columns.size(); j++){
+					MyRationalNumber entry = this.columns.get(j)[i];
+					if (entry == null || entry.isZero())
+						continue;
+					
+					reactions.add(j);
+					produced = produced || entry.signum() > 0;
+					consumed = consumed || entry.signum() < 0;
+				}
+				
+				if (reactions.size() == 0 || (produced && consumed && reactions.size() > 2))
+					continue;
+				
+				if (!produced || !consumed){
+					// the species cannot be balanced, the reactions are blocked
+					for (int k = reactions.size() - 1; k >= 0; k--)
+						this.remove(reactions.get(k));
+				} else {
+					// linear chain: a*v_a + b*v_b = 0 gives v_b = -a/b*v_a
+					int a = reactions.get(0);
+					int b = reactions.get(1);
+					MyRationalNumber ratio = this.columns.get(a)[i].clone().div(this.columns.get(b)[i]).neg();
+					this.lump(a, b, ratio);
+				}
+				changed = true;
+				ret = true;
+			}
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Removes the reactions whose rows in the kernel vanish and lumps reactions with
+	 * proportional kernel rows. Candidates are grouped by their normalised kernel rows,
+	 * the coupling of each pair is confirmed by MyMath.isCoupled.
+	 * 
+	 * @return True if the matrix was changed, false otherwise.
+	 */
+	private boolean lumpCoupledReactions() throws Exception{
+		if (this.columns.size() == 0)
+			return false;
+		
+		ArrayList<Integer> rows = new ArrayList<Integer>();
+		for (int i = 0; i < this.height; i++)
+			if (!this.isZeroRow(i))
+				rows.add(i);
+		if (rows.size() == 0)
+			return false;
+		
+		MyRationalNumber[][] matrix = new MyRationalNumber[rows.size()][this.columns.size()];
+		for (int k = 0; k < rows.size(); k++){
+			for (int j = 0; j < this.columns.size(); j++){
+				MyRationalNumber entry = this.columns.get(j)[rows.get(k)];
+				matrix[k][j] = entry == null ? MyRationalNumber.valueOf(0) : entry.clone();
+			}
+		}
+		
+		MyMath math = new MyMath(MyMath.MODULAR);
+		MyRationalNumber[][] kernel = math.kernel(matrix);
+		
+		boolean[] blocked = new boolean[this.columns.size()];
+		int[] representatives = new int[this.columns.size()];
+		MyRationalNumber[] ratios = new MyRationalNumber[this.columns.size()];
+		HashMap<String,Integer> groups = new HashMap<String,Integer>();
+		boolean ret = false;
+		for (int j = 0; j < this.columns.size(); j++){
+			representatives[j] = j;
+			
+			// normalise the row by its first non-zero entry
+			MyRationalNumber first = null;
+			StringBuffer key = new StringBuffer();
+			for (int k = 0; k < kernel[j].length; k++){
+				if (first == null && !kernel[j][k].isZero())
+					first = kernel[j][k];
+				if (first == null || kernel[j][k].isZero()){
+					key.append("0,");
+					continue;
+				}
+				
+				MyRationalNumber entry = kernel[j][k].clone().div(first);
+				BigInteger numerator = entry.getNumerator();
+				BigInteger denominator = entry.getDenominator();
+				if (denominator.signum() < 0){
+					numerator = numerator.negate();
+					denominator = denominator.negate();
+				}
+				key.append(numerator).append("/").append(denominator).append(",");
+			}
+			
+			if (first == null){
+				blocked[j] = true;
+				ret = true;
+				continue;
+			}
+			
+			Integer representative = groups.get(key.toString());
+			if (representative == null){
+				groups.put(key.toString(), j);
+				continue;
+			}
+			
+			if (!math.isCoupled(kernel, j, representative))
+				continue;
+			
+			// v_j = ratio*v_representative, with both fluxes non-negative a negative ratio blocks both
+			MyRationalNumber ratio = math.getRatio(kernel, j, representative);
+			if (ratio.signum() < 0){
+				blocked[j] = true;
+				blocked[representative] = true;
+			} else {
+				representatives[j] = representative;
+				ratios[j] = ratio;
+			}
+			ret = true;
+		}
+		
+		for (int j = this.columns.size() - 1; j >= 0; j--){
+			if (blocked[j] || blocked[representatives[j]])
+				this.remove(j);
+			else if (representatives[j] != j)
+				this.lump(representatives[j], j, ratios[j]);
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Lumps reaction b into reaction a, where v_b = ratio*v_a. Reaction b is removed.
+	 */
+	private void lump(int a, int b, MyRationalNumber ratio){
+		MyRationalNumber[] column = this.columns.get(a);
+		MyRationalNumber[] other = this.columns.get(b);
+		for (int i = 0; i < this.height; i++){
+			if (other[i] == null)
+				continue;
+			
+			MyRationalNumber term = other[i].clone().mul(ratio);
+			if (column[i] == null)
+				column[i] = term;
+			else
+				column[i].add(term);
+		}
+		
+		for (int l = 0; l < this.members.get(b).size(); l++){
+			this.members.get(a).add(this.members.get(b).get(l));
+			this.factors.get(a).add(this.factors.get(b).get(l).clone().mul(ratio));
+		}
+		
+		this.remove(b);
+	}
+	
+	private void remove(int j){
+		this.columns.remove(j);
+		this.members.remove(j);
+		this.factors.remove(j);
+	}
+	
+	private boolean isZeroRow(int i){
+		for (int j = 0; j < this.columns.size(); j++)
+			if (this.columns.get(j)[i] != null && !this.columns.get(j)[i].isZero())
+				return false;
+		
+		return true;
+	}
+	
+	/**
+	 * Scales the lumped reactions to coprime integer columns and adapts the
+	 * factors of their members.
+	 */
+	private void normalize(){
+		for (int j = 0; j < this.columns.size(); j++){
+			MyRationalNumber[] column = this.columns.get(j);
+			BigInteger lcm = BigInteger.ONE;
+			BigInteger gcd = BigInteger.ZERO;
+			for (int i = 0; i < this.height; i++){
+				if (column[i] == null || column[i].isZero())
+					continue;
+				
+				BigInteger denominator = column[i].getDenominator().abs();
+				lcm = lcm.divide(lcm.gcd(denominator)).multiply(denominator);
+				gcd = gcd.gcd(column[i].getNumerator());
+			}
+			if (gcd.signum() == 0)
+				continue;
+			
+			// N_j*v = (s*N_j)*(v/s), the flux of the members is factor*s times the new flux
+			MyRationalNumber scale = new MyRationalNumber(lcm, gcd);
+			for (int i = 0; i < this.height; i++)
+				if (column[i] != null)
+					column[i].mul(scale);
+			for (int l = 0; l < this.factors.get(j).size(); l++)
+				this.factors.get(j).get(l).mul(scale);
+		}
+	}
+}
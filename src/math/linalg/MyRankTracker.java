@@ -0,0 +1,290 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.linalg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import math.field.MyRationalNumber;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ * The class MyRankTracker.
+ * Maintains the exact rank of a matrix whose columns are inserted and deleted one
+ * by one. The tracker keeps a basis of the inserted columns and an echelon form of
+ * the spanned space, each echelon vector vanishes at the pivot rows of the vectors
+ * before it. Each echelon vector and each column outside of the basis is stored
+ * with its coefficients with respect to the basis columns.
+ * 
+ * Inserting a column reduces it by the echelon vectors, O(rank*rows). Deleting a
+ * column outside of the basis is O(1). Deleting a basis column either exchanges it
+ * with a dependent column, which rewrites the coefficients of the dependent columns,
+ * or eliminates it from the echelon form in O(rank*rows) and the rank decreases.
+ */
+public class MyRankTracker<R,C> {
+	private HashMap<R,Integer> row_indices;
+	private int number_of_rows;
+	
+	private HashMap<C,MyRationalNumber[]> dependent_columns;	// columns outside of the basis -> coefficients w.r.t. the basis slots
+	private HashMap<C,Integer> basis_slots;						// basis columns -> slot
+	private ArrayList<C> slot_columns;							// slot -> basis column, null if the slot is free
+	private ArrayList<Integer> free_slots;
+	
+	private ArrayList<MyRationalNumber[]> echelon;				// echelon vectors, null entries are zeros
+	private ArrayList<MyRationalNumber[]> echelon_coefficients;	// coefficients of the echelon vectors w.r.t. the basis slots
+	private ArrayList<Integer> pivots;							// pivot row of each echelon vector
+	
+	/**
+	 * Constructor of a tracker of the empty matrix.
+	 */
+	public MyRankTracker(){
+		this.row_indices = new HashMap<R,Integer>();
+		this.number_of_rows = 0;
+		this.dependent_columns = new HashMap<C,MyRationalNumber[]>();
+		this.basis_slots = new HashMap<C,Integer>();
+		this.slot_columns = new ArrayList<C>();
+		this.free_slots = new ArrayList<Integer>();
+		this.echelon = new ArrayList<MyRationalNumber[]>();
+		this.echelon_coefficients = new ArrayList<MyRationalNumber[]>();
+		this.pivots = new ArrayList<Integer>();
+	}
+	
+	/**
+	 * Gets the rank of the matrix of the inserted columns.
+	 * 
+	 * @return The rank.
+	 */
+	public int getRank(){
+		return this.echelon.size();
+	}
+	
+	public int getNumberOfColumns(){
+		return this.basis_slots.size() + this.dependent_columns.size();
+	}
+	
+	public boolean containsColumn(C column){
+		return this.basis_slots.containsKey(column) || this.dependent_columns.containsKey(column);
+	}
+	
+	/**
+	 * Inserts a column.
+	 * 
+	 * @param column The label of the column.
+	 * @param rows The labels of the rows of the non-zero entries.
+	 * @param values The non-zero entries.
+	 * @return True if the rank increased, false otherwise, also if the column was already inserted.
+	 * @throws Exception
+	 */
+	public boolean addColumn(C column, ArrayList<R> rows, double[] values) throws Exception{
+		if (this.containsColumn(column))
+			return false;
+		
+		for (int k = 0; k < rows.size(); k++)
+			if (!this.row_indices.containsKey(rows.get(k)))
+				this.row_indices.put(rows.get(k), this.number_of_rows++);
+		
+		MyRationalNumber[] vector = new MyRationalNumber[this.number_of_rows];
+		for (int k = 0; k < rows.size(); k++)
+			if (values[k] != 0)
+				vector[this.row_indices.get(rows.get(k))] = new MyRationalNumber(values[k]);
+		
+		// reduce the column by the echelon vectors and collect its coefficients
+		MyRationalNumber[] coefficients = new MyRationalNumber[this.slot_columns.size() + 1];
+		for (int k = 0; k < this.echelon.size(); k++){
+			int pivot = this.pivots.get(k);
+			if (MyRankTracker.isZero(vector, pivot))
+				continue;
+			
+			MyRationalNumber[] e = this.echelon.get(k);
+			MyRationalNumber factor = vector[pivot].clone().div(e[pivot]);
+			vector = MyRankTracker.subtract(vector, e, factor);
+			coefficients = MyRankTracker.subtract(coefficients, this.echelon_coefficients.get(k), factor);
+		}
+		
+		int pivot = 0;
+		while (pivot < vector.length && MyRankTracker.isZero(vector, pivot))
+			pivot++;
+		
+		if (pivot == vector.length){
+			// column = sum of the subtracted multiples of the echelon vectors
+			for (int s = 0; s < coefficients.length; s++)
+				if (coefficients[s] != null)
+					coefficients[s].neg();
+			this.dependent_columns.put(column, coefficients);
+			
+			return false;
+		}
+		
+		// the residual is a new echelon vector: column - sum of the subtracted multiples
+		int slot;
+		if (this.free_slots.size() > 0)
+			slot = this.free_slots.remove(this.free_slots.size() - 1);
+		else {
+			slot = this.slot_columns.size();
+			this.slot_columns.add(null);
+		}
+		this.slot_columns.set(slot, column);
+		this.basis_slots.put(column, slot);
+		
+		coefficients = MyRankTracker.resize(coefficients, this.slot_columns.size());
+		coefficients[slot] = MyRationalNumber.valueOf(1);
+		this.echelon.add(vector);
+		this.echelon_coefficients.add(coefficients);
+		this.pivots.add(pivot);
+		
+		return true;
+	}
+	
+	/**
+	 * Deletes a column.
+	 * 
+	 * @param column The label of the column.
+	 * @return True if the rank decreased, false otherwise, also if the column was not inserted.
+	 * @throws Exception
+	 */
+	public boolean removeColumn(C column) throws Exception{
+		if (this.dependent_columns.remove(column) != null || !this.basis_slots.containsKey(column))
+			return false;
+		
+		int slot = this.basis_slots.remove(column);
+		this.slot_columns.set(slot, null);
+		this.free_slots.add(slot);
+		
+		// exchange the column with a dependent column using it
+		C replacement = null;
+		Iterator<Map.Entry<C,MyRationalNumber[]>> iterator = this.dependent_columns.entrySet().iterator();
+		while (iterator.hasNext() && replacement == null){
+			Map.Entry<C,MyRationalNumber[]> dependent = iterator.next();
+			if (!MyRankTracker.isZero(dependent.getValue(), slot))
+				replacement = dependent.getKey();
+		}
+		if (replacement != null){
+			// column = (replacement - sum_{l != slot} gamma_l b_l)/gamma_slot
+			MyRationalNumber[] gamma = this.dependent_columns.remove(replacement);
+			MyRationalNumber[] substitute = new MyRationalNumber[gamma.length];
+			MyRationalNumber inverse = gamma[slot].clone().inv();
+			for (int l = 0; l < gamma.length; l++)
+				if (l != slot && gamma[l] != null)
+					substitute[l] = gamma[l].clone().mul(inverse).neg();
+			substitute[slot] = inverse;
+			
+			iterator = this.dependent_columns.entrySet().iterator();
+			while (iterator.hasNext()){
+				Map.Entry<C,MyRationalNumber[]> dependent = iterator.next();
+				dependent.setValue(MyRankTracker.substitute(dependent.getValue(), substitute, slot));
+			}
+			for (int k = 0; k < this.echelon_coefficients.size(); k++)
+				this.echelon_coefficients.set(k, MyRankTracker.substitute(this.echelon_coefficients.get(k), substitute, slot));
+			
+			this.free_slots.remove(this.free_slots.size() - 1);
+			this.slot_columns.set(slot, replacement);
+			this.basis_slots.put(replacement, slot);
+			
+			return false;
+		}
+		
+		// no dependent column uses the column, eliminate it from the last echelon vector using it
+		int p = this.echelon.size() - 1;
+		while (MyRankTracker.isZero(this.echelon_coefficients.get(p), slot))
+			p--;
+		MyRationalNumber[] e = this.echelon.get(p);
+		MyRationalNumber[] e_coefficients = this.echelon_coefficients.get(p);
+		for (int k = 0; k < p; k++){
+			MyRationalNumber[] coefficients = this.echelon_coefficients.get(k);
+			if (MyRankTracker.isZero(coefficients, slot))
+				continue;
+			
+			// e has zeros at the pivots of the vectors before it, so vector k keeps its echelon property
+			MyRationalNumber factor = coefficients[slot].clone().div(e_coefficients[slot]);
+			this.echelon.set(k, MyRankTracker.subtract(this.echelon.get(k), e, factor));
+			coefficients = MyRankTracker.subtract(coefficients, e_coefficients, factor);
+			coefficients[slot] = null;
+			this.echelon_coefficients.set(k, coefficients);
+		}
+		this.echelon.remove(p);
+		this.echelon_coefficients.remove(p);
+		this.pivots.remove(p);
+		
+		return true;
+	}
+	
+	/**
+	 * Replaces the basis column of a slot in a coefficient vector.
+	 * 
+	 * @return The coefficient vector, resized if necessary.
+	 */
+	private static MyRationalNumber[] substitute(MyRationalNumber[] coefficients, MyRationalNumber[] substitute, int slot){
+		if (MyRankTracker.isZero(coefficients, slot))
+			return coefficients;
+		
+		coefficients = MyRankTracker.resize(coefficients, substitute.length);
+		MyRationalNumber beta = coefficients[slot];
+		coefficients[slot] = null;
+		for (int l = 0; l < substitute.length; l++){
+			if (substitute[l] == null)
+				continue;
+			
+			MyRationalNumber term = substitute[l].clone().mul(beta);
+			if (coefficients[l] == null)
+				coefficients[l] = term;
+			else
+				coefficients[l].add(term);
+		}
+		
+		return coefficients;
+	}
+	
+	/**
+	 * Computes vector = vector - factor*e.
+	 * 
+	 * @return The vector, resized if e is longer.
+	 */
+	private static MyRationalNumber[] subtract(MyRationalNumber[] vector, MyRationalNumber[] e, MyRationalNumber factor){
+		vector = MyRankTracker.resize(vector, e.length);
+		for (int i = 0; i < e.length; i++){
+			if (e[i] == null || e[i].isZero())
+				continue;
+			
+			MyRationalNumber term = e[i].clone().mul(factor).neg();
+			if (vector[i] == null)
+				vector[i] = term;
+			else
+				vector[i].add(term);
+		}
+		
+		return vector;
+	}
+	
+	private static boolean isZero(MyRationalNumber[] vector, int i){
+		return i >= vector.length || vector[i] == null || vector[i].isZero();
+	}
+	
+	private static MyRationalNumber[] resize(MyRationalNumber[] vector, int length){
+		if (vector.length >= length)
+			return vector;
+		
+		return Arrays.copyOf(vector, length);
+	}
+}
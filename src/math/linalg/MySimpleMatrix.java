@@ -20,10 +20,12 @@
 
 package math.linalg;
 
+import math.field.MyDouble;
+import math.field.MyEntry;
 import math.set.MySet;
 import system.process.octave.MyOctaveRank;
 
-public class MySimpleMatrix<FirstD,SecondD> {
+public class MySimpleMatrix<FirstD,SecondD> implements MyLabelledMatrix<FirstD,SecondD>{
 	private MySet<FirstD> first_dimension;
 	private MySet<SecondD> second_dimension;
 
@@ -46,6 +48,10 @@ public class MySimpleMatrix<FirstD,SecondD> {
 		return this.matrix[i][j];
 	}
 	
+	public MyEntry<?,FirstD,SecondD> getEntry(int i, int j){
+		return new MyDouble<FirstD,SecondD>(this.matrix[i][j], this.getFirstDimension(i), this.getSecondDimension(j));
+	}
+	
 	public double[][] toDoubleMatrix() throws Exception{
 		return this.matrix;
 	}
@@ -83,11 +89,11 @@ public class MySimpleMatrix<FirstD,SecondD> {
 	}
 	
 	public FirstD getFirstDimension(int index){
-		return this.first_dimension.toArrayList().get(index);
+		return this.first_dimension.getElementByIndex(index);
 	}
 	
 	public SecondD getSecondDimension(int index){
-		return this.second_dimension.toArrayList().get(index);
+		return this.second_dimension.getElementByIndex(index);
 	}
 	
 	public String toOctaveString() throws Exception{
@@ -0,0 +1,495 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.linalg;
+
+import math.field.MyDouble;
+import math.field.MyEntry;
+import math.set.MySet;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ * The class MySparseMatrix.
+ * A labelled matrix storing only its non-zero values, in compressed column
+ * storage (CSC) and in compressed row storage (CSR). The matrix is filled
+ * column by column, the row storage is derived from the column storage on
+ * first use. Stoichiometric matrices of genome-scale networks consist mostly
+ * of zeros, therefore memory is proportional to the number of non-zeros.
+ */
+public class MySparseMatrix<FirstD,SecondD> implements MyLabelledMatrix<FirstD,SecondD>{
+	private MySet<FirstD> first_dimension;
+	private MySet<SecondD> second_dimension;
+	
+	private int height;
+	private int width;
+	private int number_of_columns;	// number of columns appended so far
+	private int number_of_non_zeros;
+	
+	// compressed column storage, the non-zeros of column j are at positions column_pointers[j] to column_pointers[j + 1] - 1
+	private int[] column_pointers;
+	private int[] row_indices;
+	private double[] column_values;
+	
+	// compressed row storage, null as long as it is not needed
+	private int[] row_pointers;
+	private int[] column_indices;
+	private double[] row_values;
+	
+	/**
+	 * Constructor. Creates an empty matrix whose columns have
+	 * to be appended using appendColumn.
+	 * 
+	 * @param first_dimension The row objects.
+	 * @param second_dimension The column objects.
+	 * @param capacity The expected number of non-zeros.
+	 */
+	public MySparseMatrix(MySet<FirstD> first_dimension, MySet<SecondD> second_dimension, int capacity){
+		this.first_dimension = first_dimension;
+		this.second_dimension = second_dimension;
+		this.height = first_dimension.size();
+		this.width = second_dimension.size();
+		this.number_of_columns = 0;
+		this.number_of_non_zeros = 0;
+		this.column_pointers = new int[this.width + 1];
+		this.row_indices = new int[Math.max(capacity, 1)];
+		this.column_values = new double[Math.max(capacity, 1)];
+	}
+	
+	private MySparseMatrix(MySet<FirstD> first_dimension, MySet<SecondD> second_dimension, int[] column_pointers, int[] row_indices, double[] column_values, int[] row_pointers, int[] column_indices, double[] row_values){
+		this.first_dimension = first_dimension;
+		this.second_dimension = second_dimension;
+		this.height = first_dimension.size();
+		this.width = second_dimension.size();
+		this.number_of_columns = this.width;
+		this.number_of_non_zeros = column_pointers[this.width];
+		this.column_pointers = column_pointers;
+		this.row_indices = row_indices;
+		this.column_values = column_values;
+		this.row_pointers = row_pointers;
+		this.column_indices = column_indices;
+		this.row_values = row_values;
+	}
+	
+	/**
+	 * Appends the next column. Zeros are skipped, the row indices need not be sorted.
+	 * 
+	 * @param indices The row indices of the entries.
+	 * @param values The values of the entries.
+	 * @param length The number of entries to take from the arrays.
+	 * @throws Exception
+	 */
+	public void appendColumn(int[] indices, double[] values, int length) throws Exception{
+		if (this.number_of_columns == this.width)
+			throw new Exception("all " + this.width + " columns already appended");
+		
+		this.ensureCapacity(this.number_of_non_zeros + length);
+		
+		int start = this.number_of_non_zeros;
+		for (int k = 0; k < length; k++){
+			if (values[k] == 0)
+				continue;
+			if (indices[k] < 0 || indices[k] >= this.height)
+				throw new Exception("row index out of range: " + indices[k]);
+			
+			// insertion into the sorted part, columns are short
+			int p = this.number_of_non_zeros;
+			while (p > start && this.row_indices[p - 1] > indices[k]){
+				this.row_indices[p] = this.row_indices[p - 1];
+				this.column_values[p] = this.column_values[p - 1];
+				p--;
+			}
+			if (p > start && this.row_indices[p - 1] == indices[k])
+				throw new Exception("row index occurs twice in column " + this.number_of_columns + ": " + indices[k]);
+			
+			this.row_indices[p] = indices[k];
+			this.column_values[p] = values[k];
+			this.number_of_non_zeros++;
+		}
+		
+		this.number_of_columns++;
+		this.column_pointers[this.number_of_columns] = this.number_of_non_zeros;
+		this.row_pointers = null;
+	}
+	
+	private void ensureCapacity(int capacity){
+		if (capacity <= this.row_indices.length)
+			return;
+		
+		int new_capacity = Math.max(capacity, 2*this.row_indices.length);
+		int[] new_row_indices = new int[new_capacity];
+		double[] new_column_values = new double[new_capacity];
+		System.arraycopy(this.row_indices, 0, new_row_indices, 0, this.number_of_non_zeros);
+		System.arraycopy(this.column_values, 0, new_column_values, 0, this.number_of_non_zeros);
+		this.row_indices = new_row_indices;
+		this.column_values = new_column_values;
+	}
+	
+	/**
+	 * Creates the compressed row storage from the compressed column storage
+	 * by counting the entries per row, in O(number of non-zeros + height).
+	 */
+	private void makeRowStorage(){
+		this.row_pointers = new int[this.height + 1];
+		this.column_indices = new int[this.number_of_non_zeros];
+		this.row_values = new double[this.number_of_non_zeros];
+		
+		for (int k = 0; k < this.number_of_non_zeros; k++)
+			this.row_pointers[this.row_indices[k] + 1]++;
+		for (int i = 0; i < this.height; i++)
+			this.row_pointers[i + 1] += this.row_pointers[i];
+		
+		// columns are visited in ascending order, so the column indices of each row are sorted
+		int[] next = new int[this.height];
+		System.arraycopy(this.row_pointers, 0, next, 0, this.height);
+		for (int j = 0; j < this.number_of_columns; j++){
+			for (int k = this.column_pointers[j]; k < this.column_pointers[j + 1]; k++){
+				int p = next[this.row_indices[k]]++;
+				this.column_indices[p] = j;
+				this.row_values[p] = this.column_values[k];
+			}
+		}
+	}
+	
+	private void check(){
+		if (this.row_pointers == null)
+			this.makeRowStorage();
+	}
+	
+	public MySet<FirstD> getFirstDimensionSet(){
+		return this.first_dimension;
+	}
+	
+	public MySet<SecondD> getSecondDimensionSet(){
+		return this.second_dimension;
+	}
+	
+	public FirstD getFirstDimension(int i){
+		return this.first_dimension.getElementByIndex(i);
+	}
+	
+	public SecondD getSecondDimension(int j){
+		return this.second_dimension.getElementByIndex(j);
+	}
+	
+	public int getFirstDimensionIndex(FirstD fd){
+		return this.first_dimension.getIndex(fd);
+	}
+	
+	public int getSecondDimensionIndex(SecondD sd){
+		return this.second_dimension.getIndex(sd);
+	}
+	
+	public int getHeight(){
+		return this.height;
+	}
+	
+	public int getWidth(){
+		return this.width;
+	}
+	
+	public int getNumberOfNonZeros(){
+		return this.number_of_non_zeros;
+	}
+	
+	/**
+	 * Gets the value in row i and column j by binary search in column j.
+	 * 
+	 * @param i Index of the row.
+	 * @param j Index of the column.
+	 * 
+	 * @return The value.
+	 */
+	public double getSimpleEntry(int i, int j){
+		if (j >= this.number_of_columns)
+			return 0;
+		
+		int low = this.column_pointers[j];
+		int high = this.column_pointers[j + 1] - 1;
+		while (low <= high){
+			int middle = (low + high) >>> 1;
+			if (this.row_indices[middle] < i)
+				low = middle + 1;
+			else if (this.row_indices[middle] > i)
+				high = middle - 1;
+			else
+				return this.column_values[middle];
+		}
+		
+		return 0;
+	}
+	
+	public MyEntry<?,FirstD,SecondD> getEntry(int i, int j){
+		return new MyDouble<FirstD,SecondD>(this.getSimpleEntry(i, j), this.getFirstDimension(i), this.getSecondDimension(j));
+	}
+	
+	/**
+	 * Gets the row indices of the non-zeros, column by column. The
+	 * array must not be changed.
+	 * 
+	 * @return The row indices, valid between getColumnStart(j) and getColumnEnd(j).
+	 */
+	public int[] getRowIndices(){
+		return this.row_indices;
+	}
+	
+	public double[] getColumnValues(){
+		return this.column_values;
+	}
+	
+	public int getColumnStart(int j){
+		return this.column_pointers[j];
+	}
+	
+	public int getColumnEnd(int j){
+		return this.column_pointers[j + 1];
+	}
+	
+	/**
+	 * Gets the column indices of the non-zeros, row by row. The
+	 * array must not be changed.
+	 * 
+	 * @return The column indices, valid between getRowStart(i) and getRowEnd(i).
+	 */
+	public int[] getColumnIndices(){
+		this.check();
+		
+		return this.column_indices;
+	}
+	
+	public double[] getRowValues(){
+		this.check();
+		
+		return this.row_values;
+	}
+	
+	public int getRowStart(int i){
+		this.check();
+		
+		return this.row_pointers[i];
+	}
+	
+	public int getRowEnd(int i){
+		this.check();
+		
+		return this.row_pointers[i + 1];
+	}
+	
+	/**
+	 * Multiplies this matrix with a vector.
+	 * 
+	 * @param x The vector, its length must be the width of this matrix.
+	 * 
+	 * @return The resulting vector of length height.
+	 * @throws Exception
+	 */
+	public double[] mul(double[] x) throws Exception{
+		if (x.length != this.width)
+			throw new Exception("dimensions do not match: width = " + this.width + ", length = " + x.length);
+		
+		this.check();
+		
+		double[] ret = new double[this.height];
+		for (int i = 0; i < this.height; i++){
+			double sum = 0;
+			for (int k = this.row_pointers[i]; k < this.row_pointers[i + 1]; k++)
+				sum += this.row_values[k]*x[this.column_indices[k]];
+			ret[i] = sum;
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Multiplies the transpose of this matrix with a vector.
+	 * 
+	 * @param y The vector, its length must be the height of this matrix.
+	 * 
+	 * @return The resulting vector of length width.
+	 * @throws Exception
+	 */
+	public double[] mulTransposed(double[] y) throws Exception{
+		if (y.length != this.height)
+			throw new Exception("dimensions do not match: height = " + this.height + ", length = " + y.length);
+		
+		double[] ret = new double[this.width];
+		for (int j = 0; j < this.number_of_columns; j++){
+			double sum = 0;
+			for (int k = this.column_pointers[j]; k < this.column_pointers[j + 1]; k++)
+				sum += this.column_values[k]*y[this.row_indices[k]];
+			ret[j] = sum;
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Multiplies this matrix with a dense matrix.
+	 * 
+	 * @param A Second matrix.
+	 * 
+	 * @return The resulting dense matrix.
+	 * @throws Exception
+	 */
+	public <ThirdD> MyDenseMatrix<FirstD,ThirdD> mul(MyDenseMatrix<SecondD,ThirdD> A) throws Exception{
+		this.checkComplete();
+		
+		return new MyMultiplication().mul(this, A);
+	}
+	
+	/**
+	 * Multiplies this matrix with another sparse matrix.
+	 * 
+	 * @param A Second matrix.
+	 * 
+	 * @return The resulting sparse matrix.
+	 * @throws Exception
+	 */
+	public <ThirdD> MySparseMatrix<FirstD,ThirdD> mul(MySparseMatrix<SecondD,ThirdD> A) throws Exception{
+		this.checkComplete();
+		A.checkComplete();
+		
+		return new MyMultiplication().mul(this, A);
+	}
+	
+	/**
+	 * Transposes the matrix. The column storage of the transposed matrix
+	 * is the row storage of this matrix and vice versa, no values are copied.
+	 * 
+	 * @return The transposed matrix.
+	 * @throws Exception
+	 */
+	public MySparseMatrix<SecondD,FirstD> transpose() throws Exception{
+		this.checkComplete();
+		this.check();
+		
+		return new MySparseMatrix<SecondD,FirstD>(this.second_dimension, this.first_dimension, this.row_pointers, this.column_indices, this.row_values, this.column_pointers, this.row_indices, this.column_values);
+	}
+	
+	/**
+	 * Gets the columns index_j to index_j + width - 1 as matrix.
+	 * 
+	 * @param index_j Index of the first column.
+	 * @param width Number of columns.
+	 * 
+	 * @return The matrix consisting of these columns.
+	 * @throws Exception
+	 */
+	public MySparseMatrix<FirstD,SecondD> getColumnSlice(int index_j, int width) throws Exception{
+		this.checkComplete();
+		
+		MySet<SecondD> second_dimension = new MySet<SecondD>();
+		for (int j = index_j; j < index_j + width; j++)
+			second_dimension.add(this.getSecondDimension(j));
+		
+		int start = this.column_pointers[index_j];
+		int end = this.column_pointers[index_j + width];
+		int[] column_pointers = new int[width + 1];
+		for (int j = 0; j <= width; j++)
+			column_pointers[j] = this.column_pointers[index_j + j] - start;
+		int[] row_indices = new int[end - start];
+		double[] column_values = new double[end - start];
+		System.arraycopy(this.row_indices, start, row_indices, 0, end - start);
+		System.arraycopy(this.column_values, start, column_values, 0, end - start);
+		
+		return new MySparseMatrix<FirstD,SecondD>(this.first_dimension, second_dimension, column_pointers, row_indices, column_values, null, null, null);
+	}
+	
+	/**
+	 * Gets a column.
+	 * 
+	 * @param j Index of column of interest.
+	 * 
+	 * @return The column.
+	 */
+	public MyVector<FirstD,SecondD> getColumn(int j){
+		MyVector<FirstD,SecondD> ret = new MyVector<FirstD,SecondD>();
+		for (int i = 0; i < this.height; i++)
+			ret.add(this.getEntry(i, j).setComparatorToFirstDimension());
+		
+		return ret;
+	}
+	
+	/**
+	 * Gets a row.
+	 * 
+	 * @param i Index of row of interest.
+	 * 
+	 * @return The row.
+	 */
+	public MyVector<FirstD,SecondD> getRow(int i){
+		MyVector<FirstD,SecondD> ret = new MyVector<FirstD,SecondD>();
+		for (int j = 0; j < this.width; j++)
+			ret.add(this.getEntry(i, j).setComparatorToSecondDimension());
+		
+		return ret;
+	}
+	
+	private void checkComplete() throws Exception{
+		if (this.number_of_columns < this.width)
+			throw new Exception("only " + this.number_of_columns + " of " + this.width + " columns appended");
+	}
+	
+	public double[][] toDoubleMatrix() throws Exception{
+		double[][] ret = new double[this.height][this.width];
+		for (int j = 0; j < this.number_of_columns; j++)
+			for (int k = this.column_pointers[j]; k < this.column_pointers[j + 1]; k++)
+				ret[this.row_indices[k]][j] = this.column_values[k];
+		
+		return ret;
+	}
+	
+	public MyDenseMatrix<FirstD,SecondD> toDenseMatrix(){
+		MyDenseMatrix<FirstD,SecondD> ret = new MyDenseMatrix<FirstD,SecondD>(this.first_dimension, this.second_dimension);
+		for (int j = 0; j < this.number_of_columns; j++)
+			for (int k = this.column_pointers[j]; k < this.column_pointers[j + 1]; k++)
+				ret.setSimpleEntry(this.row_indices[k], j, this.column_values[k]);
+		
+		return ret;
+	}
+	
+	public MySimpleMatrix<FirstD,SecondD> toSimpleMatrix(){
+		MySimpleMatrix<FirstD,SecondD> ret = new MySimpleMatrix<FirstD,SecondD>(this.first_dimension, this.second_dimension);
+		for (int j = 0; j < this.number_of_columns; j++)
+			for (int k = this.column_pointers[j]; k < this.column_pointers[j + 1]; k++)
+				ret.setSimpleEntry(this.row_indices[k], j, this.column_values[k]);
+		
+		return ret;
+	}
+	
+	/**
+	 * Converts this matrix into a MyMatrix object consisting of entry objects,
+	 * one for each pair of row and column objects.
+	 * 
+	 * @return The corresponding MyMatrix object.
+	 */
+	public MyMatrix<FirstD,SecondD> toMyMatrix(){
+		return this.toDenseMatrix().toMyMatrix();
+	}
+	
+	/**
+	 * Creates human readable string.
+	 * 
+	 * @param Human readable string.
+	 */
+	public String toString(){
+		return this.toDenseMatrix().toString();
+	}
+}
@@ -58,7 +58,7 @@ public class MyVector<FirstD,SecondD> extends MySet<MyEntry<?,FirstD,SecondD>>{
 	}
 	
 	public MyEntry<?,FirstD,SecondD> getEntry(int i){
-		return this.toArrayList().get(i);
+		return this.getElementByIndex(i);
 	}
 	
 	public int compareTo(MyVector<FirstD,SecondD> vector){
@@ -70,11 +70,11 @@ public class MyVector<FirstD,SecondD> extends MySet<MyEntry<?,FirstD,SecondD>>{
 	}
 	
 	public int compareToFirstDimension(MyVector<FirstD,SecondD> vector){
-		return this.getEntry(0).getFirstDimension().toString().compareTo(vector.getEntry(0).getFirstDimension().toString());
+		return MyEntry.compareDimensions(this.getEntry(0).getFirstDimension(), vector.getEntry(0).getFirstDimension());
 	}
 	
 	public int compareToSecondDimension(MyVector<FirstD,SecondD> vector){
-		return this.getEntry(0).getSecondDimension().toString().compareTo(vector.getEntry(0).getSecondDimension().toString());
+		return MyEntry.compareDimensions(this.getEntry(0).getSecondDimension(), vector.getEntry(0).getSecondDimension());
 	}
 	
 	public boolean equals(Object o) {
@@ -0,0 +1,464 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.set;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ *         The class MyBitSet. A subset of a MyUniverse stored as bits, one bit
+ *         for each index of the universe. Union, intersection, difference and
+ *         subset tests are carried out word by word, i.e., 64 elements at once.
+ *         Iteration follows the indices of the universe, so a MyBitSet over a
+ *         universe built from a MySet iterates in the same order as a MySet.
+ *         
+ *         Sets taking part in the same operation must share their universe.
+ *         A MySet constructed with a universe stores its elements in a
+ *         MyBitSet, so the word operations are also available through the
+ *         MySet API.
+ *
+ * @param <E>
+ *            The type of class which is element of the MyBitSet object.
+ */
+public class MyBitSet<E> implements Iterable<E>, Cloneable {
+	private MyUniverse<E> universe;
+	private long[] words;
+	private int size;		// number of elements, -1 if it has to be counted
+	
+	/**
+	 * Constructor of an empty subset of a universe.
+	 * 
+	 * @param universe The universe.
+	 */
+	public MyBitSet(MyUniverse<E> universe){
+		this.universe = universe;
+		this.words = new long[MyBitSet.getNumberOfWords(universe.size())];
+		this.size = 0;
+	}
+	
+	/**
+	 * Constructor of a subset of a universe given its elements, e.g., a MySet.
+	 * 
+	 * @param universe The universe.
+	 * @param elements The elements, all of them must be element of the universe.
+	 * @throws Exception If an element is not element of the universe.
+	 */
+	public MyBitSet(MyUniverse<E> universe, Collection<? extends E> elements) throws Exception{
+		this(universe);
+		
+		// a MySet stored as bits over the same universe is copied word by word
+		if (elements instanceof MySet && ((MySet<?>)elements).getBits() != null && ((MySet<?>)elements).getBits().universe == universe){
+			MyBitSet<?> bits = ((MySet<?>)elements).getBits();
+			this.words = Arrays.copyOf(bits.words, Math.max(bits.words.length, this.words.length));
+			this.size = bits.size;
+			
+			return;
+		}
+		
+		Iterator<? extends E> iterator = elements.iterator();
+		while (iterator.hasNext())
+			if (!this.addElement(iterator.next()))
+				throw new Exception("element is not element of the universe");
+	}
+	
+	private static int getNumberOfWords(int number_of_bits){
+		return (number_of_bits + 63) >>> 6;
+	}
+	
+	private void ensureCapacity(int index){
+		int number_of_words = (index >>> 6) + 1;
+		if (number_of_words > this.words.length)
+			this.words = Arrays.copyOf(this.words, Math.max(number_of_words, MyBitSet.getNumberOfWords(this.universe.size())));
+	}
+	
+	private void checkUniverse(MyBitSet<E> B){
+		if (this.universe != B.universe)
+			throw new IllegalArgumentException("bit sets are subsets of different universes");
+	}
+	
+	public MyUniverse<E> getUniverse(){
+		return this.universe;
+	}
+	
+	// ----------------------------------------------------
+	//  access by index
+	
+	/**
+	 * Adds an index.
+	 * 
+	 * @param index The index.
+	 * @return True if the index was not yet contained, false otherwise.
+	 */
+	public boolean addIndex(int index){
+		if (this.containsIndex(index))
+			return false;
+		
+		this.ensureCapacity(index);
+		this.words[index >>> 6] |= 1L << index;
+		if (this.size != -1)
+			this.size++;
+		
+		return true;
+	}
+	
+	/**
+	 * Removes an index.
+	 * 
+	 * @param index The index.
+	 * @return True if the index was contained, false otherwise.
+	 */
+	public boolean removeIndex(int index){
+		if (!this.containsIndex(index))
+			return false;
+		
+		this.words[index >>> 6] &= ~(1L << index);
+		if (this.size != -1)
+			this.size--;
+		
+		return true;
+	}
+	
+	public boolean containsIndex(int index){
+		if (index < 0 || (index >>> 6) >= this.words.length)
+			return false;
+		
+		return (this.words[index >>> 6] & (1L << index)) != 0;
+	}
+	
+	/**
+	 * Gets the first index of this set which is larger than or equal to the
+	 * given index.
+	 * 
+	 * @param index The index to start from.
+	 * @return The next index or -1 if there is none.
+	 */
+	public int nextIndex(int index){
+		int w = index >>> 6;
+		if (w >= this.words.length)
+			return -1;
+		
+		long word = this.words[w] & (-1L << index);
+		while (true){
+			if (word != 0)
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+			if (++w == this.words.length)
+				return -1;
+			word = this.words[w];
+		}
+	}
+	
+	/**
+	 * Gets the last index of this set which is smaller than or equal to the
+	 * given index.
+	 * 
+	 * @param index The index to start from.
+	 * @return The previous index or -1 if there is none.
+	 */
+	public int previousIndex(int index){
+		if (index < 0)
+			return -1;
+		
+		int w = index >>> 6;
+		if (w >= this.words.length){
+			w = this.words.length - 1;
+			index = -1;
+		}
+		if (w < 0)
+			return -1;
+		
+		long word = this.words[w] & (-1L >>> -(index + 1));
+		while (true){
+			if (word != 0)
+				return (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+			if (w-- == 0)
+				return -1;
+			word = this.words[w];
+		}
+	}
+	
+	/**
+	 * Gets the largest index of this set.
+	 * 
+	 * @return The largest index or -1 if this set is empty.
+	 */
+	public int lastIndex(){
+		return this.previousIndex((this.words.length << 6) - 1);
+	}
+	// ----------------------------------------------------
+	
+	/**
+	 * Adds an element.
+	 * 
+	 * @param e The element to add.
+	 * @return True if the element is element of the universe, false otherwise.
+	 */
+	public boolean addElement(E e){
+		int index = this.universe.getIndex(e);
+		if (index == -1)
+			return false;
+		
+		this.addIndex(index);
+		
+		return true;
+	}
+	
+	public boolean remove(Object o){
+		return this.removeIndex(this.universe.getIndex(o));
+	}
+	
+	public boolean contains(Object o){
+		return this.containsIndex(this.universe.getIndex(o));
+	}
+	
+	public void clear(){
+		Arrays.fill(this.words, 0L);
+		this.size = 0;
+	}
+	
+	public int size(){
+		if (this.size == -1){
+			int size = 0;
+			for (int w = 0; w < this.words.length; w++)
+				size += Long.bitCount(this.words[w]);
+			this.size = size;
+		}
+		
+		return this.size;
+	}
+	
+	public boolean isEmpty(){
+		return this.size() == 0;
+	}
+	
+	public E head(){
+		int index = this.nextIndex(0);
+		if (index == -1)
+			return null;
+		
+		return this.universe.getElement(index);
+	}
+	
+	// ----------------------------------------------------
+	//  in place operations
+	
+	public void addAll(MyBitSet<E> B){
+		this.checkUniverse(B);
+		
+		if (B.words.length > this.words.length)
+			this.words = Arrays.copyOf(this.words, B.words.length);
+		for (int w = 0; w < B.words.length; w++)
+			this.words[w] |= B.words[w];
+		this.size = -1;
+	}
+	
+	public void retainAll(MyBitSet<E> B){
+		this.checkUniverse(B);
+		
+		for (int w = 0; w < this.words.length; w++)
+			this.words[w] &= w < B.words.length ? B.words[w] : 0L;
+		this.size = -1;
+	}
+	
+	public void removeAll(MyBitSet<E> B){
+		this.checkUniverse(B);
+		
+		int n = Math.min(this.words.length, B.words.length);
+		for (int w = 0; w < n; w++)
+			this.words[w] &= ~B.words[w];
+		this.size = -1;
+	}
+	// ----------------------------------------------------
+	
+	/**
+	 * Creates the union of this MyBitSet object and a second MyBitSet object B.
+	 * 
+	 * @param B
+	 *            The second MyBitSet object.
+	 * @return The MyBitSet object that represents the union.
+	 */
+	public MyBitSet<E> union(MyBitSet<E> B){
+		MyBitSet<E> ret = this.clone();
+		ret.addAll(B);
+		
+		return ret;
+	}
+	
+	/**
+	 * Creates the intersection of this MyBitSet object and a second MyBitSet
+	 * object B.
+	 * 
+	 * @param B
+	 *            The second MyBitSet object.
+	 * @return The MyBitSet object that represents the intersection.
+	 */
+	public MyBitSet<E> intersection(MyBitSet<E> B){
+		MyBitSet<E> ret = this.clone();
+		ret.retainAll(B);
+		
+		return ret;
+	}
+	
+	/**
+	 * Creates the difference of this MyBitSet object and a second MyBitSet
+	 * object B.
+	 * 
+	 * @param B
+	 *            The second MyBitSet object.
+	 * @return The MyBitSet object that represents the difference.
+	 */
+	public MyBitSet<E> difference(MyBitSet<E> B){
+		MyBitSet<E> ret = this.clone();
+		ret.removeAll(B);
+		
+		return ret;
+	}
+	
+	/**
+	 * Checks if this MyBitSet object is a subset of a second MyBitSet object B.
+	 * 
+	 * @param B
+	 *            The second MyBitSet object.
+	 * @return True if this MyBitSet object is a subset of B, false otherwise.
+	 */
+	public boolean isSubset(MyBitSet<E> B){
+		this.checkUniverse(B);
+		
+		for (int w = 0; w < this.words.length; w++)
+			if ((this.words[w] & ~(w < B.words.length ? B.words[w] : 0L)) != 0)
+				return false;
+		
+		return true;
+	}
+	
+	/**
+	 * Checks if this MyBitSet object and a second MyBitSet object B have
+	 * common elements.
+	 * 
+	 * @param B
+	 *            The second MyBitSet object.
+	 * @return True if the intersection is not empty, false otherwise.
+	 */
+	public boolean intersects(MyBitSet<E> B){
+		this.checkUniverse(B);
+		
+		int n = Math.min(this.words.length, B.words.length);
+		for (int w = 0; w < n; w++)
+			if ((this.words[w] & B.words[w]) != 0)
+				return true;
+		
+		return false;
+	}
+	
+	public MyBitSet<E> clone(){
+		MyBitSet<E> ret = new MyBitSet<E>(this.universe);
+		ret.words = Arrays.copyOf(this.words, Math.max(this.words.length, ret.words.length));
+		ret.size = this.size;
+		
+		return ret;
+	}
+	
+	/**
+	 * Converts this MyBitSet object into a MySet object. The MySet stores a
+	 * copy of the bits, unless the universe is not in ascending order.
+	 * 
+	 * @return The MySet object containing the same elements.
+	 */
+	public MySet<E> toMySet(){
+		return new MySet<E>(this);
+	}
+	
+	public Iterator<E> iterator(){
+		return new Iterator<E>(){
+			private int next = MyBitSet.this.nextIndex(0);
+			private int last = -1;
+			
+			public boolean hasNext(){
+				return this.next != -1;
+			}
+			
+			public E next(){
+				if (this.next == -1)
+					throw new NoSuchElementException();
+				
+				this.last = this.next;
+				this.next = MyBitSet.this.nextIndex(this.next + 1);
+				
+				return MyBitSet.this.universe.getElement(this.last);
+			}
+			
+			public void remove(){
+				if (this.last == -1)
+					throw new IllegalStateException();
+				
+				MyBitSet.this.removeIndex(this.last);
+				this.last = -1;
+			}
+		};
+	}
+	
+	public boolean equals(Object o){
+		if (!(o instanceof MyBitSet))
+			return false;
+		
+		MyBitSet<?> B = (MyBitSet<?>)o;
+		if (this.universe != B.universe)
+			return false;
+		
+		int n = Math.max(this.words.length, B.words.length);
+		for (int w = 0; w < n; w++){
+			long a = w < this.words.length ? this.words[w] : 0L;
+			long b = w < B.words.length ? B.words[w] : 0L;
+			if (a != b)
+				return false;
+		}
+		
+		return true;
+	}
+	
+	public int hashCode(){
+		long h = 1234;
+		for (int w = this.words.length; --w >= 0; )
+			h ^= this.words[w] * (w + 1);
+		
+		return (int)((h >> 32) ^ h);
+	}
+	
+	/**
+	 * Transforms the MyBitSet object to a readable string in the same format
+	 * as a MySet object.
+	 * 
+	 * @return The String object representing the MyBitSet object in readable form.
+	 */
+	public String toString(){
+		StringBuilder builder = new StringBuilder("{");
+		for (int i = this.nextIndex(0); i != -1; i = this.nextIndex(i + 1))
+			builder.append(this.universe.getElement(i).toString()).append(", ");
+		if (builder.length() > 1)
+			builder.setLength(builder.length() - 2);
+		builder.append("}");
+		
+		return builder.toString();
+	}
+}
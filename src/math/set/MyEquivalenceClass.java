@@ -30,6 +30,19 @@ public class MyEquivalenceClass<E> extends MySet<E>{
 		this.equivalence_relation = equivalence_relation;
 	}
 	
+	/**
+	 * Constructor of an equivalence class whose elements are stored as bits
+	 * over a universe, e.g., the complexes of a network.
+	 * 
+	 * @param equivalence_relation The equivalence relation.
+	 * @param universe The universe.
+	 */
+	public MyEquivalenceClass(MyEquivalenceRelation<E> equivalence_relation, MyUniverse<E> universe){
+		super(universe);
+		
+		this.equivalence_relation = equivalence_relation;
+	}
+	
 	public boolean add(E e){
 		if (this.isEmpty())
 			return super.add(e);
@@ -23,58 +23,236 @@ package math.set;
 import java.util.*;
 import java.lang.reflect.*;
 
+/**
+ * 
+ * @author neigenfind
+ * 
+ *         The class MyMultiset. Stores the distinct elements in ascending order
+ *         in an array next to a primitive array of their numbers of occurences.
+ *         Elements are ordered by their natural ordering. Once the multiset is
+ *         interned, e.g., the species of a complex, the symbol ids of the
+ *         elements are stored in a third, primitive array, so that lookups and
+ *         merges compare integers. Differences of multisets are computed by a
+ *         linear merge of both arrays.
+ * 
+ * @param <E>
+ *            The type of class which is element of the MyMultiset object.
+ */
 public class MyMultiset<E> implements Comparable<MyMultiset<E>>{
-	private MySet<E> multiset;
-	private HashMap<E,Double> occurences;
+	private Object[] elements;			// distinct elements in ascending order
+	private double[] occurences;		// number of occurences of the elements
+	private int[] ids;					// symbol ids of the elements, only valid if symbol_table is not null
+	private int number_of_elements;
+	private MySymbolTable symbol_table;	// symbol table all elements are interned by, null if not interned
+	
+	private int modification_count;		// incremented on each change, allows owners to detect changes
+	
+	private String key;					// memoized result of toString, null if invalid
+	private int key_hash_code;
+	
+	private MySet<E> set;				// memoized result of toMySet, null if invalid
 	
 	public MyMultiset(){
-		this.multiset = new MySet<E>();
-		this.occurences = new HashMap<E,Double>();
+		this(4);
 	}
 	
-	public boolean add(E e){
-		boolean ret = false;
-		
-		if (!this.multiset.contains(e)){
-			ret = this.multiset.add(e);
-			if (ret)
-				this.occurences.put(e, new Double(1));
-		} else {
-			Double c = this.occurences.get(e);
-			this.occurences.put(e, c + 1);
-			ret = true;
+	private MyMultiset(int capacity){
+		this.elements = new Object[capacity];
+		this.occurences = new double[capacity];
+		this.ids = new int[capacity];
+		this.number_of_elements = 0;
+		this.symbol_table = null;
+		
+		this.modification_count = 0;
+		this.key = null;
+		this.set = null;
+	}
+	
+	/**
+	 * Gets the number of modifications of this multiset so far. Two equal
+	 * values guarantee that the multiset was not changed in between.
+	 * 
+	 * @return The number of modifications.
+	 */
+	public int getModificationCount(){
+		return this.modification_count;
+	}
+	
+	/**
+	 * Marks this multiset as changed, i.e., the memoized key has to be rebuilt.
+	 */
+	private void setChanged(){
+		this.modification_count++;
+		this.key = null;
+		this.set = null;
+	}
+	
+	// ----------------------------------------------------
+	//  sorted array storage
+	
+	private static int compare(Object e1, Object e2){
+		return ((Comparable<Object>)e1).compareTo(e2);
+	}
+	
+	/**
+	 * Gets the symbol id of an element in the symbol table of this multiset.
+	 * 
+	 * @param e The element.
+	 * @return The symbol id, or -1 if the element is not interned by the symbol table of this multiset.
+	 */
+	private int getSymbolId(Object e){
+		if (this.symbol_table == null || !(e instanceof MySymbol) || ((MySymbol)e).getSymbolTable() != this.symbol_table)
+			return -1;
+		
+		return ((MySymbol)e).getSymbolId();
+	}
+	
+	/**
+	 * Searches an element by binary search, on the symbol ids if the element
+	 * is interned by the symbol table of this multiset.
+	 * 
+	 * @param e The element.
+	 * @return The position of the element, or (-(insertion point) - 1) if it is not contained.
+	 */
+	private int search(Object e){
+		int id = this.getSymbolId(e);
+		if (id != -1)
+			return this.search(id);
+		
+		int low = 0;
+		int high = this.number_of_elements - 1;
+		while (low <= high){
+			int mid = (low + high) >>> 1;
+			int c = MyMultiset.compare(e, this.elements[mid]);	// the probe is compared, see MySymbolTable.compare
+			if (c > 0)
+				low = mid + 1;
+			else if (c < 0)
+				high = mid - 1;
+			else
+				return mid;
 		}
 		
-		return ret;
+		return -(low + 1);
+	}
+	
+	/**
+	 * Searches a symbol id by binary search.
+	 * 
+	 * @param id The symbol id.
+	 * @return The position of the element with this id, or (-(insertion point) - 1) if it is not contained.
+	 */
+	private int search(int id){
+		int low = 0;
+		int high = this.number_of_elements - 1;
+		while (low <= high){
+			int mid = (low + high) >>> 1;
+			if (this.ids[mid] < id)
+				low = mid + 1;
+			else if (this.ids[mid] > id)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		
+		return -(low + 1);
+	}
+	
+	/**
+	 * Inserts an element. An element which is not interned by the symbol
+	 * table of this multiset, i.e., with id -1, invalidates the symbol ids.
+	 */
+	private void insert(int position, Object e, int id, double occurences){
+		if (this.number_of_elements == this.elements.length){
+			int capacity = Math.max(4, 2*this.elements.length);
+			this.elements = Arrays.copyOf(this.elements, capacity);
+			this.occurences = Arrays.copyOf(this.occurences, capacity);
+			this.ids = Arrays.copyOf(this.ids, capacity);
+		}
+		
+		int n = this.number_of_elements - position;
+		System.arraycopy(this.elements, position, this.elements, position + 1, n);
+		System.arraycopy(this.occurences, position, this.occurences, position + 1, n);
+		System.arraycopy(this.ids, position, this.ids, position + 1, n);
+		
+		this.elements[position] = e;
+		this.occurences[position] = occurences;
+		this.ids[position] = id;
+		this.number_of_elements++;
+		
+		if (id == -1)
+			this.symbol_table = null;
+	}
+	
+	private void delete(int position){
+		int n = this.number_of_elements - position - 1;
+		System.arraycopy(this.elements, position + 1, this.elements, position, n);
+		System.arraycopy(this.occurences, position + 1, this.occurences, position, n);
+		System.arraycopy(this.ids, position + 1, this.ids, position, n);
+		
+		this.number_of_elements--;
+		this.elements[this.number_of_elements] = null;
+	}
+	
+	private void append(Object e, int id, double occurences){
+		this.insert(this.number_of_elements, e, id, occurences);
+	}
+	
+	/**
+	 * Restores the ascending order of the elements by insertion sort, e.g.,
+	 * after they were interned. The arrays are short and nearly sorted.
+	 * 
+	 * @return True if an element was moved, false otherwise.
+	 */
+	private boolean sort(){
+		boolean is_moved = false;
+		for (int i = 1; i < this.number_of_elements; i++){
+			Object e = this.elements[i];
+			double occurences = this.occurences[i];
+			
+			int j = i - 1;
+			while (j >= 0 && MyMultiset.compare(this.elements[j], e) > 0){
+				this.elements[j + 1] = this.elements[j];
+				this.occurences[j + 1] = this.occurences[j];
+				is_moved = true;
+				j--;
+			}
+			this.elements[j + 1] = e;
+			this.occurences[j + 1] = occurences;
+		}
+		
+		return is_moved;
+	}
+	
+	/**
+	 * Adds the given number of occurences of an element. Elements reaching 0
+	 * occurences are kept.
+	 */
+	private void increase(E e, double occurences){
+		int position = this.search(e);
+		if (position < 0)
+			this.insert(-position - 1, e, this.getSymbolId(e), occurences);
+		else
+			this.occurences[position] += occurences;
+	}
+	// ----------------------------------------------------
+	
+	public boolean add(E e){
+		this.setChanged();
+		this.increase(e, 1);
+		
+		return true;
 	}
 
 	public boolean add(E e, Double occurences){
-		boolean ret = false;
-		
-		if (!this.multiset.contains(e)){
-			ret = this.multiset.add(e);
-			if (ret)
-				this.occurences.put(e, occurences);
-		} else {
-			Double c = this.occurences.get(e);
-			this.occurences.put(e, c + occurences);
-			ret = true;
-		}
+		this.setChanged();
+		this.increase(e, occurences);
 		
-		return ret;
+		return true;
 	}	
 	
 	public MyMultiset<E> addElement(E e){
-		boolean b = false;
-		
-		if (!this.multiset.contains(e)){
-			b = this.multiset.add(e);
-			if (b)
-				this.occurences.put(e, new Double(1));
-		} else {
-			Double c = this.occurences.get(e);
-			this.occurences.put(e, c + 1);
-		}
+		this.setChanged();
+		this.increase(e, 1);
 		
 		return this;
 	}
@@ -86,29 +264,52 @@ public class MyMultiset<E> implements Comparable<MyMultiset<E>>{
 	}
 	
 	public void addAll(MyMultiset<E> multiset){
-		Iterator<E> iterator = multiset.iterator();
-		while (iterator.hasNext()){
-			E e = iterator.next();
-			
-			this.add(e, multiset.getNumberOfOccurences(e));
-		}
+		for (int i = 0; i < multiset.number_of_elements; i++)
+			this.add(multiset.getElement(i), multiset.occurences[i]);
 	}
 	
-	public Double size(){
-		Double ret = 0.0;
+	/**
+	 * Interns the elements which are symbols, e.g., the species of a complex,
+	 * into a symbol table. Afterwards the elements are ordered by their symbol
+	 * ids, which are stored next to them if all elements are symbols.
+	 * 
+	 * @param symbol_table The symbol table.
+	 */
+	public void intern(MySymbolTable symbol_table){
+		boolean is_changed = false;
+		boolean is_symbolic = true;
+		for (int i = 0; i < this.number_of_elements; i++){
+			if (this.elements[i] instanceof MySymbol){
+				MySymbol symbol = (MySymbol)this.elements[i];
+				if (symbol.getSymbolTable() != symbol_table){
+					symbol.intern(symbol_table);
+					is_changed = true;
+				}
+			} else
+				is_symbolic = false;
+		}
+		
+		// the elements may also have been interned one by one before
+		if (this.sort() || is_changed)
+			this.setChanged();
 		
-		Iterator<E> iterator = this.occurences.keySet().iterator();
-		while(iterator.hasNext()){
-			E e = iterator.next();
-			Double c = this.occurences.get(e);
-			ret = ret + c;
+		if (is_symbolic){
+			for (int i = 0; i < this.number_of_elements; i++)
+				this.ids[i] = ((MySymbol)this.elements[i]).getSymbolId();
+			this.symbol_table = symbol_table;
 		}
+	}
+	
+	public Double size(){
+		double ret = 0.0;
+		for (int i = 0; i < this.number_of_elements; i++)
+			ret = ret + this.occurences[i];
 		
 		return ret;
 	}
 	
 	public int numberOfDistinctElements(){
-		return this.multiset.size();
+		return this.number_of_elements;
 	}
 	
 	public boolean isEmpty(){
@@ -116,44 +317,105 @@ public class MyMultiset<E> implements Comparable<MyMultiset<E>>{
 	}
 	
 	public Object[] getListOfDistinctElements(){
-		return this.multiset.toArray();
+		return Arrays.copyOf(this.elements, this.number_of_elements);
 	}
 	
+	// ----------------------------------------------------
+	//  access by position, i.e., without boxing
+	
+	/**
+	 * Gets the i-th distinct element in ascending order.
+	 * 
+	 * @param i The position.
+	 * @return The element.
+	 */
+	public E getElement(int i){
+		return (E)this.elements[i];
+	}
+	
+	/**
+	 * Gets the number of occurences of the i-th distinct element.
+	 * 
+	 * @param i The position.
+	 * @return The number of occurences.
+	 */
+	public double getOccurences(int i){
+		return this.occurences[i];
+	}
+	
+	/**
+	 * Gets the position of an element.
+	 * 
+	 * @param e The element.
+	 * @return The position of the element, or -1 if it is not contained.
+	 */
+	public int indexOf(E e){
+		int position = this.search(e);
+		
+		return position < 0 ? -1 : position;
+	}
+	// ----------------------------------------------------
+	
+	/**
+	 * Transforms the multiset to a readable string. The string is the canonical
+	 * key of this multiset and is memoized until the multiset is changed, so
+	 * elements must not change their string representations while they are
+	 * contained. Symbols are listed alphabetically, so that the key does not
+	 * depend on the symbol ids.
+	 * 
+	 * @return The String object representing the multiset in readable form.
+	 */
 	public String toString(){
-		Iterator<E> iterator = this.multiset.iterator();
-		StringBuffer buffer = new StringBuffer("{");
-		while (iterator.hasNext()){
-			E e = iterator.next();
-			
-			buffer = buffer.append(this.occurences.get(e)).append(" ").append(e.toString()).append(", ");
-			//int c = this.occurences.get(e);
-			//for (int i = 0; i < c; i++)
-			//	ret = ret + e.toString() + ", ";
+		if (this.key != null)
+			return this.key;
+		
+		final String[] element_keys = new String[this.number_of_elements];
+		Integer[] positions = new Integer[this.number_of_elements];
+		boolean is_alphabetical = true;
+		for (int i = 0; i < this.number_of_elements; i++){
+			Object e = this.elements[i];
+			element_keys[i] = e.toString();
+			positions[i] = i;
+			is_alphabetical = is_alphabetical && (i == 0 || !(e instanceof MySymbol) || element_keys[i - 1].compareTo(element_keys[i]) < 0);
+		}
+		if (!is_alphabetical)
+			Arrays.sort(positions, new Comparator<Integer>(){
+				public int compare(Integer i, Integer j){
+					return element_keys[i].compareTo(element_keys[j]);
+				}
+			});
+		
+		StringBuilder buffer = new StringBuilder("{");
+		for (int i = 0; i < this.number_of_elements; i++){
+			int position = positions[i];
+			buffer = buffer.append(this.occurences[position]).append(" ").append(element_keys[position]).append(", ");
 		}
 		if (buffer.length() > 1)
 			buffer.setLength(buffer.length() - 2);
 		buffer = buffer.append("}");
+		
+		this.key = buffer.toString();
+		this.key_hash_code = this.key.hashCode();
 	
-		return buffer.toString();
+		return this.key;
 	}
 	
 	public String toLaTeXString() throws Exception{
 		Method m = null;
 		if (this.size() > 0){
-			Class c = this.multiset.head().getClass();
+			Class c = this.head().getClass();
 			try{
 				m = c.getMethod("toLaTeXString");
 			} catch (NoSuchMethodException nsme){
 			}
 		}
-				
-		Iterator<E> iterator = this.multiset.iterator();
+		
 		StringBuffer buffer = new StringBuffer();
-		while (iterator.hasNext()){
-			E e = iterator.next();
+		for (int i = 0; i < this.number_of_elements; i++){
+			Object e = this.elements[i];
 			
-			if (this.occurences.get(e) > 1)
-				buffer = buffer.append(this.occurences.get(e)).append(" ").append((String)m.invoke(e, new Object[]{})).append(" + ");
+			if (this.occurences[i] > 1)
+				buffer = buffer.append(this.occurences[i]).append(" ").append((String)m.invoke(e, new Object[]{})).append(" + ");
 			else 
 				buffer = buffer.append((String)m.invoke(e, new Object[]{})).append(" + ");
 		}
@@ -163,45 +425,99 @@ public class MyMultiset<E> implements Comparable<MyMultiset<E>>{
 		return buffer.toString();
 	}
 	
+	/**
+	 * Iterates the distinct elements in ascending order. Removing an element
+	 * by the iterator removes all of its occurences.
+	 */
 	public Iterator<E> iterator(){
-		return this.multiset.iterator();
+		return new Iterator<E>(){
+			private int i = 0;
+			private int last = -1;		// position of the element returned last, -1 if there is none
+			
+			public boolean hasNext(){
+				return this.i < MyMultiset.this.number_of_elements;
+			}
+			
+			public E next(){
+				if (this.i >= MyMultiset.this.number_of_elements)
+					throw new NoSuchElementException();
+				
+				this.last = this.i++;
+				return MyMultiset.this.getElement(this.last);
+			}
+			
+			public void remove(){
+				if (this.last == -1)
+					throw new IllegalStateException();
+				
+				MyMultiset.this.setChanged();
+				MyMultiset.this.delete(this.last);
+				this.i = this.last;
+				this.last = -1;
+			}
+		};
 	}
 	
 	public MyMultiset<E> clone(){
-		MyMultiset<E> ret = new MyMultiset<E>();
+		MyMultiset<E> ret = new MyMultiset<E>(Math.max(4, this.number_of_elements));
 		
-		Iterator<E> iterator = this.iterator();
-		while (iterator.hasNext()){
-			E e = iterator.next();
-			for (int i = 0; i < this.getNumberOfOccurences(e); i++)
-				ret.add(e);
-		}
+		System.arraycopy(this.elements, 0, ret.elements, 0, this.number_of_elements);
+		System.arraycopy(this.occurences, 0, ret.occurences, 0, this.number_of_elements);
+		System.arraycopy(this.ids, 0, ret.ids, 0, this.number_of_elements);
+		ret.number_of_elements = this.number_of_elements;
+		ret.symbol_table = this.symbol_table;
 		
 		return ret;
 	}
 	
 	public Double getNumberOfOccurences(E e){
-		return this.occurences.get(e);
+		int position = this.search(e);
+		if (position < 0)
+			return null;
+		
+		return this.occurences[position];
 	}
 	
+	/**
+	 * Gets the set of distinct elements. The set is memoized until this
+	 * multiset is changed and must not be modified.
+	 * 
+	 * @return The set of distinct elements.
+	 */
 	public MySet<E> toMySet(){
-		return this.multiset;
+		if (this.set == null){
+			MySet<E> set = new MySet<E>();
+			for (int i = 0; i < this.number_of_elements; i++)
+				set.add(this.getElement(i));
+			
+			this.set = set;
+		}
+		
+		return this.set;
 	}
 	
 	public int compareTo(MyMultiset<E> B){
+		if (this == B)
+			return 0;
+		
 		return this.toString().compareTo(B.toString());
 	}	
 	
 	public boolean equals(Object o){
+		if (this == o)
+			return true;
+		
 		return this.toString().equals(((MyMultiset<E>)o).toString());
 	}
 	
 	public int hashCode(){
-		return this.toString().hashCode();
+		this.toString();
+		
+		return this.key_hash_code;
 	}
 	
 	public boolean contains(E e){
-		return this.multiset.contains(e);
+		return this.search(e) >= 0;
 	}
 	
 	/**
@@ -210,97 +526,125 @@ public class MyMultiset<E> implements Comparable<MyMultiset<E>>{
 	 * @param e The element to be removed.
 	 */
 	public void remove(E e){
-		if (this.contains(e)){					// if e is element of this multiset
-			Double c = this.occurences.get(e) - 1;	// calculate its new number of occurences in multiset
-			if (c == 0){						// if its new number of occurences is 0, then remove it
-				this.occurences.remove(e);
-				this.multiset.remove(e);
-			} else {
-				this.occurences.put(e, c);		// otherwise save the new number of occurences
-			}
+		this.setChanged();
+		
+		int position = this.search(e);
+		if (position >= 0){						// if e is element of this multiset
+			this.occurences[position] -= 1;		// calculate its new number of occurences in multiset
+			if (this.occurences[position] == 0)	// if its new number of occurences is 0, then remove it
+				this.delete(position);
 		}
 	}
 	
 	/**
 	 * Removes the given number of the given element from multiset.
-	 * Can also result in negative number of occurences.
+	 * Can also result in negative number of occurences, elements which
+	 * are not contained in this multiset are ignored.
 	 * 
 	 * @param e The element to be removed
 	 * @param occurences How many instances of this element are to be removed
 	 */
 	public void remove(E e, Double occurences){
-		if (!this.contains(e))			// if the mulitset does not contain this element, add it with occurence 0
-			this.occurences.put(e, new Double(0));
-
-		Double c = this.occurences.get(e);	// get the number of occurences
-		c = c - occurences;				// calculate the new number of occurences
-		if (c == 0){					// if the new number of occurences is 0, then remove it
-			this.occurences.remove(e);
-			this.multiset.remove(e);
-		} else {
-			this.occurences.put(e, c);	// otherwise save the new number of occurences
+		this.setChanged();
+		
+		int position = this.search(e);
+		if (position >= 0){
+			this.occurences[position] -= occurences;	// calculate the new number of occurences
+			if (this.occurences[position] == 0)		// if the new number of occurences is 0, then remove it
+				this.delete(position);
 		}
 	}
 
 	public void sub(E e, Double occurences){
-		if (!this.contains(e)){
-			this.multiset.add(e);
-			this.occurences.put(e, -occurences);
+		this.setChanged();
+		
+		int position = this.search(e);
+		if (position < 0){
+			this.insert(-position - 1, e, this.getSymbolId(e), -occurences);
 			return;
 		}
 
-		Double c = this.occurences.get(e);	// get the number of occurences
-		c = c - occurences;				// calculate the new number of occurences
-		if (c == 0){					// if the new number of occurences is 0, then remove it
-			this.occurences.remove(e);
-			this.multiset.remove(e);
-		} else {
-			this.occurences.put(e, c);	// otherwise save the new number of occurences
-		}
+		this.occurences[position] -= occurences;	// calculate the new number of occurences
+		if (this.occurences[position] == 0)		// if the new number of occurences is 0, then remove it
+			this.delete(position);
 	}
 	
 	/**
-	 * Computes the difference of two multisets.
-	 * Can also contain elements with negative number of occurences.
+	 * Merges this multiset and a second multiset B into a new multiset
+	 * containing the numbers of occurences of this multiset minus the numbers
+	 * of occurences of B. Elements with 0 resulting occurences are omitted.
+	 * Multisets interned by the same symbol table are merged on the symbol ids.
 	 * 
 	 * @param B The second multiset.
+	 * @param keep_missing If true, elements only contained in B are added with negative occurences, otherwise they are ignored.
 	 * @return The multiset representing the difference.
 	 */
-	public MyMultiset<E> difference(MyMultiset<E> B){
-		MyMultiset<E> ret = this.clone();		// make a copy of this multiset
+	private MyMultiset<E> merge(MyMultiset<E> B, boolean keep_missing){
+		MyMultiset<E> ret = new MyMultiset<E>(Math.max(4, this.number_of_elements + B.number_of_elements));
+		boolean is_interned = this.symbol_table != null && this.symbol_table == B.symbol_table;
+		if (is_interned)
+			ret.symbol_table = this.symbol_table;
 		
-		Iterator<E> iterator = B.iterator();	// loop over all elements of the second multiset
-		while (iterator.hasNext()){
-			E e = iterator.next();
-			Double c = B.getNumberOfOccurences(e);	// get the number of occurences of the current element
+		int i = 0;
+		int j = 0;
+		while (i < this.number_of_elements || j < B.number_of_elements){
+			int c;
+			if (i == this.number_of_elements)
+				c = 1;
+			else if (j == B.number_of_elements)
+				c = -1;
+			else if (is_interned)
+				c = this.ids[i] < B.ids[j] ? -1 : (this.ids[i] == B.ids[j] ? 0 : 1);
+			else
+				c = MyMultiset.compare(this.elements[i], B.elements[j]);
 			
-			ret.remove(e, c);					// remove this number of occurences
+			if (c < 0){							// element only in this multiset
+				ret.append(this.elements[i], is_interned ? this.ids[i] : -1, this.occurences[i]);
+				i++;
+			} else if (c > 0){					// element only in B
+				if (keep_missing)
+					ret.append(B.elements[j], is_interned ? B.ids[j] : -1, -B.occurences[j]);
+				j++;
+			} else {							// element in both multisets
+				double occurences = this.occurences[i] - B.occurences[j];
+				if (occurences != 0)
+					ret.append(this.elements[i], is_interned ? this.ids[i] : -1, occurences);
+				i++;
+				j++;
+			}
 		}
 		
 		return ret;
 	}
 	
+	/**
+	 * Computes the difference of two multisets.
+	 * Can also contain elements with negative number of occurences.
+	 * Elements which are only contained in B are ignored.
+	 * 
+	 * @param B The second multiset.
+	 * @return The multiset representing the difference.
+	 */
+	public MyMultiset<E> difference(MyMultiset<E> B){
+		return this.merge(B, false);
+	}
+	
+	/**
+	 * Subtracts a second multiset. Elements which are only contained in B get
+	 * a negative number of occurences, e.g., product minus substrate of a
+	 * reaction results in the column of the stoichiometric matrix.
+	 * 
+	 * @param B The second multiset.
+	 * @return The multiset representing the difference.
+	 */
 	public MyMultiset<E> sub(MyMultiset<E> B){
-		MyMultiset<E> ret = this.clone();		// make a copy of this multiset
-		
-		Iterator<E> iterator = B.iterator();	// loop over all elements of the second multiset
-		while (iterator.hasNext()){
-			E e = iterator.next();
-			Double c = B.getNumberOfOccurences(e);	// get the number of occurences of the current element
-			
-			ret.sub(e, c);						// remove this number of occurences
-		}
-		
-		return ret;
+		return this.merge(B, true);
 	}
 	
 	public E head() {
-		E ret = null;
-
-		Iterator<E> iterator = this.iterator();
-		if (iterator.hasNext())
-			ret = iterator.next();
-
-		return ret;
+		if (this.number_of_elements == 0)
+			return null;
+		
+		return this.getElement(0);
 	}
 }
@@ -34,15 +34,21 @@ public class MyPartition<E> extends MySet<MyEquivalenceClass<E>> {
 	 */
 	private static final long serialVersionUID = 1L;
 	
-	protected MySet<E> basic_set;							// MySet of the overall elements in the partition
+	protected MyPersistentSet<E> basic_set;					// set of the overall elements in the partition, shares structure with its former versions
 	private MyEquivalenceRelation<E> equivalence_relation;
+	private MyUnionFind<E> union_find;						// disjoint-set forest if the partition is built by unions, null otherwise
+	private HashMap<E,MyEquivalenceClass<E>> element_classes;	// lookup table: element -> equivalence class
+	private MySet<E> basic_set_view;						// memoized result of getBasicSet, null if invalid
+	private MyPersistentSet<E> basic_set_view_version;		// version of the basic set the view was built from
 	
 	/**
 	 * Constructor of an empty partition.
 	 */
 	public MyPartition(MyEquivalenceRelation<E> equivalence_relation){
-		this.basic_set = new MySet<E>();
+		this.basic_set = new MyPersistentSet<E>();
 		this.equivalence_relation = equivalence_relation;
+		this.union_find = null;
+		this.element_classes = new HashMap<E,MyEquivalenceClass<E>>();
 	}
 	
 	/** Constructor of an partition given a set of equivalence classes.
@@ -51,35 +57,159 @@ public class MyPartition<E> extends MySet<MyEquivalenceClass<E>> {
 	 * @throws Exception If equivalence classes overlap, an exception is thrown.
 	 */
 	public MyPartition(MySet<MyEquivalenceClass<E>> equivalence_classes) throws Exception{
-		this.basic_set = new MySet<E>();
+		this.basic_set = new MyPersistentSet<E>();
+		this.union_find = null;
+		this.element_classes = new HashMap<E,MyEquivalenceClass<E>>();
 		
 		Iterator<MyEquivalenceClass<E>> ec_iterator = equivalence_classes.iterator();
 		while (ec_iterator.hasNext()){
 			MyEquivalenceClass<E> equivalence_class = ec_iterator.next();
 			// test if equivalence class to add is disjoint to the already added elements
-			if (!this.basic_set.intersection(equivalence_class).isEmpty())
+			if (this.basic_set.intersects(equivalence_class))
 				throw new Exception("equivalence class is not disjoint");
-			this.basic_set.union(equivalence_class);
+			this.basic_set = this.basic_set.addAll(equivalence_class);
+			this.putElementClasses(equivalence_class);
 		}
 		
 		this.addAll(equivalence_classes);
 	}
 	
+	/**
+	 * Constructor of a partition backed by a disjoint-set forest. The
+	 * equivalence classes are the sets of the forest, further unions can be
+	 * streamed using union.
+	 * 
+	 * @param union_find The disjoint-set forest.
+	 * @throws Exception
+	 */
+	public MyPartition(MyUnionFind<E> union_find) throws Exception{
+		this.basic_set = new MyPersistentSet<E>();
+		this.equivalence_relation = union_find;
+		this.union_find = union_find;
+		this.element_classes = new HashMap<E,MyEquivalenceClass<E>>();
+		
+		// collect the elements by the representatives of their sets
+		MyUniverse<E> universe = union_find.getUniverse();
+		HashMap<Integer,MyEquivalenceClass<E>> classes = new HashMap<Integer,MyEquivalenceClass<E>>();
+		for (int i = 0; i < universe.size(); i++){
+			int root = union_find.find(i);
+			
+			MyEquivalenceClass<E> ec = classes.get(root);
+			if (ec == null){
+				ec = new MyEquivalenceClass<E>(union_find, universe);
+				classes.put(root, ec);
+			}
+			ec.add(universe.getElement(i));
+		}
+		
+		Iterator<MyEquivalenceClass<E>> iterator = classes.values().iterator();
+		while (iterator.hasNext())
+			this.addEquivalenceClass(iterator.next());
+	}
+	
+	private void putElementClasses(MyEquivalenceClass<E> equivalence_class){
+		Iterator<E> iterator = equivalence_class.iterator();
+		while (iterator.hasNext())
+			this.element_classes.put(iterator.next(), equivalence_class);
+	}
+	
 	public void addElementToEquivalenceClasses(E e) throws Exception{
+		if (this.union_find != null){
+			this.union_find.add(e);
+			this.addElementToUnionFindClasses(e);
+			
+			return;
+		}
+		
 		Iterator<MyEquivalenceClass<E>> iterator = this.iterator();
 		
 		boolean was_added = false;
 		while (iterator.hasNext()){
 			MyEquivalenceClass<E> ec = iterator.next();
-			was_added = was_added | ec.add(e);
+			if (ec.add(e)){
+				was_added = true;
+				this.element_classes.put(e, ec);
+			}
 		}
-		if (!was_added){
+		if (was_added)
+			this.basic_set = this.basic_set.add(e);
+		else {
 			MyEquivalenceClass<E> ec = new MyEquivalenceClass<E>(this.equivalence_relation);
 			ec.add(e);
 			this.addEquivalenceClass(ec);
 		}
 	}
 	
+	/**
+	 * Adds an element to the equivalence class of its set in the
+	 * disjoint-set forest, or as new equivalence class.
+	 * 
+	 * @param e The element.
+	 * @throws Exception
+	 */
+	private void addElementToUnionFindClasses(E e) throws Exception{
+		if (this.element_classes.containsKey(e))
+			return;
+		
+		MyEquivalenceClass<E> ec = this.element_classes.get(this.union_find.getRepresentative(e));
+		if (ec == null){
+			ec = new MyEquivalenceClass<E>(this.equivalence_relation, this.union_find.getUniverse());
+			ec.add(e);
+			this.addEquivalenceClass(ec);
+			
+			return;
+		}
+		
+		// the class changes its position in this set
+		this.remove(ec);
+		ec.add(e);
+		this.add(ec);
+		
+		this.element_classes.put(e, ec);
+		this.basic_set = this.basic_set.add(e);
+	}
+	
+	/**
+	 * Unifies the equivalence classes of two elements, only available for
+	 * partitions backed by a disjoint-set forest. Elements which are not yet
+	 * covered by the partition are added.
+	 * 
+	 * @param e1 The first element.
+	 * @param e2 The second element.
+	 * @return True if the equivalence classes were different, false otherwise.
+	 * @throws Exception If the partition is not backed by a disjoint-set forest.
+	 */
+	public boolean union(E e1, E e2) throws Exception{
+		if (this.union_find == null)
+			throw new Exception("partition is not backed by a disjoint-set forest");
+		
+		this.addElementToEquivalenceClasses(e1);
+		this.addElementToEquivalenceClasses(e2);
+		
+		boolean ret = this.union_find.union(e1, e2);
+		
+		MyEquivalenceClass<E> ec1 = this.element_classes.get(e1);
+		MyEquivalenceClass<E> ec2 = this.element_classes.get(e2);
+		if (ec1 == ec2)
+			return ret;
+		
+		// merge the smaller class into the larger one
+		if (ec1.size() < ec2.size()){
+			MyEquivalenceClass<E> ec = ec1;
+			ec1 = ec2;
+			ec2 = ec;
+		}
+		this.remove(ec1);
+		this.remove(ec2);
+		ec1.addAll(ec2);
+		this.add(ec1);
+		
+		for (Iterator<E> iterator = ec2.iterator(); iterator.hasNext(); )
+			this.element_classes.put(iterator.next(), ec1);
+		
+		return ret;
+	}
+	
 	/**
 	 * Adds an equivalence class to partition.
 	 * 
@@ -87,11 +217,12 @@ public class MyPartition<E> extends MySet<MyEquivalenceClass<E>> {
 	 * @throws Exception If equivalence classes overlap, an exception is thrown.
 	 */
 	public void addEquivalenceClass(MyEquivalenceClass<E> equivalence_class) throws Exception{
-		if (!this.basic_set.intersection(equivalence_class).isEmpty())
+		if (this.basic_set.intersects(equivalence_class))
 			throw new Exception("equivalence class is not disjoint");
 		
 		this.add(equivalence_class);
-		this.basic_set = this.basic_set.union(equivalence_class);
+		this.basic_set = this.basic_set.addAll(equivalence_class);
+		this.putElementClasses(equivalence_class);
 	}
 	
 	/**
@@ -104,12 +235,19 @@ public class MyPartition<E> extends MySet<MyEquivalenceClass<E>> {
 	}
 	
 	/**
-	 * Get basic set, the union of equivalence classes.
+	 * Get basic set, the union of equivalence classes. The set is memoized
+	 * until the partition is changed and must not be modified.
 	 * 
 	 * @return The union of equivalence classes.
 	 */
 	public MySet<E> getBasicSet(){
-		return this.basic_set;
+		// each change of the partition derives a new persistent basic set
+		if (this.basic_set_view == null || this.basic_set_view_version != this.basic_set){
+			this.basic_set_view = this.basic_set.toMySet();
+			this.basic_set_view_version = this.basic_set;
+		}
+		
+		return this.basic_set_view;
 	}
 	
 	/**
@@ -120,28 +258,27 @@ public class MyPartition<E> extends MySet<MyEquivalenceClass<E>> {
 	 * @throws Exception
 	 */
 	public boolean isFiner(MyPartition<E> other_partition) throws Exception{
-		boolean result = true;
-		if (this.getBasicSet().equals(other_partition.getBasicSet())){
-			Iterator<MyEquivalenceClass<E>> iter = this.iterator();
-			while (iter.hasNext()){
-				boolean class_has_upper_class = false;
-				MyEquivalenceClass<E> current_class = iter.next();
-				Iterator<MyEquivalenceClass<E>> inner_iter = other_partition.iterator();
-				while (inner_iter.hasNext()){
-					MyEquivalenceClass<E> inner_class = inner_iter.next();
-					if (current_class.isSubset(inner_class)){
-						class_has_upper_class = true;
-					}
-				}
-				if (class_has_upper_class==false){
-					result = false;
-				}
-			}
-		}
-		else{
+		if (!this.basic_set.equals(other_partition.basic_set))
 			throw new Exception("basic sets are different");
-		}		
-		return result;
+		
+		// each class must be covered by the class of its first element
+		Iterator<MyEquivalenceClass<E>> iter = this.iterator();
+		while (iter.hasNext()){
+			MyEquivalenceClass<E> current_class = iter.next();
+			if (current_class.isEmpty())
+				continue;
+			
+			MyEquivalenceClass<E> upper_class = other_partition.getEquivalenceClassByElement(current_class.head());
+			if (upper_class == null)
+				return false;
+			
+			Iterator<E> element_iterator = current_class.iterator();
+			while (element_iterator.hasNext())
+				if (other_partition.getEquivalenceClassByElement(element_iterator.next()) != upper_class)
+					return false;
+		}
+		
+		return true;
 	}
 	
 	/**
@@ -151,6 +288,11 @@ public class MyPartition<E> extends MySet<MyEquivalenceClass<E>> {
 	 * @return The corresponding equivalence class.
 	 */
 	public MyEquivalenceClass<E> getEquivalenceClassByElement(E element){
+		MyEquivalenceClass<E> ret = this.element_classes.get(element);
+		if (ret != null && ret.contains(element))
+			return ret;
+		
+		// classes changed from outside, search them
 		Iterator<MyEquivalenceClass<E>> iter = this.iterator();
 		while (iter.hasNext()){
 			MyEquivalenceClass<E> current_class = iter.next();
@@ -0,0 +1,601 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.set;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ *         The class MyPersistentSet. An immutable set stored as AVL tree.
+ *         Operations like add, union, intersection and difference return a
+ *         new set which shares all unchanged subtrees with its inputs, i.e.,
+ *         adding an element copies only the O(log n) nodes on its path
+ *         instead of the whole set. Each node knows the size of its subtree,
+ *         so the i-th element and the index of an element are found in
+ *         O(log n) as well.
+ *         
+ *         The elements are ordered like in a MySet, i.e., by their natural
+ *         ordering or by a given comparator.
+ *
+ * @param <E>
+ *            The type of class which is element of the MyPersistentSet object.
+ */
+public class MyPersistentSet<E> implements Iterable<E> {
+	/**
+	 * Immutable node of the AVL tree.
+	 */
+	private static final class Node<E>{
+		private final E element;
+		private final Node<E> left;
+		private final Node<E> right;
+		private final int height;
+		private final int size;
+		
+		private Node(Node<E> left, E element, Node<E> right){
+			this.element = element;
+			this.left = left;
+			this.right = right;
+			this.height = Math.max(MyPersistentSet.height(left), MyPersistentSet.height(right)) + 1;
+			this.size = MyPersistentSet.size(left) + MyPersistentSet.size(right) + 1;
+		}
+	}
+	
+	/**
+	 * Result of splitting a tree at an element.
+	 */
+	private static final class Split<E>{
+		private Node<E> left;		// elements smaller than the element
+		private boolean found;		// true if the element is contained
+		private Node<E> right;		// elements larger than the element
+	}
+	
+	private Node<E> root;				// only assigned in constructors
+	private final Comparator<? super E> comparator;
+	
+	/**
+	 * Constructor of the empty set with natural ordering of the elements.
+	 */
+	public MyPersistentSet(){
+		this(null, null);
+	}
+	
+	/**
+	 * Constructor of the empty set ordered by the given comparator.
+	 * 
+	 * @param comparator The comparator defining the ordering of the elements.
+	 */
+	public MyPersistentSet(Comparator<? super E> comparator){
+		this(null, comparator);
+	}
+	
+	/**
+	 * Constructor of a set containing the elements of a collection with
+	 * natural ordering of the elements.
+	 * 
+	 * @param elements The elements of the set.
+	 */
+	public MyPersistentSet(Collection<? extends E> elements){
+		this((Comparator<? super E>)null);
+		
+		Node<E> root = null;
+		Iterator<? extends E> iterator = elements.iterator();
+		while (iterator.hasNext())
+			root = this.insert(root, iterator.next());
+		
+		this.root = root;
+	}
+	
+	/**
+	 * Constructor of a set containing the elements of a MySet, ordered like
+	 * the MySet. The tree is built in linear time.
+	 * 
+	 * @param elements The elements of the set.
+	 */
+	public MyPersistentSet(MySet<E> elements){
+		this(MyPersistentSet.build(new ArrayList<E>(elements), 0, elements.size()), elements.comparator());
+	}
+	
+	private MyPersistentSet(Node<E> root, Comparator<? super E> comparator){
+		this.root = root;
+		this.comparator = comparator;
+	}
+	
+	private static <E> Node<E> build(ArrayList<E> list, int from, int to){
+		if (from >= to)
+			return null;
+		
+		int mid = (from + to) >>> 1;
+		
+		return new Node<E>(MyPersistentSet.build(list, from, mid), list.get(mid), MyPersistentSet.build(list, mid + 1, to));
+	}
+	
+	private MyPersistentSet<E> derive(Node<E> root){
+		if (root == this.root)
+			return this;
+		
+		return new MyPersistentSet<E>(root, this.comparator);
+	}
+	
+	// ----------------------------------------------------
+	//  AVL tree
+	
+	private static int height(Node<?> node){
+		return node == null ? 0 : node.height;
+	}
+	
+	private static int size(Node<?> node){
+		return node == null ? 0 : node.size;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private int compare(Object e1, Object e2){
+		// elements are only searched for, never stored, under their static type
+		if (this.comparator != null)
+			return this.comparator.compare((E)e1, (E)e2);
+		
+		return ((Comparable<Object>)e1).compareTo(e2);
+	}
+	
+	private static <E> Node<E> rotateLeft(Node<E> node){
+		Node<E> r = node.right;
+		
+		return new Node<E>(new Node<E>(node.left, node.element, r.left), r.element, r.right);
+	}
+	
+	private static <E> Node<E> rotateRight(Node<E> node){
+		Node<E> l = node.left;
+		
+		return new Node<E>(l.left, l.element, new Node<E>(l.right, node.element, node.right));
+	}
+	
+	/**
+	 * Creates a node whose subtrees differ in height by at most 2 and
+	 * rebalances it.
+	 */
+	private static <E> Node<E> balance(Node<E> left, E element, Node<E> right){
+		int difference = MyPersistentSet.height(left) - MyPersistentSet.height(right);
+		if (difference > 1){
+			if (MyPersistentSet.height(left.left) < MyPersistentSet.height(left.right))
+				left = MyPersistentSet.rotateLeft(left);
+			
+			return MyPersistentSet.rotateRight(new Node<E>(left, element, right));
+		}
+		if (difference < -1){
+			if (MyPersistentSet.height(right.right) < MyPersistentSet.height(right.left))
+				right = MyPersistentSet.rotateRight(right);
+			
+			return MyPersistentSet.rotateLeft(new Node<E>(left, element, right));
+		}
+		
+		return new Node<E>(left, element, right);
+	}
+	
+	/**
+	 * Joins two trees and an element in between, all elements of left are
+	 * smaller than element and all elements of right are larger.
+	 */
+	private static <E> Node<E> join(Node<E> left, E element, Node<E> right){
+		if (MyPersistentSet.height(left) > MyPersistentSet.height(right) + 1)
+			return MyPersistentSet.balance(left.left, left.element, MyPersistentSet.join(left.right, element, right));
+		if (MyPersistentSet.height(right) > MyPersistentSet.height(left) + 1)
+			return MyPersistentSet.balance(MyPersistentSet.join(left, element, right.left), right.element, right.right);
+		
+		return new Node<E>(left, element, right);
+	}
+	
+	/**
+	 * Joins two trees, all elements of left are smaller than the elements of right.
+	 */
+	private static <E> Node<E> join(Node<E> left, Node<E> right){
+		if (left == null)
+			return right;
+		if (right == null)
+			return left;
+		
+		E first = MyPersistentSet.select(right, 0);
+		
+		return MyPersistentSet.join(left, first, MyPersistentSet.removeFirst(right));
+	}
+	
+	private static <E> Node<E> removeFirst(Node<E> node){
+		if (node.left == null)
+			return node.right;
+		
+		return MyPersistentSet.balance(MyPersistentSet.removeFirst(node.left), node.element, node.right);
+	}
+	
+	private Split<E> split(Node<E> node, Object e){
+		if (node == null)
+			return new Split<E>();
+		
+		int c = this.compare(e, node.element);
+		if (c == 0){
+			Split<E> ret = new Split<E>();
+			ret.left = node.left;
+			ret.found = true;
+			ret.right = node.right;
+			
+			return ret;
+		}
+		if (c < 0){
+			Split<E> ret = this.split(node.left, e);
+			ret.right = MyPersistentSet.join(ret.right, node.element, node.right);
+			
+			return ret;
+		}
+		
+		Split<E> ret = this.split(node.right, e);
+		ret.left = MyPersistentSet.join(node.left, node.element, ret.left);
+		
+		return ret;
+	}
+	
+	private Node<E> insert(Node<E> node, E e){
+		if (node == null)
+			return new Node<E>(null, e, null);
+		
+		int c = this.compare(e, node.element);
+		if (c == 0)
+			return node;
+		if (c < 0){
+			Node<E> left = this.insert(node.left, e);
+			
+			return left == node.left ? node : MyPersistentSet.balance(left, node.element, node.right);
+		}
+		
+		Node<E> right = this.insert(node.right, e);
+		
+		return right == node.right ? node : MyPersistentSet.balance(node.left, node.element, right);
+	}
+	
+	private Node<E> delete(Node<E> node, Object e){
+		if (node == null)
+			return null;
+		
+		int c = this.compare(e, node.element);
+		if (c == 0)
+			return MyPersistentSet.join(node.left, node.right);
+		if (c < 0){
+			Node<E> left = this.delete(node.left, e);
+			
+			return left == node.left ? node : MyPersistentSet.balance(left, node.element, node.right);
+		}
+		
+		Node<E> right = this.delete(node.right, e);
+		
+		return right == node.right ? node : MyPersistentSet.balance(node.left, node.element, right);
+	}
+	
+	private Node<E> union(Node<E> node1, Node<E> node2){
+		if (node1 == null)
+			return node2;
+		if (node2 == null || node1 == node2)
+			return node1;
+		
+		Split<E> split = this.split(node2, node1.element);
+		Node<E> left = this.union(node1.left, split.left);
+		Node<E> right = this.union(node1.right, split.right);
+		if (left == node1.left && right == node1.right)
+			return node1;
+		
+		return MyPersistentSet.join(left, node1.element, right);
+	}
+	
+	private Node<E> intersection(Node<E> node1, Node<E> node2){
+		if (node1 == null || node2 == null)
+			return null;
+		if (node1 == node2)
+			return node1;
+		
+		Split<E> split = this.split(node2, node1.element);
+		Node<E> left = this.intersection(node1.left, split.left);
+		Node<E> right = this.intersection(node1.right, split.right);
+		if (!split.found)
+			return MyPersistentSet.join(left, right);
+		if (left == node1.left && right == node1.right)
+			return node1;
+		
+		return MyPersistentSet.join(left, node1.element, right);
+	}
+	
+	private Node<E> difference(Node<E> node1, Node<E> node2){
+		if (node1 == null || node1 == node2)
+			return null;
+		if (node2 == null)
+			return node1;
+		
+		Split<E> split = this.split(node1, node2.element);
+		
+		return MyPersistentSet.join(this.difference(split.left, node2.left), this.difference(split.right, node2.right));
+	}
+	
+	private static <E> E select(Node<E> node, int index){
+		while (true){
+			int left_size = MyPersistentSet.size(node.left);
+			if (index < left_size)
+				node = node.left;
+			else if (index > left_size){
+				index -= left_size + 1;
+				node = node.right;
+			} else
+				return node.element;
+		}
+	}
+	// ----------------------------------------------------
+	
+	public int size(){
+		return MyPersistentSet.size(this.root);
+	}
+	
+	public boolean isEmpty(){
+		return this.root == null;
+	}
+	
+	public boolean contains(Object e){
+		Node<E> node = this.root;
+		while (node != null){
+			int c = this.compare(e, node.element);
+			if (c == 0)
+				return true;
+			node = c < 0 ? node.left : node.right;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Adds an element.
+	 * 
+	 * @param e The element to add.
+	 * @return The set containing the element, sharing all other nodes with this set.
+	 */
+	public MyPersistentSet<E> add(E e){
+		return this.derive(this.insert(this.root, e));
+	}
+	
+	/**
+	 * Adds all elements of a collection.
+	 * 
+	 * @param c The elements to add.
+	 * @return The set containing the elements.
+	 */
+	public MyPersistentSet<E> addAll(Collection<? extends E> c){
+		Node<E> root = this.root;
+		Iterator<? extends E> iterator = c.iterator();
+		while (iterator.hasNext())
+			root = this.insert(root, iterator.next());
+		
+		return this.derive(root);
+	}
+	
+	/**
+	 * Removes an element.
+	 * 
+	 * @param e The element to remove.
+	 * @return The set without the element, sharing all other nodes with this set.
+	 */
+	public MyPersistentSet<E> remove(Object e){
+		return this.derive(this.delete(this.root, e));
+	}
+	
+	/**
+	 * Creates the union of this MyPersistentSet object and a second
+	 * MyPersistentSet object B.
+	 * 
+	 * @param B
+	 *            The second MyPersistentSet object.
+	 * @return The MyPersistentSet object that represents the union.
+	 */
+	public MyPersistentSet<E> union(MyPersistentSet<E> B){
+		return this.derive(this.union(this.root, B.root));
+	}
+	
+	/**
+	 * Creates the intersection of this MyPersistentSet object and a second
+	 * MyPersistentSet object B.
+	 * 
+	 * @param B
+	 *            The second MyPersistentSet object.
+	 * @return The MyPersistentSet object that represents the intersection.
+	 */
+	public MyPersistentSet<E> intersection(MyPersistentSet<E> B){
+		return this.derive(this.intersection(this.root, B.root));
+	}
+	
+	/**
+	 * Creates the difference of this MyPersistentSet object and a second
+	 * MyPersistentSet object B.
+	 * 
+	 * @param B
+	 *            The second MyPersistentSet object.
+	 * @return The MyPersistentSet object that represents the difference.
+	 */
+	public MyPersistentSet<E> difference(MyPersistentSet<E> B){
+		return this.derive(this.difference(this.root, B.root));
+	}
+	
+	/**
+	 * Checks if this MyPersistentSet object is a subset of a second
+	 * MyPersistentSet object B.
+	 * 
+	 * @param B
+	 *            The second MyPersistentSet object.
+	 * @return True if this MyPersistentSet object is a subset of B, false otherwise.
+	 */
+	public boolean isSubset(MyPersistentSet<E> B){
+		if (this.size() > B.size())
+			return false;
+		
+		return this.difference(B).isEmpty();
+	}
+	
+	/**
+	 * Checks if this set and a collection have common elements.
+	 * 
+	 * @param c The collection.
+	 * @return True if at least one element of c is element of this set.
+	 */
+	public boolean intersects(Collection<?> c){
+		Iterator<?> iterator = c.iterator();
+		while (iterator.hasNext())
+			if (this.contains(iterator.next()))
+				return true;
+		
+		return false;
+	}
+	
+	/**
+	 * Gets the element with the given index in ascending order.
+	 * 
+	 * @param index The index.
+	 * @return The element.
+	 */
+	public E get(int index){
+		if (index < 0 || index >= this.size())
+			throw new IndexOutOfBoundsException("index " + index + " of " + this.size());
+		
+		return MyPersistentSet.select(this.root, index);
+	}
+	
+	/**
+	 * Gets the index of an element in ascending order.
+	 * 
+	 * @param e The element.
+	 * @return The index of the element or -1 if it is not contained.
+	 */
+	public int getIndex(Object e){
+		int ret = 0;
+		Node<E> node = this.root;
+		while (node != null){
+			int c = this.compare(e, node.element);
+			if (c == 0)
+				return ret + MyPersistentSet.size(node.left);
+			if (c < 0)
+				node = node.left;
+			else {
+				ret += MyPersistentSet.size(node.left) + 1;
+				node = node.right;
+			}
+		}
+		
+		return -1;
+	}
+	
+	public E head(){
+		if (this.root == null)
+			return null;
+		
+		return MyPersistentSet.select(this.root, 0);
+	}
+	
+	/**
+	 * Converts this MyPersistentSet object into a MySet object.
+	 * 
+	 * @return The MySet object containing the same elements.
+	 */
+	public MySet<E> toMySet(){
+		MySet<E> ret = new MySet<E>(this.comparator);
+		
+		Iterator<E> iterator = this.iterator();
+		while (iterator.hasNext())
+			ret.add(iterator.next());
+		
+		return ret;
+	}
+	
+	public Iterator<E> iterator(){
+		return new Iterator<E>(){
+			private ArrayList<Node<E>> stack = this.push(new ArrayList<Node<E>>(), MyPersistentSet.this.root);
+			
+			private ArrayList<Node<E>> push(ArrayList<Node<E>> stack, Node<E> node){
+				while (node != null){
+					stack.add(node);
+					node = node.left;
+				}
+				
+				return stack;
+			}
+			
+			public boolean hasNext(){
+				return !this.stack.isEmpty();
+			}
+			
+			public E next(){
+				if (this.stack.isEmpty())
+					throw new NoSuchElementException();
+				
+				Node<E> node = this.stack.remove(this.stack.size() - 1);
+				this.push(this.stack, node.right);
+				
+				return node.element;
+			}
+			
+			public void remove(){
+				throw new UnsupportedOperationException("persistent sets can not be modified");
+			}
+		};
+	}
+	
+	public boolean equals(Object o){
+		if (!(o instanceof MyPersistentSet))
+			return false;
+		
+		MyPersistentSet<?> B = (MyPersistentSet<?>)o;
+		if (this.root == B.root)
+			return true;
+		if (this.size() != B.size())
+			return false;
+		
+		Iterator<E> iterator = this.iterator();
+		while (iterator.hasNext())
+			if (!B.contains(iterator.next()))
+				return false;
+		
+		return true;
+	}
+	
+	public int hashCode(){
+		return this.toString().hashCode();
+	}
+	
+	/**
+	 * Transforms the MyPersistentSet object to a readable string in the same
+	 * format as a MySet object.
+	 * 
+	 * @return The String object representing the MyPersistentSet object in readable form.
+	 */
+	public String toString(){
+		StringBuilder builder = new StringBuilder("{");
+		Iterator<E> iterator = this.iterator();
+		while (iterator.hasNext())
+			builder.append(iterator.next().toString()).append(", ");
+		if (builder.length() > 1)
+			builder.setLength(builder.length() - 2);
+		builder.append("}");
+		
+		return builder.toString();
+	}
+}
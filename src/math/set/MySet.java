@@ -38,46 +38,456 @@ public class MySet<E> extends TreeSet<E> implements Comparable<MySet<E>> {
 	 * standard serial version UID
 	 */
 	private static final long serialVersionUID = 1L;
-	private boolean has_changed;
-	private HashMap<String,Integer> element_indices; 
-	private ArrayList<E> element_array_list;
+	private MyPersistentSet<E> element_index;	// rank/select index, maintained on changes once it was used, null if inactive
+	private ArrayList<E> element_array_list;	// memoized result of toArrayList, null if invalid
+	private MyBitSet<E> bits;					// elements as bits over a universe, null if the elements are stored in the tree
+	
+	private String key;						// memoized result of toString, null if invalid
+	private int key_hash_code;
+	private int key_size;					// size of this set at the time the key was built
+	
+	public static void main(String[] args) throws Exception{
+		// the rank/select index follows removals by iterators and bulk insertions
+		MySet<String> set = new MySet<String>();
+		set.add("b");
+		System.out.println("index of b: " + set.getIndex("b"));
+		
+		Iterator<String> iterator = set.iterator();
+		iterator.next();
+		iterator.remove();
+		set.addAll(new MySet<String>().addElement("a"));
+		System.out.println("index of a: " + set.getIndex("a") + " (expected 0)");
+	}
 	
 	// ----------------------------------------------------
 	//  methods from super class which must be overwritten
 	public MySet(){
 		super();
 		
-		this.element_indices = new HashMap<String,Integer>();
-		this.element_array_list = new ArrayList<E>();
+		this.element_index = null;
+		this.element_array_list = null;
+		this.bits = null;
 		
-		this.has_changed = false;
+		this.key = null;
+	}
+	
+	/**
+	 * Constructor of an empty set whose elements are ordered by the given
+	 * comparator instead of their natural ordering.
+	 * 
+	 * @param comparator The comparator defining the ordering of the elements.
+	 */
+	public MySet(Comparator<? super E> comparator){
+		super(comparator);
+		
+		this.element_index = null;
+		this.element_array_list = null;
+		this.bits = null;
+		
+		this.key = null;
+	}
+	
+	/**
+	 * Constructor of an empty set whose elements are stored as bits over a
+	 * universe, e.g., the complexes of a network. Then contains, union,
+	 * intersection, difference and isSubset with sets over the same universe
+	 * are carried out word by word. The set iterates in ascending order like
+	 * any other MySet, therefore only elements of the ascending part of the
+	 * universe are stored as bits. As soon as another element is added, or a
+	 * view like headSet is requested, the elements are moved into the tree.
+	 * 
+	 * @param universe The universe.
+	 */
+	public MySet(MyUniverse<E> universe){
+		this();
+		
+		this.bits = new MyBitSet<E>(universe);
+	}
+	
+	/**
+	 * Constructor of a set containing the elements of a bit set. A MySet
+	 * iterates in ascending order, but bits iterate in the order the elements
+	 * were added to the universe. So the bits are only copied if all elements
+	 * are in the ascending part of the universe, otherwise the elements are
+	 * stored in the tree. Universes built from a MySet, e.g., the nodes of a
+	 * graph, are ascending as a whole, so only universes filled out of order
+	 * fall back to the slower tree.
+	 * 
+	 * @param bits The bit set.
+	 */
+	public MySet(MyBitSet<E> bits){
+		this();
+		
+		if (bits.lastIndex() < bits.getUniverse().getAscendingSize())
+			this.bits = bits.clone();
+		else {
+			Iterator<E> iterator = bits.iterator();
+			while (iterator.hasNext())
+				super.add(iterator.next());
+		}
+	}
+	
+	public int size(){
+		if (this.bits != null)
+			return this.bits.size();
+		
+		return super.size();
+	}
+	
+	public boolean contains(Object o){
+		if (this.bits != null)
+			return this.bits.contains(o);
+		
+		return super.contains(o);
+	}
+	
+	/**
+	 * Iterates the elements in ascending order. Removals by the iterator
+	 * update the memoized key and the rank/select index like remove.
+	 */
+	public Iterator<E> iterator(){
+		final Iterator<E> iterator = this.bits == null ? super.iterator() : this.bits.iterator();
+		return new Iterator<E>(){
+			private E last;		// element returned last
+			
+			public boolean hasNext(){
+				return iterator.hasNext();
+			}
+			
+			public E next(){
+				this.last = iterator.next();
+				
+				return this.last;
+			}
+			
+			public void remove(){
+				iterator.remove();		// throws an IllegalStateException if there is no element to remove
+				MySet.this.setChanged();
+				if (MySet.this.element_index != null)
+					MySet.this.element_index = MySet.this.element_index.remove(this.last);
+			}
+		};
 	}
 	
 	public boolean add(E e){
-		this.has_changed = true;
+		this.setChanged();
+		
+		boolean ret;
+		int index = this.bits == null ? -1 : this.getBitIndex(e);
+		if (index != -1)
+			ret = this.bits.addIndex(index);
+		else {
+			if (this.bits != null)
+				this.moveBitsToTree();		// e can not be stored as bit
+			ret = super.add(e);
+		}
 		
-		return super.add(e);
+		if (ret && this.element_index != null)
+			this.element_index = this.element_index.add(e);
+		
+		return ret;
 	}
 	
 	public boolean addAll(Collection<? extends E> c){
-		this.has_changed = true;
+		this.setChanged();
+		
+		MyBitSet<E> bits = this.getSharedBits(c);
+		if (bits != null){
+			int size = this.bits.size();
+			this.bits.addAll(bits);
+			this.element_index = null;
+			
+			return this.bits.size() != size;
+		}
+		if (this.bits != null){
+			boolean ret = false;
+			Iterator<? extends E> iterator = c.iterator();
+			while (iterator.hasNext())
+				ret = this.add(iterator.next()) || ret;
+			
+			return ret;
+		}
+		
+		if (super.isEmpty())
+			this.element_index = null;	// the tree bulk loads sorted sets into an empty set without calling add
 		
 		return super.addAll(c);
 	}
 	
 	public void clear(){
-		this.has_changed = true;
+		this.setChanged();
+		this.element_index = null;
 		
-		super.clear();
+		if (this.bits != null)
+			this.bits.clear();
+		else
+			super.clear();
 	}
 	
 	public boolean remove(Object o){
-		this.has_changed = true;
+		this.setChanged();
+		
+		boolean ret = this.bits != null ? this.bits.remove(o) : super.remove(o);
+		if (ret && this.element_index != null)
+			this.element_index = this.element_index.remove(o);
+		
+		return ret;
+	}
+	
+	public boolean removeAll(Collection<?> c){
+		this.setChanged();
 		
-		return super.remove(o);
+		MyBitSet<E> bits = this.getSharedBits(c);
+		if (bits != null){
+			int size = this.bits.size();
+			this.bits.removeAll(bits);
+			this.element_index = null;
+			
+			return this.bits.size() != size;
+		}
+		
+		return super.removeAll(c);	// calls remove or removes via iterator
+	}
+	
+	public boolean retainAll(Collection<?> c){
+		this.setChanged();
+		this.element_index = null;
+		
+		MyBitSet<E> bits = this.getSharedBits(c);
+		if (bits != null){
+			int size = this.bits.size();
+			this.bits.retainAll(bits);
+			
+			return this.bits.size() != size;
+		}
+		
+		return super.retainAll(c);
+	}
+	
+	public E first(){
+		if (this.bits == null)
+			return super.first();
+		
+		int index = this.bits.nextIndex(0);
+		if (index == -1)
+			throw new NoSuchElementException();
+		
+		return this.bits.getUniverse().getElement(index);
+	}
+	
+	public E last(){
+		if (this.bits == null)
+			return super.last();
+		
+		int index = this.bits.lastIndex();
+		if (index == -1)
+			throw new NoSuchElementException();
+		
+		return this.bits.getUniverse().getElement(index);
+	}
+	
+	public E pollFirst(){
+		if (this.bits != null && this.bits.isEmpty())
+			return null;
+		
+		this.setChanged();
+		
+		E ret = this.bits != null ? this.first() : super.pollFirst();
+		if (this.bits != null)
+			this.bits.remove(ret);
+		if (ret != null && this.element_index != null)
+			this.element_index = this.element_index.remove(ret);
+		
+		return ret;
+	}
+	
+	public E pollLast(){
+		if (this.bits != null && this.bits.isEmpty())
+			return null;
+		
+		this.setChanged();
+		
+		E ret = this.bits != null ? this.last() : super.pollLast();
+		if (this.bits != null)
+			this.bits.remove(ret);
+		if (ret != null && this.element_index != null)
+			this.element_index = this.element_index.remove(ret);
+		
+		return ret;
+	}
+	
+	// navigation and views are provided by the tree only
+	public E ceiling(E e){
+		this.moveBitsToTree();
+		
+		return super.ceiling(e);
+	}
+	
+	public E floor(E e){
+		this.moveBitsToTree();
+		
+		return super.floor(e);
+	}
+	
+	public E higher(E e){
+		this.moveBitsToTree();
+		
+		return super.higher(e);
+	}
+	
+	public E lower(E e){
+		this.moveBitsToTree();
+		
+		return super.lower(e);
+	}
+	
+	public NavigableSet<E> headSet(E to, boolean inclusive){
+		this.moveBitsToTree();
+		
+		return super.headSet(to, inclusive);
+	}
+	
+	public SortedSet<E> headSet(E to){
+		this.moveBitsToTree();
+		
+		return super.headSet(to);
+	}
+	
+	public NavigableSet<E> tailSet(E from, boolean inclusive){
+		this.moveBitsToTree();
+		
+		return super.tailSet(from, inclusive);
+	}
+	
+	public SortedSet<E> tailSet(E from){
+		this.moveBitsToTree();
+		
+		return super.tailSet(from);
+	}
+	
+	public NavigableSet<E> subSet(E from, boolean from_inclusive, E to, boolean to_inclusive){
+		this.moveBitsToTree();
+		
+		return super.subSet(from, from_inclusive, to, to_inclusive);
+	}
+	
+	public SortedSet<E> subSet(E from, E to){
+		this.moveBitsToTree();
+		
+		return super.subSet(from, to);
+	}
+	
+	public NavigableSet<E> descendingSet(){
+		this.moveBitsToTree();
+		
+		return super.descendingSet();
+	}
+	
+	public Iterator<E> descendingIterator(){
+		this.moveBitsToTree();
+		
+		return super.descendingIterator();
+	}
+	
+	public Spliterator<E> spliterator(){
+		this.moveBitsToTree();
+		
+		return super.spliterator();
 	}
 	// --------------------------------------------------
 	
+	/**
+	 * Gets the index of an element in the universe, if it can be stored as
+	 * bit, i.e., if it is element of the ascending part of the universe.
+	 * 
+	 * @param o The element.
+	 * @return The index or -1 if the element can not be stored as bit.
+	 */
+	private int getBitIndex(Object o){
+		int index = this.bits.getUniverse().getIndex(o);
+		if (index >= this.bits.getUniverse().getAscendingSize())
+			return -1;
+		
+		return index;
+	}
+	
+	/**
+	 * Gets the bits of a collection if it is a MySet stored as bits over the
+	 * same universe as this set.
+	 * 
+	 * @param c The collection.
+	 * @return The bits or null if they can not be combined with the bits of this set.
+	 */
+	private MyBitSet<E> getSharedBits(Collection<?> c){
+		if (this.bits == null || !(c instanceof MySet))
+			return null;
+		
+		MyBitSet<?> bits = ((MySet<?>)c).bits;
+		if (bits == null || bits.getUniverse() != this.bits.getUniverse())
+			return null;
+		
+		@SuppressWarnings("unchecked")
+		MyBitSet<E> ret = (MyBitSet<E>)bits;
+		return ret;
+	}
+	
+	/**
+	 * Gets the bits storing the elements of this set.
+	 * 
+	 * @return The bits or null if the elements are stored in the tree.
+	 */
+	MyBitSet<E> getBits(){
+		return this.bits;
+	}
+	
+	/**
+	 * Moves the elements from the bits into the tree. From then on this set
+	 * is stored like any other MySet.
+	 */
+	private void moveBitsToTree(){
+		if (this.bits == null)
+			return;
+		
+		Iterator<E> iterator = this.bits.iterator();
+		this.bits = null;
+		while (iterator.hasNext())
+			super.add(iterator.next());
+	}
+	
+	/**
+	 * Marks this set as changed, i.e., the array list and the memoized key
+	 * have to be rebuilt.
+	 */
+	private void setChanged(){
+		this.element_array_list = null;
+		this.key = null;
+	}
+	
+	/**
+	 * Gets the rank/select index of this set. The index is built on first use
+	 * and from then on updated with each add and remove in O(log n).
+	 * 
+	 * @return The index.
+	 */
+	private MyPersistentSet<E> getElementIndex(){
+		// changes bypassing add and remove, e.g., by views like headSet, are detected by the size
+		if (this.element_index == null || this.element_index.size() != this.size())
+			this.element_index = new MyPersistentSet<E>(this);
+		
+		return this.element_index;
+	}
+	
+	/**
+	 * Checks if the memoized key is still valid, i.e., if this set was not
+	 * changed since the key was built. Changes are signalled by setChanged,
+	 * the size additionally catches changes bypassing it.
+	 * 
+	 * @return True if the memoized key is valid, false otherwise.
+	 */
+	private boolean isKeyValid(){
+		return this.key != null && this.key_size == this.size();
+	}
+	
 	/**
 	 * Adds an element e to a MySet object and returns the resulting object.
 	 * 
@@ -88,8 +498,6 @@ public class MySet<E> extends TreeSet<E> implements Comparable<MySet<E>> {
 	public MySet<E> addElement(E e) {
 		this.add(e);
 
-		this.has_changed = true;
-		
 		return this;
 	}
 
@@ -99,7 +507,10 @@ public class MySet<E> extends TreeSet<E> implements Comparable<MySet<E>> {
 	 * @return A copy of this MySet object.
 	 */
 	public MySet<E> clone() {
-		MySet<E> ret = new MySet<E>();
+		if (this.bits != null)
+			return new MySet<E>(this.bits);
+		
+		MySet<E> ret = new MySet<E>(this.comparator());
 
 		Iterator<E> iterator = this.iterator();
 		while (iterator.hasNext())
@@ -116,6 +527,13 @@ public class MySet<E> extends TreeSet<E> implements Comparable<MySet<E>> {
 	 * @return Returns 0 if both objects are equal, else -1 or 1.
 	 */
 	public int compareTo(MySet<E> B) {
+		if (this == B)
+			return 0;
+		
+		MyBitSet<E> bits = this.getSharedBits(B);
+		if (bits != null && this.bits.equals(bits))
+			return 0;
+		
 		return this.toString().compareTo(B.toString());
 	}
 
@@ -139,12 +557,16 @@ public class MySet<E> extends TreeSet<E> implements Comparable<MySet<E>> {
 
 	/**
 	 * Returns the hash code of this MySet object. This hash code is derived by
-	 * the String return by the toString method.
+	 * the String return by the toString method and memoized together with it.
 	 * 
 	 * @return The hash code of this MySet object.
 	 */
 	public int hashCode() {
-		return this.toString().hashCode();
+		String key = this.toString();
+		if (key != this.key)		// toString is overwritten by a subclass
+			return key.hashCode();
+		
+		return this.key_hash_code;
 	}
 
 	/**
@@ -170,31 +592,58 @@ public class MySet<E> extends TreeSet<E> implements Comparable<MySet<E>> {
 	 * @return True if this MySet object is a subset of B, false otherwise.
 	 */
 	public boolean isSubset(MySet<E> B) {
+		MyBitSet<E> bits = this.getSharedBits(B);
+		if (bits != null)
+			return this.bits.isSubset(bits);
+		
 		MySet<E> C = this.intersection(B);
 
 		return C.size() == this.size();
 	}
 
 	/**
-	 * Transforms the MySet object to a readable string.
+	 * Transforms the MySet object to a readable string. The string is the
+	 * canonical key of this set and is memoized until the set is changed, so
+	 * elements must not change their string representations while they are
+	 * contained. Symbols are listed alphabetically, so that the key does not depend on
+	 * the symbol ids.
 	 * 
 	 * @return The String object representing the MySet object in readable form.
 	 */
 	public String toString() {
-		if (this.size() == 0)
-			return "{}";
-
+		if (this.isKeyValid())
+			return this.key;
+		
+		String[] element_keys = new String[this.size()];
+		boolean is_symbolic = false;
+		
+		int i = 0;
 		Iterator<E> iterator = this.iterator();
-		String ret = "{";
 		while (iterator.hasNext()) {
 			E e = iterator.next();
-
-			ret = ret + e.toString() + ", ";
+			is_symbolic = is_symbolic || e instanceof MySymbol;
+			
+			element_keys[i++] = e.toString();
+		}
+		
+		String[] sorted_keys = element_keys;
+		if (is_symbolic){
+			sorted_keys = element_keys.clone();
+			Arrays.sort(sorted_keys);
 		}
-		ret = ret.substring(0, ret.length() - 2);
-		ret = ret + "}";
+		
+		StringBuilder builder = new StringBuilder("{");
+		for (i = 0; i < sorted_keys.length; i++)
+			builder.append(sorted_keys[i]).append(", ");
+		if (builder.length() > 1)
+			builder.setLength(builder.length() - 2);
+		builder.append("}");
 
-		return ret;
+		this.key = builder.toString();
+		this.key_hash_code = this.key.hashCode();
+		this.key_size = element_keys.length;
+		
+		return this.key;
 	}
 	
 	public String toLaTeXString() throws Exception{
@@ -270,10 +719,13 @@ public class MySet<E> extends TreeSet<E> implements Comparable<MySet<E>> {
 			}
 		}
 		
-		this.has_changed = true;
+		this.setChanged();
 	}
 	
 	public E getElement(E e){
+		if (this.bits != null && this.bits.contains(e))
+			return this.bits.getUniverse().getElement(this.bits.getUniverse().getIndex(e));
+		
 		E he = this.higher(e);		// test if there exists a higher element
 		if (he == null)				// if not, e must be highest
 			return this.last();		// return highest
@@ -294,31 +746,42 @@ public class MySet<E> extends TreeSet<E> implements Comparable<MySet<E>> {
 //		return null;
 	}
 	
+	/**
+	 * Gets the elements of this set in ascending order as ArrayList. The list
+	 * is memoized until the set is changed and must not be modified. For
+	 * single accesses by index use getElementByIndex.
+	 * 
+	 * @return The list of elements.
+	 */
 	public ArrayList<E> toArrayList(){
-		if (this.has_changed){
-			this.makeIndices();
-			this.has_changed = false;
-		}
+		if (this.element_array_list == null)
+			this.element_array_list = this.makeArrayList();
 		
 		return this.element_array_list;
 	}
 	
+	/**
+	 * Gets the index of an element in ascending order in O(log n).
+	 * 
+	 * @param e The element.
+	 * @return The index of the element or -1 if it is not element of this set.
+	 */
 	public int getIndex(E e){
-		if (this.has_changed){
-			this.makeIndices();
-			this.has_changed = false;
-		}
-		
-		if (this.element_indices.containsKey(e.toString()))
-			return this.element_indices.get(e.toString());
-		else
-			return -1;
-
-//		ArrayList<E> list = this.toArrayList();
-//		
-//		return list.indexOf(e);
+		return this.getElementIndex().getIndex(e);
 	}
 	
+	/**
+	 * Gets the element with the given index in ascending order in O(log n).
+	 * 
+	 * @param index The index.
+	 * @return The element with the given index.
+	 */
+	public E getElementByIndex(int index){
+		if (this.element_array_list != null)
+			return this.element_array_list.get(index);
+		
+		return this.getElementIndex().get(index);
+	}
 	
 	private ArrayList<E> makeArrayList() {
 		ArrayList<E> ret = new ArrayList<E>();
@@ -332,12 +795,6 @@ public class MySet<E> extends TreeSet<E> implements Comparable<MySet<E>> {
 		return ret;
 	}
 	
-	private void makeIndices(){
-		this.element_array_list = this.makeArrayList();
-		for (int i = 0; i < this.element_array_list.size(); i++)
-			this.element_indices.put(this.element_array_list.get(i).toString(), new Integer(i));
-	}
-	
 	public boolean isEmpty(){
 		return this.size() == 0;
 	}
@@ -0,0 +1,40 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.set;
+
+import java.util.Comparator;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ *         The class MyStringComparator. Compares objects by their string
+ *         representations. Species, complexes and reactions are ordered by
+ *         their symbol ids, this comparator gives the alphabetical ordering,
+ *         e.g., for human readable output.
+ * 
+ * @param <E>
+ *            The type of the compared objects.
+ */
+public class MyStringComparator<E> implements Comparator<E>{
+	public int compare(E e1, E e2){
+		return e1.toString().compareTo(e2.toString());
+	}
+}
@@ -0,0 +1,33 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.set;
+
+/**
+ * Objects which can be interned by a MySymbolTable. Two symbols interned by
+ * the same table are ordered by their symbol ids and are equal if and only if
+ * their symbol ids are equal. The string representation of a symbol is its key.
+ */
+public interface MySymbol {
+	public void intern(MySymbolTable symbol_table);
+	
+	public int getSymbolId();
+	
+	public MySymbolTable getSymbolTable();
+}
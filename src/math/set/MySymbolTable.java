@@ -0,0 +1,149 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.set;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ *         The class MySymbolTable. Interns canonical keys and hands out dense
+ *         integer ids, i.e., the first interned key gets id 0, the second one
+ *         id 1 and so on. Two objects with the same key always get the same id
+ *         so that identity can be decided by comparing ids instead of strings.
+ */
+public class MySymbolTable {
+	private HashMap<String,Integer> ids;	// lookup table: key -> id
+	private ArrayList<String> keys;			// lookup table: id -> key
+	
+	public MySymbolTable(){
+		this.ids = new HashMap<String,Integer>();
+		this.keys = new ArrayList<String>();
+	}
+	
+	/**
+	 * Interns a key. If the key is already known, its id is returned,
+	 * otherwise the next free id is assigned to it.
+	 * 
+	 * @param key The canonical key.
+	 * @return The id of the key.
+	 */
+	public synchronized int intern(String key){
+		Integer id = this.ids.get(key);
+		if (id != null)
+			return id;
+		
+		id = this.keys.size();
+		this.ids.put(key, id);
+		this.keys.add(key);
+		
+		return id;
+	}
+	
+	/**
+	 * Gets the id of a key without interning it.
+	 * 
+	 * @param key The canonical key.
+	 * @return The id of the key or -1 if the key was not interned yet.
+	 */
+	public synchronized int getId(String key){
+		Integer id = this.ids.get(key);
+		if (id == null)
+			return -1;
+		
+		return id;
+	}
+	
+	/**
+	 * Gets the key of an id.
+	 * 
+	 * @param id The id.
+	 * @return The canonical key belonging to the id.
+	 */
+	public synchronized String getKey(int id){
+		return this.keys.get(id);
+	}
+	
+	/**
+	 * Gets the number of interned keys.
+	 * 
+	 * @return The number of interned keys, which is also the next free id.
+	 */
+	public synchronized int size(){
+		return this.keys.size();
+	}
+	
+	/**
+	 * Compares two symbols. Symbols interned by the same table are ordered by
+	 * their ids. Otherwise the key of the first symbol, i.e., of the probe, is
+	 * looked up in the table of the second one, where unknown keys follow all
+	 * known ones. So lookups with symbols which were not interned yet or were
+	 * interned by another network are ordered consistently with the symbols of
+	 * a table. Symbols which were both not interned are ordered by their keys.
+	 * 
+	 * @param s1 The first symbol.
+	 * @param s2 The second symbol.
+	 * @return A negative integer, zero or a positive integer if the first symbol is less than, equal to or greater than the second one.
+	 */
+	public static int compare(MySymbol s1, MySymbol s2){
+		MySymbolTable table1 = s1.getSymbolTable();
+		MySymbolTable table2 = s2.getSymbolTable();
+		if (table1 != null && table1 == table2)
+			return MySymbolTable.compareIds(s1.getSymbolId(), s2.getSymbolId());
+		if (table2 != null)
+			return MySymbolTable.compareIds(table2.getId(s1.toString()), s2.getSymbolId());
+		if (table1 != null)
+			return MySymbolTable.compareIds(s1.getSymbolId(), table1.getId(s2.toString()));
+		
+		return s1.toString().compareTo(s2.toString());
+	}
+	
+	/**
+	 * Checks two symbols for equality. Symbols interned by the same table are
+	 * equal if their ids are, all others if their keys are.
+	 * 
+	 * @param s1 The first symbol.
+	 * @param s2 The second symbol.
+	 * @return True if both symbols are equal, false otherwise.
+	 */
+	public static boolean equals(MySymbol s1, MySymbol s2){
+		MySymbolTable table1 = s1.getSymbolTable();
+		if (table1 != null && table1 == s2.getSymbolTable())
+			return s1.getSymbolId() == s2.getSymbolId();
+		
+		return s1.toString().equals(s2.toString());
+	}
+	
+	/**
+	 * Compares two ids, where the id -1 of an unknown key follows all others.
+	 */
+	private static int compareIds(int id1, int id2){
+		if (id1 == id2)
+			return 0;
+		if (id1 == -1)
+			return 1;
+		if (id2 == -1)
+			return -1;
+		
+		return id1 < id2 ? -1 : 1;
+	}
+}
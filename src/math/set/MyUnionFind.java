@@ -0,0 +1,227 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.set;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ *         The class MyUnionFind. A disjoint-set forest with path compression
+ *         and union by rank over the elements of a MyUniverse. Unions can be
+ *         streamed, e.g., from the edges of a graph, and two elements are
+ *         equal with respect to this equivalence relation if they were
+ *         connected by unions. All operations run in nearly constant time.
+ *
+ * @param <E>
+ *            The type of class which is element of the universe.
+ */
+public class MyUnionFind<E> implements MyEquivalenceRelation<E> {
+	private MyUniverse<E> universe;
+	private int[] parent;
+	private int[] rank;
+	private int number_of_sets;
+	
+	/**
+	 * Constructor of a forest in which each element of the universe forms
+	 * its own set.
+	 * 
+	 * @param universe The universe.
+	 */
+	public MyUnionFind(MyUniverse<E> universe){
+		this.universe = universe;
+		this.parent = new int[Math.max(universe.size(), 4)];
+		this.rank = new int[this.parent.length];
+		for (int i = 0; i < this.parent.length; i++)
+			this.parent[i] = i;
+		this.number_of_sets = universe.size();
+	}
+	
+	/**
+	 * Constructor of a forest in which each element forms its own set.
+	 * 
+	 * @param elements The elements.
+	 */
+	public MyUnionFind(Collection<? extends E> elements){
+		this(new MyUniverse<E>(elements));
+	}
+	
+	public MyUniverse<E> getUniverse(){
+		return this.universe;
+	}
+	
+	/**
+	 * Adds an element as singleton set if it is not yet element of the universe.
+	 * 
+	 * @param e The element.
+	 * @return The index of the element.
+	 */
+	public int add(E e){
+		int size = this.universe.size();
+		int index = this.universe.add(e);
+		if (index == size){		// element is new
+			if (index == this.parent.length){
+				int length = 2*this.parent.length;
+				this.rank = Arrays.copyOf(this.rank, length);
+				this.parent = Arrays.copyOf(this.parent, length);
+				for (int i = index; i < length; i++)
+					this.parent[i] = i;
+			}
+			this.number_of_sets++;
+		}
+		
+		return index;
+	}
+	
+	/**
+	 * Finds the index of the representative of the set of an element,
+	 * compressing the path on the way.
+	 * 
+	 * @param index The index of the element.
+	 * @return The index of the representative.
+	 */
+	public int find(int index){
+		int root = index;
+		while (this.parent[root] != root)
+			root = this.parent[root];
+		
+		while (this.parent[index] != root){
+			int next = this.parent[index];
+			this.parent[index] = root;
+			index = next;
+		}
+		
+		return root;
+	}
+	
+	/**
+	 * Unifies the sets of two elements given by their indices.
+	 * 
+	 * @param index1 The index of the first element.
+	 * @param index2 The index of the second element.
+	 * @return True if the sets were different, false otherwise.
+	 */
+	public boolean union(int index1, int index2){
+		int root1 = this.find(index1);
+		int root2 = this.find(index2);
+		if (root1 == root2)
+			return false;
+		
+		if (this.rank[root1] < this.rank[root2])
+			this.parent[root1] = root2;
+		else if (this.rank[root1] > this.rank[root2])
+			this.parent[root2] = root1;
+		else {
+			this.parent[root2] = root1;
+			this.rank[root1]++;
+		}
+		this.number_of_sets--;
+		
+		return true;
+	}
+	
+	/**
+	 * Unifies the sets of two elements. Elements which are not yet element
+	 * of the universe are added.
+	 * 
+	 * @param e1 The first element.
+	 * @param e2 The second element.
+	 * @return True if the sets were different, false otherwise.
+	 */
+	public boolean union(E e1, E e2){
+		return this.union(this.add(e1), this.add(e2));
+	}
+	
+	/**
+	 * Unifies the sets of all pairs of elements.
+	 * 
+	 * @param pairs The pairs, e.g., the edges of a graph.
+	 */
+	public void unionAll(Iterator<? extends MyPair<? extends E,? extends E>> pairs){
+		while (pairs.hasNext()){
+			MyPair<? extends E,? extends E> pair = pairs.next();
+			this.union(pair.getFirstElement(), pair.getSecondElement());
+		}
+	}
+	
+	/**
+	 * Gets the representative of the set of an element.
+	 * 
+	 * @param e The element.
+	 * @return The representative or null if e is not element of the universe.
+	 */
+	public E getRepresentative(E e){
+		int index = this.universe.getIndex(e);
+		if (index == -1)
+			return null;
+		
+		return this.universe.getElement(this.find(index));
+	}
+	
+	/**
+	 * Checks if two elements are in the same set.
+	 * 
+	 * @param e1 The first element.
+	 * @param e2 The second element.
+	 * @return True if both elements are in the same set, false otherwise.
+	 */
+	public boolean isEqual(E e1, E e2){
+		int index1 = this.universe.getIndex(e1);
+		int index2 = this.universe.getIndex(e2);
+		if (index1 == -1 || index2 == -1)
+			return index1 == index2 && e1.equals(e2);
+		
+		return this.find(index1) == this.find(index2);
+	}
+	
+	/**
+	 * Numbers the sets from 0 to getNumberOfSets() - 1 in the order of their
+	 * first elements, in one pass over the universe.
+	 * 
+	 * @return The number of the set of each element, indexed like the universe.
+	 */
+	public int[] getSetIds(){
+		int[] ret = new int[this.universe.size()];
+		int[] root_ids = new int[this.universe.size()];
+		for (int i = 0; i < root_ids.length; i++)
+			root_ids[i] = -1;
+		
+		int number_of_ids = 0;
+		for (int i = 0; i < ret.length; i++){
+			int root = this.find(i);
+			if (root_ids[root] == -1)
+				root_ids[root] = number_of_ids++;
+			ret[i] = root_ids[root];
+		}
+		
+		return ret;
+	}
+	
+	public int getNumberOfSets(){
+		return this.number_of_sets;
+	}
+	
+	public int size(){
+		return this.universe.size();
+	}
+}
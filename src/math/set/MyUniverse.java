@@ -0,0 +1,154 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package math.set;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ *         The class MyUniverse. A fixed, indexed set of elements, e.g., the
+ *         species, complexes or reactions of a network. Each element gets the
+ *         index of its position, so that subsets of the universe can be
+ *         represented as MyBitSet objects. As long as the elements are added
+ *         in ascending order, subsets of the universe can also be stored as
+ *         bits by a MySet.
+ *
+ * @param <E>
+ *            The type of class which is element of the universe.
+ */
+public class MyUniverse<E> implements Iterable<E> {
+	private ArrayList<E> elements;				// lookup table: index -> element
+	private HashMap<E,Integer> indices;			// lookup table: element -> index
+	private int ascending_size;					// number of leading elements which are in ascending order
+	
+	/**
+	 * Constructor of an empty universe.
+	 */
+	public MyUniverse(){
+		this.elements = new ArrayList<E>();
+		this.indices = new HashMap<E,Integer>();
+		this.ascending_size = 0;
+	}
+	
+	/**
+	 * Constructor of a universe given a collection of elements. The elements
+	 * are indexed in the order of the collection, i.e., for a MySet in
+	 * ascending order.
+	 * 
+	 * @param elements The elements of the universe.
+	 */
+	public MyUniverse(Collection<? extends E> elements){
+		this();
+		
+		Iterator<? extends E> iterator = elements.iterator();
+		while (iterator.hasNext())
+			this.add(iterator.next());
+	}
+	
+	/**
+	 * Adds an element to the universe if it is not yet contained.
+	 * 
+	 * @param e The element to add.
+	 * @return The index of the element.
+	 */
+	public int add(E e){
+		Integer index = this.indices.get(e);
+		if (index != null)
+			return index;
+		
+		index = this.elements.size();
+		if (this.ascending_size == index && (index == 0 || MyUniverse.isAscending(this.elements.get(index - 1), e)))
+			this.ascending_size++;
+		this.elements.add(e);
+		this.indices.put(e, index);
+		
+		return index;
+	}
+	
+	private static boolean isAscending(Object e1, Object e2){
+		if (!(e1 instanceof Comparable))
+			return false;
+		
+		try {
+			// elements of one universe are of the same type, a mismatch is caught below
+			@SuppressWarnings("unchecked")
+			Comparable<Object> comparable = (Comparable<Object>)e1;
+			return comparable.compareTo(e2) < 0;
+		} catch (ClassCastException cce){
+			return false;
+		}
+	}
+	
+	/**
+	 * Gets the number of leading elements which were added in ascending
+	 * order, e.g., all elements of a universe built from a MySet. Subsets of
+	 * these elements iterate in ascending order by their indices.
+	 * 
+	 * @return The number of leading elements in ascending order.
+	 */
+	public int getAscendingSize(){
+		return this.ascending_size;
+	}
+	
+	/**
+	 * Gets the index of an element.
+	 * 
+	 * @param e The element.
+	 * @return The index of the element or -1 if it is not element of the universe.
+	 */
+	public int getIndex(Object e){
+		Integer index = this.indices.get(e);
+		if (index == null)
+			return -1;
+		
+		return index;
+	}
+	
+	/**
+	 * Gets the element with the given index.
+	 * 
+	 * @param index The index.
+	 * @return The element with the given index.
+	 */
+	public E getElement(int index){
+		return this.elements.get(index);
+	}
+	
+	public boolean contains(Object e){
+		return this.indices.containsKey(e);
+	}
+	
+	public int size(){
+		return this.elements.size();
+	}
+	
+	public Iterator<E> iterator(){
+		return this.elements.iterator();
+	}
+	
+	public String toString(){
+		return this.elements.toString();
+	}
+}
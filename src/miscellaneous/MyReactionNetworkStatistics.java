@@ -100,7 +100,7 @@ public class MyReactionNetworkStatistics {
 	
 	public String getMiscStatistics(ReactionNetwork reaction_network) throws Exception{
 		System.out.print("Computing rank of stoichiometric matrix ... ");
-		int q = reaction_network.getSimpleNMatrix().getRankUsingOctave("/tmp");
+		int q = reaction_network.getRank();
 		System.out.println("finished\n");
 		
 		return "Rank of stoichiometric matrix: " + q + "\n";
@@ -0,0 +1,40 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package system.parsers.binary;
+
+import math.linalg.MyMappedMatrix;
+import system.parsers.Parser;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ * The class BinaryMatrixParser.
+ * Opens a matrix written by BinaryMatrixWriter. The file is mapped into memory,
+ * not read, see MyMappedMatrix.
+ */
+public class BinaryMatrixParser extends Parser {
+	public BinaryMatrixParser(){
+	}
+	
+	public MyMappedMatrix parse(String file) throws Exception{
+		return new MyMappedMatrix(file);
+	}
+}
@@ -0,0 +1,177 @@
+/* CRNToolkit, Copyright (c) 2010-2016 Jost Neigenfind  <jostie@gmx.de>
+ * 
+ * A Java toolkit for Chemical Reaction Networks
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package system.parsers.binary;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import math.linalg.MyLabelledMatrix;
+import math.linalg.MyMappedMatrix;
+import math.linalg.MySparseMatrix;
+
+/**
+ * 
+ * @author neigenfind
+ *
+ * The class BinaryMatrixWriter.
+ * Writes labelled matrices in the binary format described in MyMappedMatrix. Sparse
+ * and dense matrices are both stored in compressed row storage, zeros are skipped.
+ * The labels are the string representations of the dimension objects.
+ */
+public class BinaryMatrixWriter {
+	public BinaryMatrixWriter(){
+	}
+	
+	public void write(MyLabelledMatrix<?,?> matrix, String file_name) throws Exception{
+		this.write(matrix, new File(file_name));
+	}
+	
+	public void write(MyLabelledMatrix<?,?> matrix, File file) throws Exception{
+		int height = matrix.getHeight();
+		int width = matrix.getWidth();
+		byte[][] row_labels = new byte[height][];
+		byte[][] column_labels = new byte[width][];
+		for (int i = 0; i < height; i++)
+			row_labels[i] = BinaryMatrixWriter.getFirstDimensionLabel(matrix, i).getBytes(StandardCharsets.UTF_8);
+		for (int j = 0; j < width; j++)
+			column_labels[j] = BinaryMatrixWriter.getSecondDimensionLabel(matrix, j).getBytes(StandardCharsets.UTF_8);
+		
+		// compressed row storage of the values
+		int[] row_pointers = new int[height + 1];
+		int[] column_indices;
+		double[] values;
+		if (matrix instanceof MySparseMatrix){
+			MySparseMatrix<?,?> sparse = (MySparseMatrix<?,?>)matrix;
+			for (int i = 0; i < height; i++)
+				row_pointers[i + 1] = sparse.getRowEnd(i);
+			column_indices = sparse.getColumnIndices();
+			values = sparse.getRowValues();
+		} else {
+			double[][] dense = matrix.toDoubleMatrix();
+			for (int i = 0; i < height; i++){
+				row_pointers[i + 1] = row_pointers[i];
+				for (int j = 0; j < width; j++)
+					if (dense[i][j] != 0)
+						row_pointers[i + 1]++;
+			}
+			column_indices = new int[row_pointers[height]];
+			values = new double[row_pointers[height]];
+			int k = 0;
+			for (int i = 0; i < height; i++){
+				for (int j = 0; j < width; j++){
+					if (dense[i][j] != 0){
+						column_indices[k] = j;
+						values[k++] = dense[i][j];
+					}
+				}
+			}
+		}
+		int number_of_non_zeros = row_pointers[height];
+		
+		// layout of the sections, see MyMappedMatrix
+		long row_label_offset = MyMappedMatrix.HEADER_SIZE;
+		long column_label_offset = BinaryMatrixWriter.align(row_label_offset + BinaryMatrixWriter.getTableSize(row_labels), 4);
+		long row_pointer_offset = BinaryMatrixWriter.align(column_label_offset + BinaryMatrixWriter.getTableSize(column_labels), 4);
+		long column_index_offset = row_pointer_offset + 4L*(height + 1);
+		long value_offset = BinaryMatrixWriter.align(column_index_offset + 4L*number_of_non_zeros, 8);
+		long size = value_offset + 8L*number_of_non_zeros;
+		if (size > Integer.MAX_VALUE)
+			throw new Exception("matrix too large for a binary matrix file: " + size + " bytes");
+		
+		file.delete();
+		RandomAccessFile random_access_file = new RandomAccessFile(file, "rw");
+		try {
+			MappedByteBuffer buffer = random_access_file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			
+			buffer.putInt(MyMappedMatrix.MAGIC);
+			buffer.putInt(MyMappedMatrix.VERSION);
+			buffer.putInt(height);
+			buffer.putInt(width);
+			buffer.putInt(number_of_non_zeros);
+			buffer.putInt((int)row_label_offset);
+			buffer.putInt((int)column_label_offset);
+			buffer.putInt((int)row_pointer_offset);
+			buffer.putInt((int)column_index_offset);
+			buffer.putInt((int)value_offset);
+			
+			BinaryMatrixWriter.putTable(buffer, (int)row_label_offset, row_labels);
+			BinaryMatrixWriter.putTable(buffer, (int)column_label_offset, column_labels);
+			
+			buffer.position((int)row_pointer_offset);
+			for (int i = 0; i <= height; i++)
+				buffer.putInt(row_pointers[i]);
+			for (int k = 0; k < number_of_non_zeros; k++)
+				buffer.putInt(column_indices[k]);
+			buffer.position((int)value_offset);
+			for (int k = 0; k < number_of_non_zeros; k++)
+				buffer.putDouble(values[k]);
+			
+			buffer.force();
+		} finally {
+			random_access_file.close();
+		}
+	}
+	
+	/**
+	 * Gets the label of a row. The labels are taken from the entries, the columns
+	 * of a MyMatrix filled entry by entry need not be in the order of its second
+	 * dimension set.
+	 */
+	private static String getFirstDimensionLabel(MyLabelledMatrix<?,?> matrix, int i){
+		if (matrix.getWidth() > 0)
+			return matrix.getEntry(i, 0).getFirstDimension().toString();
+		return matrix.getFirstDimension(i).toString();
+	}
+	
+	private static String getSecondDimensionLabel(MyLabelledMatrix<?,?> matrix, int j){
+		if (matrix.getHeight() > 0)
+			return matrix.getEntry(0, j).getSecondDimension().toString();
+		return matrix.getSecondDimension(j).toString();
+	}
+	
+	private static long getTableSize(byte[][] labels){
+		long ret = 4L*(labels.length + 1);
+		for (int i = 0; i < labels.length; i++)
+			ret += labels[i].length;
+		
+		return ret;
+	}
+	
+	private static void putTable(MappedByteBuffer buffer, int position, byte[][] labels){
+		buffer.position(position);
+		int offset = 0;
+		buffer.putInt(offset);
+		for (int i = 0; i < labels.length; i++){
+			offset += labels[i].length;
+			buffer.putInt(offset);
+		}
+		for (int i = 0; i < labels.length; i++)
+			buffer.put(labels[i]);
+	}
+	
+	private static long align(long position, int alignment){
+		return (position + alignment - 1)/alignment*alignment;
+	}
+}